@@ -26,6 +26,8 @@ import org.apache.log4j.Logger;
 
 import fr.ign.cogit.criteria.Critere;
 import fr.ign.cogit.dao.LigneResultat;
+import fr.ign.cogit.distance.geom.DistanceAbstractGeom;
+import fr.ign.cogit.distance.geom.StockGeometries;
 import fr.ign.cogit.metadata.Objet;
 import fr.ign.cogit.evidence.configuration.Configuration;
 import fr.ign.cogit.evidence.configuration.ConfigurationSet;
@@ -55,6 +57,9 @@ public class AppariementDST {
   
   private List<Critere> listCritere;
   
+  /** Géométries compactes de cet appariement, partagées par ses distances géométriques. */
+  private final StockGeometries stockGeometries = new StockGeometries();
+  
   /** Journalisation. */
   protected static Logger LOGGER = Logger.getLogger(AppariementDST.class.getName());
   
@@ -69,6 +74,28 @@ public class AppariementDST {
   
   public void setListCritere(List<Critere> listCritere) {
     this.listCritere = listCritere;
+    for (Critere critere : listCritere) {
+      if (critere.getDistance() instanceof DistanceAbstractGeom) {
+        ((DistanceAbstractGeom) critere.getDistance()).setStock(this.stockGeometries);
+      }
+    }
+  }
+  
+  /**
+   * @return stock des géométries compactes de l'appariement, par exemple pour
+   *         y charger les populations à l'avance
+   */
+  public StockGeometries getStockGeometries() {
+    return this.stockGeometries;
+  }
+  
+  /**
+   * Libère les géométries compactes gardées pendant l'appariement : à appeler
+   * après le dernier objet de référence. Les géométries qui ne sont plus
+   * utilisées ailleurs sont de toute façon libérées au fil de l'eau.
+   */
+  public void liberer() {
+    this.stockGeometries.clear();
   }
 
   /**
@@ -160,39 +187,41 @@ public List<LigneResultat> appariementObjet(IFeature featRef, IPopulation<IFeatu
       listeMasseCandCrits.put(c, listeMasseCand1Crit);
   }
   
-  for (IFeature candidat : candidatListe) {
+  // Masses de tous les candidats, critère par critère
+  IFeature[] candidats = candidatListe.toArray(new IFeature[candidatListe.size()]);
+  double[][] distancesCrit = new double[this.listCritere.size()][candidats.length];
+  double[][] massesCrit = new double[this.listCritere.size()][3 * candidats.length];
+  for (int c = 0; c < this.listCritere.size(); c++) {
+      Critere crit = this.listCritere.get(c);
+      crit.getMasses(featRef, candidats, distancesCrit[c], massesCrit[c]);
+      if (crit.getDistance().getNom().equals("Samal") && featRef.getAttribute(objRef.getNom()) == null) {
+          for (int i = 0; i < candidats.length; i++) {
+              massesCrit[c][3 * i] = 0;
+              massesCrit[c][3 * i + 1] = 0;
+              massesCrit[c][3 * i + 2] = 1;
+          }
+      }
+  }
+  
+  for (int i = 0; i < candidats.length; i++) {
     
+      IFeature candidat = candidats[i];
       String id = candidat.getAttribute(objComp.getCle()).toString();
       LOGGER.info("Feature : " + candidat.getAttribute(objComp.getNom()));
       
       // On initialise les masses
       for (int c = 0; c < this.listCritere.size(); c++) {
           
-          // 
           Critere crit = this.listCritere.get(c);
-          crit.setFeature(featRef, candidat);
-          double[] massesCS = new double[3];
-          
-          // 
-          if (crit.getDistance().getNom().equals("Samal")) {
-              if (featRef.getAttribute(objRef.getNom()) != null) {
-                  massesCS = crit.getMasse();
-                } else {
-                  massesCS[0] = 0;
-                  massesCS[1] = 0;
-                  massesCS[2] = 1;
-                }
-          } else {
-              massesCS = crit.getMasse();
-          }
+          double[] massesCS = massesCrit[c];
           
           MassPotential<String> masseCandidatCritere = new MassPotential<String>(cadreDiscernement);
-          masseCandidatCritere.add(listeAppC.get(id), massesCS[0]);
-          masseCandidatCritere.add(listeNonAppC.get(id), massesCS[1]);
-          masseCandidatCritere.add(csNSP, massesCS[2]);
+          masseCandidatCritere.add(listeAppC.get(id), massesCS[3 * i]);
+          masseCandidatCritere.add(listeNonAppC.get(id), massesCS[3 * i + 1]);
+          masseCandidatCritere.add(csNSP, massesCS[3 * i + 2]);
           listeMasseCandCrits.get(c).put(id,  masseCandidatCritere);
-          LOGGER.info("Distance pour " + crit.getNom() + " = "+ crit.getDistance().getDistance());
-          LOGGER.info("  masses = [" + massesCS[0] + ", " + massesCS[1] + ", " + massesCS[2] + "]");
+          LOGGER.info("Distance pour " + crit.getNom() + " = "+ distancesCrit[c][i]);
+          LOGGER.info("  masses = [" + massesCS[3 * i] + ", " + massesCS[3 * i + 1] + ", " + massesCS[3 * i + 2] + "]");
           
       }
       
@@ -285,8 +314,9 @@ public List<LigneResultat> appariementObjet(IFeature featRef, IPopulation<IFeatu
   List<Double> listPignistic = new ArrayList<Double>();
   listPignistic.add(pignisticNA);
 
-  for (IFeature candidat : candidatListe) {
+  for (int i = 0; i < candidats.length; i++) {
     
+    IFeature candidat = candidats[i];
     String id = candidat.getAttribute(objComp.getCle()).toString();
     compteurC++;
     double pignisticCandidat = arrondi(combination_cfusion.pignistic(configCadreDiscernement.get(id)), 5);
@@ -307,11 +337,7 @@ public List<LigneResultat> appariementObjet(IFeature featRef, IPopulation<IFeatu
     
     distances = new double[this.listCritere.size()];
     for (int c = 0; c < this.listCritere.size(); c++) {
-        Critere crit = this.listCritere.get(c);
-        crit.setFeature(featRef, candidat);
-        crit.getMasse();
-        double dist = arrondi(crit.getDistance().getDistance(), 5);
-        distances[c] = dist;
+        distances[c] = distanceExportee(distancesCrit[c][i]);
     }
         
     // Rajout ligne tableau
@@ -418,4 +444,13 @@ public List<LigneResultat> appariementObjet(IFeature featRef, IPopulation<IFeatu
     return (double) ( (int) (A * Math.pow(10, B) + .5)) / Math.pow(10, B);
   }
   
+  /**
+   * Distance d'un critère telle qu'elle est exportée : arrondie, ou
+   * LigneResultat.DISTANCE_MANQUANTE si elle n'existe pas (calcul abandonné,
+   * ou NaN, par exemple sans voisinage).
+   */
+  public static double distanceExportee(double d) {
+    return !(d >= 0) ? LigneResultat.DISTANCE_MANQUANTE : arrondi(d, 5);
+  }
+  
 }
@@ -28,6 +28,31 @@ public interface Critere {
   public void checkSommeMasseEgale1(double[] tableau) throws Exception;
   public Distance getDistance();
   public double[] getMasse() throws Exception;
+  
+  /**
+   * Masses de l'objet de référence avec chacun des candidats, en un seul appel.
+   * 
+   * Version par défaut : setFeature et getMasse() pour chaque candidat, puis la
+   * distance relue par getDistance().getDistance(), donc calculée deux fois.
+   * Un critère qui peut calculer ses distances en lot, ou dont la distance est
+   * coûteuse, redéfinit cette méthode.
+   * 
+   * @param featureRef objet de référence
+   * @param candidats objets candidats
+   * @param distances sortie : distances[i] = distance entre featureRef et candidats[i]
+   * @param masses sortie : masses[3 * i], masses[3 * i + 1], masses[3 * i + 2] =
+   *          masse(appC), masse(nonAppC), masse(NSP) du candidat i
+   */
+  public default void getMasses(IFeature featureRef, IFeature[] candidats, double[] distances, double[] masses) throws Exception {
+    for (int i = 0; i < candidats.length; i++) {
+      setFeature(featureRef, candidats[i]);
+      double[] tableau = getMasse();
+      distances[i] = getDistance().getDistance();
+      masses[3 * i] = tableau[0];
+      masses[3 * i + 1] = tableau[1];
+      masses[3 * i + 2] = tableau[2];
+    }
+  }
   // public static double getDistance(String s, String t);
 
 }
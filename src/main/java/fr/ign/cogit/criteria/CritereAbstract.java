@@ -50,7 +50,7 @@ public abstract class CritereAbstract implements Critere {
 	 * @throws Exception
 	 */
 	public void checkSommeMasseEgale1(double[] tableau) throws Exception {
-		Double d = new Double(tableau[0] + tableau[1] + tableau[2]);
+		double d = tableau[0] + tableau[1] + tableau[2];
 		if (Math.abs(d - 1) > 0.01) {
 			throw new Exception("Somme des masses != 1 (somme = " + d + " = " + tableau[0] + " + " + tableau[1] + " + "+ tableau[2] + ")");
 		} 
@@ -0,0 +1,126 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.criteria;
+
+import fr.ign.cogit.distance.Distance;
+import fr.ign.cogit.distance.text.DistanceAbstractText;
+import fr.ign.cogit.geoxygene.api.feature.IFeature;
+
+/**
+ * Critère sur un attribut code de largeur fixe (code INSEE de la commune, numéro
+ * de route, ...), typiquement avec DistanceHamming. Un code identique est un
+ * indice fort d'appariement, un code différent un indice de non-appariement.
+ */
+public class CritereCode extends CritereAbstract implements Critere {
+  
+	/** Le seuil pour les masses de croyances. */
+	private double seuil = 0.25;
+	
+	private FonctionMasse fonctionMasse;
+  
+	private String nomAttCodeRef;
+	private String nomAttCodeComp;
+  
+	public CritereCode(Distance d) {
+		super(d);
+		initFonctionMasse();
+	}
+  
+	/**
+	 * Noms des attributs code dans la population de référence et de comparaison.
+	 */
+	public void setAttributs(String nomAttCodeRef, String nomAttCodeComp) {
+		this.nomAttCodeRef = nomAttCodeRef;
+		this.nomAttCodeComp = nomAttCodeComp;
+	}
+  
+	public void setSeuil(double seuil) {
+		this.seuil = seuil;
+		initFonctionMasse();
+	}
+	
+	private void initFonctionMasse() {
+		this.fonctionMasse = new FonctionMasse(new double[] { 0, seuil }, 
+				new double[] { 0.9, 0.1 }, 
+				new double[] { 0, 0.7 }, 
+				new double[] { 0.1, 0.2 });
+	}
+  
+	public void setFeature(IFeature featureRef, IFeature featureComp) {
+		super.setFeature(featureRef, featureComp);
+	}
+  
+	/**
+	 * Retourne la masse de croyance.
+	 * @return tableau :
+	 *    tableau[0] = masse(appC), 
+	 *    tableau[1] = masse(nonAppC), 
+	 *    tableau[2] = masse(NSP)
+	 * @throws Exception 
+	 */
+	public double[] getMasse() throws Exception {
+    
+		String txtRef = code(featureRef, nomAttCodeRef);
+		String txtComp = code(featureComp, nomAttCodeComp);
+		((DistanceAbstractText)distance).setText(txtRef, txtComp);
+    
+		double[] tableau = new double[3];
+    
+		// Code absent : on ne sait pas
+		if (txtRef.length() == 0 || txtComp.length() == 0) {
+			tableau[0] = 0;
+			tableau[1] = 0;
+			tableau[2] = 1;
+			return tableau;
+		}
+    
+		double distNorm = distance.getDistance();
+		// 	Return 3 masses sous forme de tableau
+		return fonctionMasse.masses(distNorm);
+	}
+  
+	/**
+	 * Une seule distance par candidat, calculées en lot (le code de référence
+	 * n'est préparé qu'une fois). Un code absent donne toute la masse à NSP,
+	 * comme dans getMasse.
+	 */
+	@Override
+	public void getMasses(IFeature featureRef, IFeature[] candidats, double[] distances, double[] masses) throws Exception {
+		String txtRef = code(featureRef, nomAttCodeRef);
+		int n = candidats.length;
+		String[] txtComps = new String[n];
+		for (int i = 0; i < n; i++) {
+			txtComps[i] = code(candidats[i], nomAttCodeComp);
+		}
+		((DistanceAbstractText)distance).getDistances(txtRef, txtComps, distances);
+		fonctionMasse.masses(distances, n, masses);
+		for (int i = 0; i < n; i++) {
+			if (txtRef.length() == 0 || txtComps[i].length() == 0) {
+				masses[3 * i] = 0;
+				masses[3 * i + 1] = 0;
+				masses[3 * i + 2] = 1;
+			}
+		}
+	}
+	
+	private static String code(IFeature feature, String nomAtt) {
+		Object code = feature.getAttribute(nomAtt);
+		return code == null ? "" : code.toString().trim();
+	}
+  
+	public String getNom() {
+		return "Critère code";
+	}
+  
+}
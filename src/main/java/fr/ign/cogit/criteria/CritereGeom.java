@@ -13,6 +13,7 @@
  */
 package fr.ign.cogit.criteria;
 
+import fr.ign.cogit.dao.LigneResultat;
 import fr.ign.cogit.distance.Distance;
 import fr.ign.cogit.distance.geom.DistanceAbstractGeom;
 import fr.ign.cogit.geoxygene.api.feature.IFeature;
@@ -26,10 +27,56 @@ public class CritereGeom extends CritereAbstract implements Critere {
   
 	private double seuilT1 = 35;
 	private double seuilT2 = 100;
+	
+	/** Part du seuil t1 prise comme tolérance de simplification des géométries. */
+	public static final double FRACTION_TOLERANCE = 0.1;
+	
+	private boolean simplification = false;
+	
+	private FonctionMasse fonctionMasse;
   
+	/**
+	 * Au-delà de t2 les masses sont constantes : t2 sert aussi de seuil d'abandon
+	 * aux distances qui le gèrent (la distance retournée est alors un minorant).
+	 * Ces minorants ne sont pas exportés : getMasses renvoie pour eux
+	 * LigneResultat.DISTANCE_MANQUANTE. Les distances exactes au-delà de t2
+	 * sont exportées.
+	 */
 	public void setSeuil(double t1, double t2) {
 		this.seuilT1 = t1;
 		this.seuilT2 = t2;
+		initFonctionMasse();
+		initDistance();
+	}
+	
+	/**
+	 * Simplification des géométries avant le calcul des distances (Hausdorff, 
+	 * Fréchet, ...), à une tolérance de FRACTION_TOLERANCE * t1. Chaque géométrie
+	 * n'est simplifiée qu'une fois ; l'écart induit sur la distance est borné par
+	 * DistanceAbstractGeom.getErreurSimplification().
+	 */
+	public void setSimplification(boolean simplification) {
+		this.simplification = simplification;
+		initDistance();
+	}
+  
+	/**
+	 * Masses en 0, t1 et t2 : la masse d'appariement décroît jusqu'à t2, celle de
+	 * non-appariement croît entre t1 et t2.
+	 */
+	private void initFonctionMasse() {
+		double nspT1 = 0.9 * seuilT1 / seuilT2;
+		this.fonctionMasse = new FonctionMasse(new double[] { 0, seuilT1, seuilT2 }, 
+				new double[] { 1, 1 - nspT1, 0.1 }, 
+				new double[] { 0, 0, 0.8 }, 
+				new double[] { 0, nspT1, 0.1 });
+	}
+  
+	private void initDistance() {
+		if (distance instanceof DistanceAbstractGeom) {
+			((DistanceAbstractGeom)distance).setSeuilAbandon(seuilT2);
+			((DistanceAbstractGeom)distance).setToleranceSimplification(simplification ? FRACTION_TOLERANCE * seuilT1 : 0);
+		}
 	}
   
 	public void setFeature(IFeature featureRef, IFeature featureComp) {
@@ -38,6 +85,8 @@ public class CritereGeom extends CritereAbstract implements Critere {
   
 	public CritereGeom(Distance d) {
 		super(d);
+		initFonctionMasse();
+		initDistance();
 	}
 
 	@Override
@@ -46,34 +95,35 @@ public class CritereGeom extends CritereAbstract implements Critere {
 		((DistanceAbstractGeom)distance).setGeom(featureRef.getGeom(), featureComp.getGeom());
 		double distNorm = distance.getDistance();
     
-	    double[] tableau = new double[3];
-	    if (distNorm < seuilT1) {
-	    	tableau[0] = (-0.9/seuilT2) * distNorm + 1;
-	    	tableau[1] = 0;
-	    	tableau[2] = (0.9/seuilT2) * distNorm;
-	    } else if (distNorm < seuilT2) {
-	    	tableau[0] = (-0.9/seuilT2) * distNorm + 1;
-	    	tableau[1] = 0.8 / (seuilT2 - seuilT1) * distNorm - 0.8 * seuilT1 / (seuilT2 - seuilT1);
-	    	tableau[2] = (0.1*seuilT2 - 0.9*seuilT1) / (seuilT2*(seuilT2 - seuilT1)) * distNorm + 0.8 * seuilT1 / (seuilT2 - seuilT1);
-	    } else {
-	    	tableau[0] = 0.1;
-	    	tableau[1] = 0.8;
-	    	tableau[2] = 0.1;
-	    }
-    
-	    try {
-	    	checkSommeMasseEgale1(tableau);
-	    } catch (Exception e) {
-	    	LOGGER.error("Erreur 'Somme des masses' pour la distance euclidienne : " + distNorm);
-	    	e.printStackTrace();
-	    	throw e;
-	    }
-    
 	    // Return 3 masses sous forme de tableau
-	    return tableau;
+	    return fonctionMasse.masses(distNorm);
 	}
   
   
+	/**
+	 * Une distance dont le calcul a été abandonné (DistanceAbstractGeom.isAbandonnee)
+	 * n'est qu'un minorant au-delà de t2 : elle donne les mêmes masses que la
+	 * distance exacte, mais est remplacée par LigneResultat.DISTANCE_MANQUANTE
+	 * dans le tableau des distances, pour ne pas exporter une valeur fausse.
+	 */
+	@Override
+	public void getMasses(IFeature featureRef, IFeature[] candidats, double[] distances, double[] masses) throws Exception {
+		DistanceAbstractGeom d = (DistanceAbstractGeom) distance;
+		int n = candidats.length;
+		boolean[] abandonnees = new boolean[n];
+		for (int i = 0; i < n; i++) {
+			d.setGeom(featureRef.getGeom(), candidats[i].getGeom());
+			distances[i] = d.getDistance();
+			abandonnees[i] = d.isAbandonnee();
+		}
+		fonctionMasse.masses(distances, n, masses);
+		for (int i = 0; i < n; i++) {
+			if (abandonnees[i]) {
+				distances[i] = LigneResultat.DISTANCE_MANQUANTE;
+			}
+		}
+	}
+  
 	public String getNom() {
 		return "Critère géométrique";
 	}
@@ -25,9 +25,25 @@ import fr.ign.cogit.geoxygene.api.feature.IFeature;
 public class CritereOrientation extends CritereAbstract implements Critere {
   
 	private double seuilAngle = Math.PI / 2;
+	
+	private FonctionMasse fonctionMasse;
   
 	public void setSeuil(double seuilAngle) {
 		this.seuilAngle = seuilAngle;
+		initFonctionMasse();
+	}
+	
+	/**
+	 * L'appariement est le plus crédible pour des orientations identiques ou 
+	 * opposées (écart 0 ou 2 * seuil), le non-appariement pour un écart égal au
+	 * seuil. La masse NSP vaut 0.5, sauf sans orientation (écart NaN) : 
+	 * toute la masse va alors à NSP.
+	 */
+	private void initFonctionMasse() {
+		this.fonctionMasse = new FonctionMasse(new double[] { 0, seuilAngle, 2 * seuilAngle }, 
+				new double[] { 0.5, 0, 0.5 }, 
+				new double[] { 0, 0.5, 0 }, 
+				new double[] { 0.5, 0.5, 0.5 });
 	}
   
 	public void setFeature(IFeature featureRef, IFeature featureComp) {
@@ -36,6 +52,7 @@ public class CritereOrientation extends CritereAbstract implements Critere {
   
 	public CritereOrientation(Distance d) {
 		super(d);
+		initFonctionMasse();
 	}
   
 	@Override
@@ -44,31 +61,31 @@ public class CritereOrientation extends CritereAbstract implements Critere {
 		((DistanceAbstractGeom)distance).setGeom(featureRef.getGeom(), featureComp.getGeom());
 		double valeurAngle = distance.getDistance();
     
-		double[] tableau = new double[3];
-    
-		if (valeurAngle < seuilAngle) {
-			tableau[0] = -0.5 / seuilAngle * valeurAngle + 0.5;
-			tableau[1] = +0.5 / seuilAngle * valeurAngle;
-			tableau[2] = +0.5;
-		} else {
-			tableau[0] = +0.5 / seuilAngle * valeurAngle - 0.5;
-			tableau[1] = -0.5 / seuilAngle * valeurAngle + 1;
-			tableau[2] = +0.5;
-		}
-    
-    try {
-      checkSommeMasseEgale1(tableau);
-    } catch (Exception e) {
-      LOGGER.error("Erreur 'Somme des masses' pour la distance orientation : " + valeurAngle);
-      e.printStackTrace();
-      throw e;
-    }
-    
-    // Return 3 masses sous forme de tableau
-    return tableau;
+		// Return 3 masses sous forme de tableau
+		return fonctionMasse.masses(ecart(valeurAngle));
   }
   
   
+	@Override
+	public void getMasses(IFeature featureRef, IFeature[] candidats, double[] distances, double[] masses) throws Exception {
+		DistanceAbstractGeom d = (DistanceAbstractGeom) distance;
+		int n = candidats.length;
+		for (int i = 0; i < n; i++) {
+			d.setGeom(featureRef.getGeom(), candidats[i].getGeom());
+			distances[i] = ecart(d.getDistance());
+		}
+		fonctionMasse.masses(distances, n, masses);
+	}
+	
+	/**
+	 * Un écart hors de [0, π] (NaN, ou Float.MAX_VALUE d'une distance qui 
+	 * signale ainsi l'absence d'orientation) est inconnu : NaN, qui donne 
+	 * (0, 0, 1) et non les masses d'orientations identiques ou opposées.
+	 */
+	static double ecart(double angle) {
+		return angle >= 0 && angle <= Math.PI ? angle : Double.NaN;
+	}
+  
   public String getNom() {
     return "Critère orientation";
   }
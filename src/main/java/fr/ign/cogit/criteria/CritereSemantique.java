@@ -16,20 +16,37 @@ package fr.ign.cogit.criteria;
 import fr.ign.cogit.metadata.Objet;
 import fr.ign.cogit.distance.Distance;
 import fr.ign.cogit.distance.semantique.DistanceAbstractSemantique;
+import fr.ign.cogit.distance.semantique.DistanceWuPalmer;
 import fr.ign.cogit.geoxygene.api.feature.IFeature;
 
 /**
- * AutoCloseable.
+ * Critère sur la nature des objets. Sans distance précisée, Wu-Palmer sur
+ * l'ontologie partagée de la JVM (ServiceOntologie) : chaque critère, et donc
+ * chaque thread d'appariement, a sa distance mais pas sa copie de l'ontologie.
+ * 
+ * AutoCloseable : close() libère la distance créée par le constructeur sans
+ * argument ; une distance fournie reste à fermer par celui qui l'a créée.
  * 
  * @author M-D Van Damme
  */
-public class CritereSemantique extends CritereAbstract implements Critere {
+public class CritereSemantique extends CritereAbstract implements Critere, AutoCloseable {
 
 	/** Le seuil pour le critère WuPalmer. */
 	private double seuil = 0.7;
+	
+	private FonctionMasse fonctionMasse;
+	
+	/** Distance créée par le critère, à fermer avec lui. */
+	private DistanceWuPalmer distanceCreee = null;
 
 	public CritereSemantique(Distance distance) {
 		super(distance);
+		initFonctionMasse();
+	}
+	
+	public CritereSemantique() {
+		this(new DistanceWuPalmer());
+		this.distanceCreee = (DistanceWuPalmer) this.distance;
 	}
 
 	private String attrSemantiqueNameRef;
@@ -46,6 +63,14 @@ public class CritereSemantique extends CritereAbstract implements Critere {
 
 	public void setSeuil(double seuil) {
 		this.seuil = seuil;
+		initFonctionMasse();
+	}
+	
+	private void initFonctionMasse() {
+		this.fonctionMasse = new FonctionMasse(new double[] { 0, seuil }, 
+				new double[] { 0.5, 0.1 }, 
+				new double[] { 0, 0.8 }, 
+				new double[] { 0.5, 0.1 });
 	}
 
 	/**
@@ -65,30 +90,32 @@ public class CritereSemantique extends CritereAbstract implements Critere {
 		((DistanceAbstractSemantique) distance).setType(valTypeRef, valTypeComp);
 		double distNorm = distance.getDistance();
 
-		double[] tableau = new double[3];
-		if (distNorm < seuil) {
-			tableau[0] = (-0.4 / seuil) * distNorm + 0.5;
-			tableau[1] = (0.8 / seuil) * distNorm;
-			tableau[2] = (-0.4 / seuil) * distNorm + 0.5;
-		} else {
-			tableau[0] = 0.1;
-			tableau[1] = 0.8;
-			tableau[2] = 0.1;
-		}
+		return fonctionMasse.masses(distNorm);
+	}
 
-		try {
-			checkSommeMasseEgale1(tableau);
-		} catch (Exception e) {
-			e.printStackTrace();
-			throw e;
+	@Override
+	public void getMasses(IFeature featureRef, IFeature[] candidats, double[] distances, double[] masses) throws Exception {
+		DistanceAbstractSemantique d = (DistanceAbstractSemantique) distance;
+		String valTypeRef = featureRef.getAttribute(attrSemantiqueNameRef).toString();
+		int n = candidats.length;
+		for (int i = 0; i < n; i++) {
+			d.setType(valTypeRef, candidats[i].getAttribute(attrSemantiqueNameComp).toString());
+			distances[i] = d.getDistance();
 		}
-
-		return tableau;
+		fonctionMasse.masses(distances, n, masses);
 	}
 
 	@Override
 	public String getNom() {
 		return "Critère sémantique";
 	}
+	
+	@Override
+	public void close() throws Exception {
+		if (distanceCreee != null) {
+			distanceCreee.close();
+			distanceCreee = null;
+		}
+	}
 
 }
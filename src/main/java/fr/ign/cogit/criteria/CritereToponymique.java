@@ -15,6 +15,7 @@ package fr.ign.cogit.criteria;
 
 import fr.ign.cogit.metadata.Objet;
 import fr.ign.cogit.distance.Distance;
+import fr.ign.cogit.distance.text.CacheNormalisation;
 import fr.ign.cogit.distance.text.DistanceAbstractText;
 import fr.ign.cogit.geoxygene.api.feature.IFeature;
 
@@ -27,12 +28,15 @@ public class CritereToponymique extends CritereAbstract implements Critere  {
   
 	/** Le seuil pour les masses de croyances. */
 	private double seuil = 0.6;
+	
+	private FonctionMasse fonctionMasse;
   
 	private String nomAttRef;
 	private String nomAttComp;
   
 	public CritereToponymique(Distance d) {
 		super(d);
+		initFonctionMasse();
 	}
   
 	public void setMetadata(Objet objRef, Objet objetComp) {
@@ -42,6 +46,14 @@ public class CritereToponymique extends CritereAbstract implements Critere  {
   
 	public void setSeuil(double seuil) {
 		this.seuil = seuil;
+		initFonctionMasse();
+	}
+	
+	private void initFonctionMasse() {
+		this.fonctionMasse = new FonctionMasse(new double[] { 0, seuil }, 
+				new double[] { 1, 0.1 }, 
+				new double[] { 0, 0.5 }, 
+				new double[] { 0, 0.4 });
 	}
   
 	public void setFeature(IFeature featureRef, IFeature featureComp) {
@@ -69,25 +81,16 @@ public class CritereToponymique extends CritereAbstract implements Critere  {
     
 		String nomTopoComp = "";
 		if (featureComp.getAttribute(nomAttComp) != null && featureComp.getAttribute(nomAttComp) != "") {
-			nomTopoComp = featureComp.getAttribute(nomAttComp).toString().toLowerCase();
+			nomTopoComp = CacheNormalisation.MINUSCULES.get(featureComp.getAttribute(nomAttComp).toString());
 		}
 		String nomTopoRef = "";
 		if (featureRef.getAttribute(nomAttRef) != null) {
-			nomTopoRef = featureRef.getAttribute(nomAttRef).toString().toLowerCase();
+			nomTopoRef = CacheNormalisation.MINUSCULES.get(featureRef.getAttribute(nomAttRef).toString());
 		} 
 		((DistanceAbstractText)distance).setText(nomTopoRef, nomTopoComp);
 		double distNorm = distance.getDistance();
     
-		double[] tableau = new double[3];
-		if (distNorm < seuil) {
-			tableau[0] = (-0.9/seuil)*distNorm + 1;
-			tableau[1] = (0.5/seuil)*distNorm;
-			tableau[2] = (0.4/seuil)*distNorm;
-		} else {
-			tableau[0] = 0.1;
-			tableau[1] = 0.5;
-			tableau[2] = 0.4;
-		}
+		double[] tableau = fonctionMasse.masses(distNorm);
     
 		// Si nom est NULL, on écrase 
 		if (nomTopoRef == null) {
@@ -96,26 +99,30 @@ public class CritereToponymique extends CritereAbstract implements Critere  {
 			tableau[2] = 1;
 		}
     
-	    /*if (distNorm < seuil) {
-	      tableau[0] = (-0.4/seuil)*distNorm + 0.5;
-	      tableau[1] = (0.8/seuil)*distNorm;
-	      tableau[2] = (-0.4/seuil)*distNorm + 0.5;
-	    } else {
-	      tableau[0] = 0.1;
-	      tableau[1] = 0.8;
-	      tableau[2] = 0.1;
-	    }*/
-    
-		try {
-			checkSommeMasseEgale1(tableau);
-		} catch (Exception e) {
-			e.printStackTrace();
-			throw e;
-		}
-    
 		// 	Return 3 masses sous forme de tableau
 		return tableau;
 	}
+	
+	/**
+	 * Les distances sont calculées en lot (DistanceAbstractText.getDistances), le
+	 * toponyme de référence n'étant préparé qu'une fois.
+	 */
+	@Override
+	public void getMasses(IFeature featureRef, IFeature[] candidats, double[] distances, double[] masses) throws Exception {
+		String nomTopoRef = "";
+		if (featureRef.getAttribute(nomAttRef) != null) {
+			nomTopoRef = CacheNormalisation.MINUSCULES.get(featureRef.getAttribute(nomAttRef).toString());
+		}
+		int n = candidats.length;
+		String[] nomsTopoComp = new String[n];
+		for (int i = 0; i < n; i++) {
+			Object nom = candidats[i].getAttribute(nomAttComp);
+			nomsTopoComp[i] = (nom != null && nom != "") ? CacheNormalisation.MINUSCULES.get(nom.toString()) : "";
+		}
+		((DistanceAbstractText)distance).getDistances(nomTopoRef, nomsTopoComp, distances);
+		
+		fonctionMasse.masses(distances, n, masses);
+	}
   
   
 	public String getNom() {
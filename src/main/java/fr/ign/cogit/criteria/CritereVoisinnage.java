@@ -13,6 +13,82 @@
  */
 package fr.ign.cogit.criteria;
 
-public class CritereVoisinnage {
+import fr.ign.cogit.distance.Distance;
+import fr.ign.cogit.distance.geom.DistanceAbstractGeom;
+import fr.ign.cogit.geoxygene.api.feature.IFeature;
 
+/**
+ * Critère de voisinage : compare la configuration des objets proches de l'objet
+ * de référence et du candidat (nombre, natures, directions), typiquement avec
+ * une DistanceVoisinage construite sur un IndexVoisinage des deux populations.
+ * 
+ * Le contexte est un indice faible : il ne donne jamais plus de 0.6 à 
+ * l'appariement, et reste sans avis quand aucun des deux objets n'a de voisin.
+ */
+public class CritereVoisinnage extends CritereAbstract implements Critere {
+  
+	/** Le seuil pour les masses de croyances. */
+	private double seuil = 0.5;
+	
+	private FonctionMasse fonctionMasse;
+  
+	public CritereVoisinnage(Distance d) {
+		super(d);
+		initFonctionMasse();
+	}
+  
+	public void setSeuil(double seuil) {
+		this.seuil = seuil;
+		initFonctionMasse();
+	}
+	
+	private void initFonctionMasse() {
+		this.fonctionMasse = new FonctionMasse(new double[] { 0, seuil }, 
+				new double[] { 0.6, 0 }, 
+				new double[] { 0, 0.3 }, 
+				new double[] { 0.4, 0.7 });
+	}
+  
+	public void setFeature(IFeature featureRef, IFeature featureComp) {
+		super.setFeature(featureRef, featureComp);
+	}
+  
+	/**
+	 * Retourne la masse de croyance.
+	 * @return tableau :
+	 *    tableau[0] = masse(appC), 
+	 *    tableau[1] = masse(nonAppC), 
+	 *    tableau[2] = masse(NSP)
+	 * @throws Exception 
+	 */
+	@Override
+	public double[] getMasse() throws Exception {
+    
+		((DistanceAbstractGeom)distance).setGeom(featureRef.getGeom(), featureComp.getGeom());
+		double distNorm = distance.getDistance();
+    
+		// Return 3 masses sous forme de tableau ; pas de voisinage (NaN) : on ne sait pas
+		return fonctionMasse.masses(distNorm);
+	}
+  
+	/**
+	 * Une seule distance par candidat ; sans voisinage (NaN), la fonction de
+	 * masse met toute la masse sur NSP, comme dans getMasse.
+	 */
+	@Override
+	public void getMasses(IFeature featureRef, IFeature[] candidats, double[] distances, double[] masses) throws Exception {
+		DistanceAbstractGeom d = (DistanceAbstractGeom) distance;
+		int n = candidats.length;
+		for (int i = 0; i < n; i++) {
+			d.setGeom(featureRef.getGeom(), candidats[i].getGeom());
+			distances[i] = d.getDistance();
+		}
+		fonctionMasse.masses(distances, n, masses);
+	}
+  
+	@Override
+	public String getNom() {
+		return "Critère voisinage";
+	}
+  
 }
@@ -0,0 +1,191 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.criteria;
+
+/**
+ * Fonction de masse linéaire par morceaux : pour chaque point d'inflexion, les
+ * masses des trois éléments focaux (appC, nonAppC, NSP). Entre deux points,
+ * les masses sont interpolées linéairement ; avant le premier et après le 
+ * dernier, elles sont constantes.
+ * 
+ * Une distance inconnue (NaN) ne dit rien : toute la masse va à NSP, 
+ * (0, 0, 1), quelle que soit la fonction.
+ * 
+ * La fonction est vérifiée une fois, à la construction : masses dans [0, 1] et
+ * de somme 1 en chaque point, ce qui reste vrai entre les points. L'évaluation
+ * ne fait donc plus aucune vérification.
+ */
+public final class FonctionMasse {
+  
+  private static final double TOLERANCE = 1e-6;
+  
+  /** Points d'inflexion, croissants. */
+  private final double[] abscisses;
+  
+  /** Masses aux points d'inflexion : 3 valeurs par point. */
+  private final double[] valeurs;
+  
+  /** Pentes sur chaque intervalle : 3 valeurs par intervalle. */
+  private final double[] pentes;
+  
+  /** Vrai si aucun intervalle n'est de largeur nulle (pas de saut). */
+  private final boolean sansSaut;
+  
+  /**
+   * @param abscisses points d'inflexion, croissants (au moins un)
+   * @param app masses(appC) en chaque point
+   * @param nonApp masses(nonAppC) en chaque point
+   * @param nsp masses(NSP) en chaque point
+   * @throws IllegalArgumentException si la fonction n'est pas une fonction de masse
+   */
+  public FonctionMasse(double[] abscisses, double[] app, double[] nonApp, double[] nsp) {
+    int n = abscisses.length;
+    if (n == 0 || app.length != n || nonApp.length != n || nsp.length != n) {
+      throw new IllegalArgumentException("Fonction de masse : il faut autant de masses que de points d'inflexion (au moins un)");
+    }
+    this.abscisses = abscisses.clone();
+    this.valeurs = new double[3 * n];
+    for (int k = 0; k < n; k++) {
+      if (Double.isNaN(abscisses[k]) || (k > 0 && abscisses[k] < abscisses[k - 1])) {
+        throw new IllegalArgumentException("Fonction de masse : points d'inflexion non croissants en " + abscisses[k]);
+      }
+      double somme = app[k] + nonApp[k] + nsp[k];
+      if (!(Math.abs(somme - 1) <= TOLERANCE) || !masse(app[k]) || !masse(nonApp[k]) || !masse(nsp[k])) {
+        throw new IllegalArgumentException("Fonction de masse invalide en " + abscisses[k] + " : " 
+            + app[k] + " + " + nonApp[k] + " + " + nsp[k] + " = " + somme);
+      }
+      this.valeurs[3 * k] = app[k];
+      this.valeurs[3 * k + 1] = nonApp[k];
+      this.valeurs[3 * k + 2] = nsp[k];
+    }
+    this.pentes = new double[3 * Math.max(n - 1, 0)];
+    boolean sansSaut = true;
+    for (int k = 0; k < n - 1; k++) {
+      double largeur = abscisses[k + 1] - abscisses[k];
+      sansSaut = sansSaut && largeur > 0;
+      for (int j = 0; j < 3; j++) {
+        this.pentes[3 * k + j] = largeur > 0 ? (this.valeurs[3 * (k + 1) + j] - this.valeurs[3 * k + j]) / largeur : 0;
+      }
+    }
+    this.sansSaut = sansSaut;
+  }
+  
+  private static boolean masse(double m) {
+    return m >= -TOLERANCE && m <= 1 + TOLERANCE;
+  }
+  
+  /**
+   * @return tableau : masse(appC), masse(nonAppC), masse(NSP) pour la distance d
+   */
+  public double[] masses(double d) {
+    double[] tableau = new double[3];
+    masses(d, tableau, 0);
+    return tableau;
+  }
+  
+  /**
+   * Écrit masse(appC), masse(nonAppC), masse(NSP) pour la distance d dans
+   * masses[i], masses[i + 1], masses[i + 2].
+   */
+  public void masses(double d, double[] masses, int i) {
+    int n = this.abscisses.length;
+    if (Double.isNaN(d)) {
+      // Distance inconnue : ignorance totale
+      masses[i] = 0;
+      masses[i + 1] = 0;
+      masses[i + 2] = 1;
+      return;
+    }
+    if (!(d > this.abscisses[0])) {
+      // Avant le premier point
+      masses[i] = this.valeurs[0];
+      masses[i + 1] = this.valeurs[1];
+      masses[i + 2] = this.valeurs[2];
+      return;
+    }
+    int k = 0;
+    while (k < n - 1 && d >= this.abscisses[k + 1]) {
+      k++;
+    }
+    if (k == n - 1) {
+      masses[i] = this.valeurs[3 * k];
+      masses[i + 1] = this.valeurs[3 * k + 1];
+      masses[i + 2] = this.valeurs[3 * k + 2];
+      return;
+    }
+    double dx = d - this.abscisses[k];
+    masses[i] = this.valeurs[3 * k] + this.pentes[3 * k] * dx;
+    masses[i + 1] = this.valeurs[3 * k + 1] + this.pentes[3 * k + 1] * dx;
+    masses[i + 2] = this.valeurs[3 * k + 2] + this.pentes[3 * k + 2] * dx;
+  }
+  
+  /**
+   * Masses des n premières distances : masses[3 * i .. 3 * i + 2] pour distances[i].
+   * 
+   * Pour les fonctions à 2 ou 3 points sans saut (celles des critères), la
+   * boucle est écrite sans branchement : la distance est bornée à chaque
+   * intervalle et les masses sont la somme des pentes par les longueurs
+   * parcourues, ce que le compilateur peut vectoriser. Une distance NaN y est
+   * ramenée au premier point, puis ses masses sont remplacées par (0, 0, 1)
+   * par un mélange pondéré plutôt que par un test.
+   */
+  public void masses(double[] distances, int n, double[] masses) {
+    if (this.sansSaut && this.abscisses.length == 2) {
+      masses2(distances, n, masses);
+    } else if (this.sansSaut && this.abscisses.length == 3) {
+      masses3(distances, n, masses);
+    } else {
+      for (int i = 0; i < n; i++) {
+        masses(distances[i], masses, 3 * i);
+      }
+    }
+  }
+  
+  private void masses2(double[] distances, int n, double[] masses) {
+    double x0 = this.abscisses[0];
+    double x1 = this.abscisses[1];
+    double v0 = this.valeurs[0], v1 = this.valeurs[1], v2 = this.valeurs[2];
+    double p0 = this.pentes[0], p1 = this.pentes[1], p2 = this.pentes[2];
+    for (int i = 0; i < n; i++) {
+      double d = distances[i];
+      // NaN est ramené à x0, puis ses masses à (0, 0, 1) : connu vaut 0
+      double connu = d == d ? 1 : 0;
+      double t = Math.min(d > x0 ? d : x0, x1) - x0;
+      masses[3 * i] = connu * (v0 + p0 * t);
+      masses[3 * i + 1] = connu * (v1 + p1 * t);
+      masses[3 * i + 2] = connu * (v2 + p2 * t) + (1 - connu);
+    }
+  }
+  
+  private void masses3(double[] distances, int n, double[] masses) {
+    double x0 = this.abscisses[0];
+    double x1 = this.abscisses[1];
+    double x2 = this.abscisses[2];
+    double v0 = this.valeurs[0], v1 = this.valeurs[1], v2 = this.valeurs[2];
+    double p0 = this.pentes[0], p1 = this.pentes[1], p2 = this.pentes[2];
+    double q0 = this.pentes[3], q1 = this.pentes[4], q2 = this.pentes[5];
+    for (int i = 0; i < n; i++) {
+      double d = distances[i];
+      double connu = d == d ? 1 : 0;
+      double b = d > x0 ? d : x0;
+      // Longueurs parcourues dans le premier et le second intervalle
+      double t = Math.min(b, x1) - x0;
+      double u = Math.min(Math.max(b, x1), x2) - x1;
+      masses[3 * i] = connu * (v0 + p0 * t + q0 * u);
+      masses[3 * i + 1] = connu * (v1 + p1 * t + q1 * u);
+      masses[3 * i + 2] = connu * (v2 + p2 * t + q2 * u) + (1 - connu);
+    }
+  }
+  
+}
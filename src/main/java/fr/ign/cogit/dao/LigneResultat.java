@@ -22,6 +22,9 @@ import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
  */
 public class LigneResultat {
 
+  /** Distance non disponible (non calculée, ou abandonnée au-delà du seuil) : champ vide à l'export. */
+  public static final double DISTANCE_MANQUANTE = -1;
+
   private int compteurC;
   
   private String idTopoRef;
@@ -0,0 +1,113 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.distance.geom;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
+
+/**
+ * Cache de mesures calculées sur une géométrie (orientation, copie compacte,
+ * ...), indexé par l'identité de l'objet géométrie : une géométrie de référence
+ * comparée à tous ses candidats, ou un candidat présent dans plusieurs listes,
+ * n'est mesuré qu'une fois.
+ * 
+ * Les géométries sont tenues par des références faibles : une entrée disparaît
+ * quand sa géométrie n'est plus utilisée ailleurs, sans limite de taille ni
+ * vidage global. Les mesures ne doivent donc pas garder de référence à leur
+ * géométrie. Les géométries ne doivent pas être modifiées après leur première
+ * mesure. Le cache est partagé entre threads.
+ */
+public abstract class CacheGeometrie<V> {
+  
+  private final ConcurrentHashMap<Cle, V> cache = new ConcurrentHashMap<Cle, V>();
+  
+  /** Clés dont la géométrie a été libérée par le ramasse-miettes. */
+  private final ReferenceQueue<IGeometry> liberees = new ReferenceQueue<IGeometry>();
+  
+  /**
+   * Calcul de la mesure, appelé une fois par géométrie.
+   */
+  protected abstract V calculer(IGeometry geom);
+  
+  /**
+   * @param geom géométrie, non null
+   * @return mesure de la géométrie
+   */
+  public V get(IGeometry geom) {
+    purger();
+    V valeur = this.cache.get(new Cle(geom, null));
+    if (valeur == null) {
+      valeur = calculer(geom);
+      V existante = this.cache.putIfAbsent(new Cle(geom, this.liberees), valeur);
+      if (existante != null) {
+        valeur = existante;
+      }
+    }
+    return valeur;
+  }
+  
+  public int size() {
+    purger();
+    return this.cache.size();
+  }
+  
+  public void clear() {
+    this.cache.clear();
+    purger();
+  }
+  
+  private void purger() {
+    Reference<? extends IGeometry> r;
+    while ((r = this.liberees.poll()) != null) {
+      this.cache.remove(r);
+    }
+  }
+  
+  /**
+   * Clé comparée par identité : l'égalité des géométries GeOxygene est une
+   * égalité géométrique, coûteuse et inutile ici. Une clé libérée n'est plus
+   * égale qu'à elle-même, ce qui permet de la retirer.
+   */
+  private static final class Cle extends WeakReference<IGeometry> {
+    
+    private final int hash;
+    
+    Cle(IGeometry geom, ReferenceQueue<IGeometry> file) {
+      super(geom, file);
+      this.hash = System.identityHashCode(geom);
+    }
+    
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof Cle)) {
+        return false;
+      }
+      IGeometry geom = get();
+      return geom != null && ((Cle) o).get() == geom;
+    }
+  }
+  
+}
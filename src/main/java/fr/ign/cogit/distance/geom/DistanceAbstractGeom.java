@@ -13,7 +13,14 @@
  */
 package fr.ign.cogit.distance.geom;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import fr.ign.cogit.distance.Distance;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IDirectPosition;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IDirectPositionList;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IPolygon;
+import fr.ign.cogit.geoxygene.api.spatial.geomaggr.IAggregate;
 import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
 
 /**
@@ -25,10 +32,168 @@ public class DistanceAbstractGeom implements Distance {
   protected IGeometry geomRef;
   protected IGeometry geomComp;
   
+  /** 
+   * Seuil d'abandon : les distances qui le gèrent peuvent s'arrêter dès que le
+   * résultat est sûrement supérieur à ce seuil, et retournent alors un minorant
+   * de la distance (lui-même supérieur au seuil).
+   */
+  protected double seuilAbandon = Double.POSITIVE_INFINITY;
+  
+  /**
+   * Vrai si le dernier getDistance() n'a pas donné la distance exacte : calcul
+   * abandonné au-delà du seuil (minorant), ou géométrie vide (Float.MAX_VALUE).
+   */
+  protected boolean abandonnee = false;
+  
+  /**
+   * Tolérance de simplification des géométries (0 : pas de simplification).
+   * Les distances qui lisent les géométries par {@link #packee(IGeometry)}
+   * travaillent alors sur les géométries simplifiées.
+   */
+  protected double toleranceSimplification = 0;
+  
+  /** 
+   * Stock des géométries compactes : celui de l'appariement en cours (donné
+   * par AppariementDST), sinon un stock propre à cette distance.
+   */
+  private StockGeometries stock;
+  
   public void setGeom(IGeometry geomRef, IGeometry geomComp) {
     this.geomRef = geomRef;
     this.geomComp = geomComp;    
   }
+  
+  public void setStock(StockGeometries stock) {
+    this.stock = stock;
+  }
+  
+  public StockGeometries getStock() {
+    if (this.stock == null) {
+      this.stock = new StockGeometries();
+    }
+    return this.stock;
+  }
+  
+  public void setSeuilAbandon(double seuilAbandon) {
+    this.seuilAbandon = seuilAbandon;
+  }
+  
+  public double getSeuilAbandon() {
+    return this.seuilAbandon;
+  }
+  
+  /**
+   * @return vrai si la dernière distance calculée n'est pas exacte (minorant
+   *         après abandon, ou absence de géométrie) et ne doit pas être exportée
+   */
+  public boolean isAbandonnee() {
+    return this.abandonnee;
+  }
+  
+  public void setToleranceSimplification(double tolerance) {
+    this.toleranceSimplification = tolerance;
+  }
+  
+  public double getToleranceSimplification() {
+    return this.toleranceSimplification;
+  }
+  
+  /**
+   * Majorant de l'écart, dû à la simplification, entre la distance calculée sur
+   * les géométries courantes et celle sur les géométries d'origine : somme des 
+   * erreurs de simplification des deux géométries.
+   */
+  public double getErreurSimplification() {
+    if (!(this.toleranceSimplification > 0)) {
+      return 0;
+    }
+    return packee(this.geomRef).getErreur() + packee(this.geomComp).getErreur();
+  }
+  
+  /**
+   * Copie des coordonnées dans un tableau de double : x0, y0, x1, y1, ...
+   */
+  protected static double[] coordonnees(IDirectPositionList positions) {
+    double[] xy = new double[2 * positions.size()];
+    for (int i = 0; i < positions.size(); i++) {
+      IDirectPosition p = positions.get(i);
+      xy[2 * i] = p.getX();
+      xy[2 * i + 1] = p.getY();
+    }
+    return xy;
+  }
+  
+  /**
+   * Décomposition d'une géométrie en parties simples : chaque élément d'un
+   * agrégat (multi-ligne, multi-point, multi-polygone), et pour un polygone son
+   * contour extérieur puis ses contours intérieurs.
+   * 
+   * @return les listes de sommets des parties, vide si la géométrie est vide
+   */
+  protected static List<IDirectPositionList> parties(IGeometry geom) {
+    List<IDirectPositionList> parties = new ArrayList<IDirectPositionList>();
+    ajouterParties(geom, parties);
+    return parties;
+  }
+  
+  private static void ajouterParties(IGeometry geom, List<IDirectPositionList> parties) {
+    if (geom == null || geom.isEmpty()) {
+      return;
+    }
+    if (geom instanceof IAggregate<?>) {
+      for (IGeometry element : ((IAggregate<?>) geom).getList()) {
+        ajouterParties(element, parties);
+      }
+    } else if (geom instanceof IPolygon) {
+      IPolygon polygone = (IPolygon) geom;
+      parties.add(polygone.exteriorCoord());
+      for (int i = 0; i < polygone.sizeInterior(); i++) {
+        parties.add(polygone.interiorCoord(i));
+      }
+    } else {
+      parties.add(geom.coord());
+    }
+  }
+  
+  /**
+   * @return coordonnées de chaque partie de la géométrie, voir {@link #parties(IGeometry)}
+   */
+  protected static double[][] coordonneesParties(IGeometry geom) {
+    List<IDirectPositionList> parties = parties(geom);
+    double[][] xy = new double[parties.size()][];
+    for (int i = 0; i < xy.length; i++) {
+      xy[i] = coordonnees(parties.get(i));
+    }
+    return xy;
+  }
+  
+  /**
+   * @return copie compacte de la géométrie, simplifiée à la tolérance courante,
+   *         tirée du stock de la distance
+   */
+  protected GeometriePackee packee(IGeometry geom) {
+    return getStock().simplifiees(this.toleranceSimplification).get(geom);
+  }
+  
+  /**
+   * Carré de la plus petite distance entre un point du rectangle a[ia .. ia + 3]
+   * et un point du rectangle b[ib .. ib + 3] (xmin, ymin, xmax, ymax).
+   */
+  protected static double distance2Min(double[] a, int ia, double[] b, int ib) {
+    double dx = Math.max(0, Math.max(b[ib] - a[ia + 2], a[ia] - b[ib + 2]));
+    double dy = Math.max(0, Math.max(b[ib + 1] - a[ia + 3], a[ia + 1] - b[ib + 3]));
+    return dx * dx + dy * dy;
+  }
+  
+  /**
+   * Carré de la plus grande distance entre un point du rectangle a[ia .. ia + 3]
+   * et un point du rectangle b[ib .. ib + 3].
+   */
+  protected static double distance2Max(double[] a, int ia, double[] b, int ib) {
+    double dx = Math.max(a[ia + 2] - b[ib], b[ib + 2] - a[ia]);
+    double dy = Math.max(a[ia + 3] - b[ib + 1], b[ib + 3] - a[ia + 1]);
+    return dx * dx + dy * dy;
+  }
 
   @Override
   public double getDistance() {
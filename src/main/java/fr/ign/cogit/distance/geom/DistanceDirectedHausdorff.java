@@ -14,30 +14,193 @@
 package fr.ign.cogit.distance.geom;
 
 import fr.ign.cogit.distance.Distance;
-import fr.ign.cogit.geoxygene.api.spatial.coordgeom.ILineString;
-import fr.ign.cogit.geoxygene.contrib.geometrie.Distances;
-import fr.ign.cogit.geoxygene.spatial.coordgeom.GM_LineString;
-import fr.ign.cogit.geoxygene.spatial.geomaggr.GM_MultiCurve;
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
 
 /**
+ * Première composante de la distance de Hausdorff : plus grande distance d'un
+ * sommet de la géométrie de référence à la géométrie de comparaison.
+ * 
+ * Les géométries multiples sont décomposées en parties (lignes, points, contours
+ * de polygones, voir {@link #parties(IGeometry)}). Pour chaque partie de
+ * référence, les parties de comparaison dont le rectangle englobant est plus
+ * loin que le rectangle le plus lointain d'une autre partie sont écartées, et la
+ * partie de référence entière est sautée si elle ne peut pas faire monter le
+ * maximum courant.
+ * 
+ * Calcul par interruption anticipée (Taha et Hanbury, 2015) : les sommets de
+ * référence sont visités dans un ordre pseudo-aléatoire, et la recherche du
+ * segment le plus proche s'arrête dès qu'elle descend sous le maximum courant,
+ * ce sommet ne pouvant plus le faire monter. Pour les lignes de comparaison
+ * longues, les segments sont rangés dans une {@link GrilleSegments}, construite
+ * une fois par géométrie avec sa copie compacte ({@link GeometriePackee}).
+ * 
+ * Dès que le maximum courant dépasse le seuil d'abandon, le calcul s'arrête et
+ * retourne ce maximum, minorant de la distance.
  * 
  * @author M-D Van Damme
  */
 public class DistanceDirectedHausdorff extends DistanceAbstractGeom implements Distance {
-	  
+	
 	@Override
 	public double getDistance() {
-		if (this.geomRef instanceof ILineString && this.geomComp instanceof ILineString) {
-			ILineString geomLigneRef = (ILineString) this.geomRef;
-			ILineString geomLigneComp = (ILineString) this.geomComp;
-			return Distances.premiereComposanteHausdorff(geomLigneRef, geomLigneComp);
-		} else if (this.geomComp instanceof GM_MultiCurve && this.geomRef instanceof ILineString) {
-			GM_LineString geomLigneComp = (GM_LineString)((GM_MultiCurve<?>)this.geomComp).get(0);
-			ILineString geomLigneRef = (ILineString) this.geomRef;
-			return Distances.premiereComposanteHausdorff(geomLigneRef, geomLigneComp);
-		} else {
+		GeometriePackee ref = packee(this.geomRef);
+		GeometriePackee comp = packee(this.geomComp);
+		if (ref.getNbSommets() == 0 || comp.getNbSommets() == 0) {
+			this.abandonnee = true;
 			return Float.MAX_VALUE;
 		}
+		double d = hausdorffOriente(ref, comp, this.seuilAbandon);
+		// Le parcours s'arrête dès que le maximum courant dépasse le seuil
+		this.abandonnee = d > this.seuilAbandon;
+		return d;
+	}
+	
+	/**
+	 * Plus grande distance d'un sommet de a à la polyligne b.
+	 * 
+	 * @param a coordonnées x0, y0, x1, y1, ... des sommets de départ
+	 * @param b coordonnées de la polyligne d'arrivée (au moins un sommet)
+	 * @param borne seuil d'abandon
+	 */
+	public static double hausdorffOriente(double[] a, double[] b, double borne) {
+		return hausdorffOriente(new double[][] { a }, new double[][] { b }, borne);
+	}
+	
+	/**
+	 * Plus grande distance d'un sommet d'une partie de a à la plus proche des
+	 * parties de b.
+	 * 
+	 * @param a coordonnées des parties de départ
+	 * @param b coordonnées des parties d'arrivée, chacune avec au moins un sommet
+	 * @param borne seuil d'abandon
+	 */
+	public static double hausdorffOriente(double[][] a, double[][] b, double borne) {
+		return hausdorffOriente(new GeometriePackee(a, false), new GeometriePackee(b, false), borne);
+	}
+	
+	/**
+	 * Plus grande distance d'un sommet de a à la plus proche des parties de b.
+	 * 
+	 * @param borne seuil d'abandon
+	 */
+	public static double hausdorffOriente(GeometriePackee a, GeometriePackee b, double borne) {
+		double[] xyA = a.getCoordonnees();
+		double[] envA = a.getEnveloppesParties();
+		double[] xyB = b.getCoordonnees();
+		double[] envB = b.getEnveloppesParties();
+		int nbB = b.getNbParties();
+		int[] actives = new int[nbB];
+		double borne2 = borne * borne;
+		double max2 = 0;
+		for (int pa = 0; pa < a.getNbParties(); pa++) {
+			int debut = a.getDebut(pa);
+			int n = a.getFin(pa) - debut;
+			if (n == 0) {
+				continue;
+			}
+			
+			// Parties de b utiles : tout sommet de la partie est plus proche de
+			// la partie j que majorant2, donc les parties plus loin ne servent pas
+			double majorant2 = Double.POSITIVE_INFINITY;
+			for (int j = 0; j < nbB; j++) {
+				majorant2 = Math.min(majorant2, distance2Max(envA, 4 * pa, envB, 4 * j));
+			}
+			if (majorant2 <= max2) {
+				continue;
+			}
+			int nbActives = 0;
+			for (int j = 0; j < nbB; j++) {
+				if (distance2Min(envA, 4 * pa, envB, 4 * j) <= majorant2) {
+					actives[nbActives++] = j;
+				}
+			}
+			
+			int pas = pasPremier(n);
+			int i = 0;
+			for (int k = 0; k < n; k++, i = (i + pas) % n) {
+				double px = xyA[2 * (debut + i)];
+				double py = xyA[2 * (debut + i) + 1];
+				double min2 = Double.POSITIVE_INFINITY;
+				for (int q = 0; q < nbActives && min2 >= max2; q++) {
+					int j = actives[q];
+					if (distance2Point(px, py, envB, 4 * j) >= min2) {
+						continue;
+					}
+					GrilleSegments grille = b.getGrille(j);
+					double d;
+					if (grille != null) {
+						d = grille.distance2(px, py, max2);
+					} else {
+						d = distance2Partie(px, py, xyB, b.getDebut(j), b.getFin(j), max2);
+					}
+					min2 = Math.min(min2, d);
+				}
+				if (min2 > max2) {
+					max2 = min2;
+					if (max2 > borne2) {
+						return Math.sqrt(max2);
+					}
+				}
+			}
+		}
+		return Math.sqrt(max2);
+	}
+	
+	/**
+	 * Carré de la distance du point à la partie formée des sommets debut à
+	 * fin - 1 de xy ; la recherche s'arrête dès qu'une distance au carré
+	 * inférieure à arret2 est trouvée.
+	 */
+	static double distance2Partie(double px, double py, double[] xy, int debut, int fin, double arret2) {
+		if (fin - debut == 1) {
+			double dx = xy[2 * debut] - px;
+			double dy = xy[2 * debut + 1] - py;
+			return dx * dx + dy * dy;
+		}
+		double min2 = Double.POSITIVE_INFINITY;
+		for (int s = debut; s < fin - 1; s++) {
+			double d = GrilleSegments.distance2Segment(px, py, xy, s);
+			if (d < min2) {
+				min2 = d;
+				if (min2 < arret2) {
+					break;
+				}
+			}
+		}
+		return min2;
+	}
+	
+	/**
+	 * Carré de la distance du point au rectangle env[i .. i + 3].
+	 */
+	static double distance2Point(double px, double py, double[] env, int i) {
+		double dx = Math.max(0, Math.max(env[i] - px, px - env[i + 2]));
+		double dy = Math.max(0, Math.max(env[i + 1] - py, py - env[i + 3]));
+		return dx * dx + dy * dy;
+	}
+	
+	/**
+	 * Pas premier avec n, proche de n / nombre d'or : en parcourant les sommets
+	 * de pas en pas, on les visite tous dans un ordre bien mélangé.
+	 */
+	private static int pasPremier(int n) {
+		if (n <= 2) {
+			return 1;
+		}
+		int pas = Math.max(1, (int) (n * 0.618));
+		while (pgcd(pas, n) != 1) {
+			pas++;
+		}
+		return pas;
+	}
+	
+	private static int pgcd(int a, int b) {
+		while (b != 0) {
+			int r = a % b;
+			a = b;
+			b = r;
+		}
+		return a;
 	}
 
 	@Override
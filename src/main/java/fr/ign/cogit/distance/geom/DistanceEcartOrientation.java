@@ -14,89 +14,113 @@
 package fr.ign.cogit.distance.geom;
 
 import fr.ign.cogit.distance.Distance;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IDirectPositionList;
 import fr.ign.cogit.geoxygene.api.spatial.coordgeom.ILineString;
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPosition;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPositionList;
 import fr.ign.cogit.geoxygene.spatial.coordgeom.GM_LineString;
-import fr.ign.cogit.geoxygene.spatial.geomaggr.GM_MultiCurve;
 import fr.ign.cogit.geoxygene.util.algo.JtsUtil;
 import fr.ign.cogit.geoxygene.util.algo.MesureOrientation;
 
 /**
+ * Écart entre les orientations générales de deux géométries linéaires, dans [0, π].
+ * Sans orientation pour l'une des deux (géométrie vide ou réduite à un point),
+ * l'écart est inconnu : NaN, et non un écart maximal qu'un critère pourrait
+ * confondre avec des orientations opposées.
+ * 
+ * Les géométries multiples (multi-lignes, contours de polygones) sont décomposées
+ * en parties ; leur orientation est la moyenne des orientations des parties,
+ * pondérée par leur longueur.
+ * 
+ * L'orientation de chaque géométrie est calculée une seule fois et conservée
+ * dans le stock de géométries de la distance (celui de l'appariement en cours,
+ * voir {@link StockGeometries}) : comparer une référence à ses candidats revient
+ * ensuite à une soustraction. Avec une tolérance de simplification, elle est 
+ * calculée sur la géométrie simplifiée et conservée dans le stock simplifié.
  * 
  * @author M-D Van Damme
  */
 public class DistanceEcartOrientation extends DistanceAbstractGeom implements Distance {
-
+	
 	@Override
 	public double getDistance() {
-		if (this.geomRef instanceof ILineString && this.geomComp instanceof ILineString) {
-
-			ILineString geomLigneRef = (ILineString) this.geomRef;
-			MesureOrientation mesure = new MesureOrientation(geomLigneRef);
-			double mesOrientationRef = mesure.getOrientationGenerale();
-
-			ILineString geomLigneComp = (ILineString) this.geomComp;
-			mesure = new MesureOrientation(geomLigneComp);
-			double mesOrientationComp = mesure.getOrientationGenerale();
-
-			double alpha = mesOrientationRef - mesOrientationComp;
-			System.out.println("alpha 1 = " + alpha);
-			if (alpha < 0) {
-				alpha = alpha + Math.PI;
+		CacheGeometrie<Double> orientations = getStock().simplifiees(this.toleranceSimplification).getOrientations();
+		double mesOrientationRef = orientations.get(this.geomRef);
+		double mesOrientationComp = orientations.get(this.geomComp);
+		if (Double.isNaN(mesOrientationRef) || Double.isNaN(mesOrientationComp)) {
+			return Double.NaN;
+		}
+		
+		double alpha = mesOrientationRef - mesOrientationComp;
+		if (alpha < 0) {
+			alpha = alpha + Math.PI;
+		}
+		if (alpha > Math.PI) {
+			alpha = alpha - Math.PI;
+		}
+		return alpha;
+	}
+	
+	/**
+	 * Orientation générale d'une géométrie, voir {@link #orientation(GeometriePackee)}.
+	 */
+	static double orientation(IGeometry geom, StockGeometries stock) {
+		if (geom instanceof ILineString && geom.coord().size() > 2) {
+			return new MesureOrientation(geom).getOrientationGenerale();
+		}
+		return orientation(stock.get(geom));
+	}
+	
+	/**
+	 * Orientation générale d'une géométrie. Avec plusieurs parties, la moyenne est
+	 * faite sur les angles doublés, les orientations n'étant définies qu'à π près,
+	 * puis ramenée dans [0, π[.
+	 * 
+	 * @return NaN si aucune partie n'a au moins deux sommets
+	 */
+	static double orientation(GeometriePackee packee) {
+		double[] xy = packee.getCoordonnees();
+		double orientation = Double.NaN;
+		double sx = 0;
+		double sy = 0;
+		int nb = 0;
+		for (int i = 0; i < packee.getNbParties(); i++) {
+			if (packee.getFin(i) - packee.getDebut(i) < 2) {
+				continue;
 			}
-			if (alpha > Math.PI) {
-				alpha = alpha - Math.PI;
+			IDirectPositionList partie = new DirectPositionList();
+			for (int k = packee.getDebut(i); k < packee.getFin(i); k++) {
+				partie.add(new DirectPosition(xy[2 * k], xy[2 * k + 1]));
 			}
-
-			return alpha;
-
-		} else if (this.geomComp instanceof GM_MultiCurve) {
-
-			try {
-
-				double mesOrientationRef = 0;
-				ILineString geomLigneRef = (ILineString) this.geomRef;
-				if (geomLigneRef.coord().size() == 2) {
-					// Ligne avec 2 points
-					JtsUtil.orientationLigne(geomLigneRef.coord().get(0), geomLigneRef.coord().get(1));
-				} else {
-					MesureOrientation mesure = new MesureOrientation(geomLigneRef);
-					mesOrientationRef = mesure.getOrientationGenerale();
-				}
-
-				double mesOrientationComp = 0;
-				GM_LineString geomLigneComp = (GM_LineString) ((GM_MultiCurve<?>) this.geomComp).get(0);
-				if (geomLigneComp.coord().size() == 2) {
-					JtsUtil.orientationLigne(geomLigneComp.coord().get(0), geomLigneComp.coord().get(1));
-				} else {
-					MesureOrientation mesure = new MesureOrientation(geomLigneComp);
-					mesOrientationComp = mesure.getOrientationGenerale();
-				}
-
-				double alpha = mesOrientationRef - mesOrientationComp;
-				// System.out.println("alpha 2 = " + alpha);
-				if (alpha < 0) {
-					alpha = alpha + Math.PI;
-				}
-				if (alpha > Math.PI) {
-					alpha = alpha - Math.PI;
-				}
-
-				return alpha;
-
-			} catch (Exception e) {
-				System.out.println("ERROR - geometry is not a LineString.");
-				// e.printStackTrace();
-				return Float.MAX_VALUE;
-			}
-
-		} else {
-			System.out.println(this.geomRef);
-			System.out.println(this.geomComp.getClass());
-			System.out.println("!!!!!!!!!!!!!!!!!!!!!");
-			return Float.MAX_VALUE;
+			orientation = orientation(partie);
+			double longueur = packee.getLongueurPartie(i);
+			sx += longueur * Math.cos(2 * orientation);
+			sy += longueur * Math.sin(2 * orientation);
+			nb++;
+		}
+		if (nb <= 1) {
+			return orientation;
+		}
+		orientation = Math.atan2(sy, sx) / 2;
+		if (orientation < 0) {
+			orientation = orientation + Math.PI;
 		}
+		return orientation;
 	}
-
+	
+	/**
+	 * Orientation d'une partie d'au moins deux sommets. Pour deux sommets, c'est
+	 * celle du segment, ramenée dans [0, π[.
+	 */
+	private static double orientation(IDirectPositionList partie) {
+		if (partie.size() == 2) {
+			double orientation = JtsUtil.orientationLigne(partie.get(0), partie.get(1)) % Math.PI;
+			return orientation < 0 ? orientation + Math.PI : orientation;
+		}
+		return new MesureOrientation(new GM_LineString(partie)).getOrientationGenerale();
+	}
+	
 	@Override
 	public String getNom() {
 		return "EcartOrientation";
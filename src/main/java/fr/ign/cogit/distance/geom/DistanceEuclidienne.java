@@ -14,8 +14,19 @@
 package fr.ign.cogit.distance.geom;
 
 import fr.ign.cogit.distance.Distance;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IDirectPosition;
+import fr.ign.cogit.geoxygene.api.spatial.geomprim.IPoint;
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
 
 /**
+ * Distance euclidienne minimale entre les deux géométries.
+ * 
+ * Lorsque l'une des géométries est un point et l'autre un point, une ligne ou 
+ * un agrégat de points et de lignes, la distance est calculée directement sur 
+ * les coordonnées compactes ({@link GeometriePackee}), sans conversion JTS. 
+ * Dans les autres cas, si un seuil d'abandon est fixé et que les rectangles 
+ * englobants sont déjà plus éloignés, la distance entre les rectangles est 
+ * retournée (minorant) ; sinon on passe par le calcul générique de GeOxygene.
  * 
  * @author M-D Van Damme
  */
@@ -23,7 +34,57 @@ public class DistanceEuclidienne extends DistanceAbstractGeom implements Distanc
   
   @Override
   public double getDistance() {
-    return (float) this.geomComp.distance(this.geomRef);
+    this.abandonnee = false;
+    double d2 = Double.NaN;
+    if (this.geomRef instanceof IPoint) {
+      IDirectPosition p = ((IPoint) this.geomRef).getPosition();
+      d2 = distance2(p.getX(), p.getY(), this.geomComp);
+    } else if (this.geomComp instanceof IPoint) {
+      IDirectPosition p = ((IPoint) this.geomComp).getPosition();
+      d2 = distance2(p.getX(), p.getY(), this.geomRef);
+    }
+    if (d2 < Double.POSITIVE_INFINITY) {
+      return Math.sqrt(d2);
+    }
+    
+    if (this.seuilAbandon < Double.POSITIVE_INFINITY) {
+      double minorant2 = distance2Min(packee(this.geomRef).getEnveloppe(), 0, packee(this.geomComp).getEnveloppe(), 0);
+      if (minorant2 > this.seuilAbandon * this.seuilAbandon) {
+        this.abandonnee = true;
+        return Math.sqrt(minorant2);
+      }
+    }
+    return this.geomComp.distance(this.geomRef);
+  }
+  
+  /**
+   * Carré de la distance du point (px, py) à un point, une ligne ou un agrégat 
+   * de points et de lignes. Les parties dont le rectangle englobant est plus loin
+   * que la meilleure distance courante ne sont pas parcourues.
+   * 
+   * @return NaN pour une géométrie surfacique
+   */
+  private double distance2(double px, double py, IGeometry geom) {
+    if (geom instanceof IPoint) {
+      IDirectPosition q = ((IPoint) geom).getPosition();
+      double dx = q.getX() - px;
+      double dy = q.getY() - py;
+      return dx * dx + dy * dy;
+    }
+    GeometriePackee packee = packee(geom);
+    if (packee.isSurfacique()) {
+      return Double.NaN;
+    }
+    double[] xy = packee.getCoordonnees();
+    double[] env = packee.getEnveloppesParties();
+    double min2 = Double.POSITIVE_INFINITY;
+    for (int j = 0; j < packee.getNbParties(); j++) {
+      if (packee.getFin(j) > packee.getDebut(j)
+          && DistanceDirectedHausdorff.distance2Point(px, py, env, 4 * j) < min2) {
+        min2 = Math.min(min2, DistanceDirectedHausdorff.distance2Partie(px, py, xy, packee.getDebut(j), packee.getFin(j), 0));
+      }
+    }
+    return min2;
   }
   
   @Override
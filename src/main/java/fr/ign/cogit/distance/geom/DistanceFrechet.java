@@ -13,6 +13,152 @@
  */
 package fr.ign.cogit.distance.geom;
 
-public class DistanceFrechet {
+import fr.ign.cogit.distance.Distance;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.ILineString;
+import fr.ign.cogit.geoxygene.spatial.geomaggr.GM_MultiCurve;
 
+/**
+ * Distance de Fréchet discrète entre deux lignes (Eiter et Mannila, 1994).
+ * 
+ * La programmation dynamique ne garde qu'une ligne de la matrice, de la taille de
+ * la plus courte des deux polylignes. Si un seuil d'abandon est fixé (cf.
+ * CritereGeom : seuilT2), le calcul s'arrête dès qu'une ligne entière de la
+ * matrice dépasse ce seuil, car tout couplage passe par chaque ligne.
+ */
+public class DistanceFrechet extends DistanceAbstractGeom implements Distance {
+  
+  @Override
+  public double getDistance() {
+    this.abandonnee = true;
+    if (!estLigne(this.geomRef) || !estLigne(this.geomComp)) {
+      return Float.MAX_VALUE;
+    }
+    // Lignes vides, ou multi-lignes dont toutes les parties sont vides
+    GeometriePackee ref = packee(this.geomRef);
+    GeometriePackee comp = packee(this.geomComp);
+    if (ref.getNbParties() == 0 || comp.getNbParties() == 0) {
+      return Float.MAX_VALUE;
+    }
+    boolean[] abandon = new boolean[1];
+    double d = distanceFrechet(ref.getCoordonnees(), ref.getDebut(0), ref.getFin(0), 
+        comp.getCoordonnees(), comp.getDebut(0), comp.getFin(0), this.seuilAbandon, abandon);
+    this.abandonnee = abandon[0];
+    return d;
+  }
+  
+  /**
+   * @return vrai pour une ligne, ou une multi-ligne dont la première partie est une ligne
+   */
+  private static boolean estLigne(Object geom) {
+    return geom instanceof ILineString
+        || (geom instanceof GM_MultiCurve && ((GM_MultiCurve<?>) geom).size() > 0
+            && ((GM_MultiCurve<?>) geom).get(0) instanceof ILineString);
+  }
+  
+  /**
+   * Distance de Fréchet discrète exacte.
+   * 
+   * @param a coordonnées de la première ligne : x0, y0, x1, y1, ...
+   * @param b coordonnées de la seconde ligne
+   */
+  public static double distanceFrechet(double[] a, double[] b) {
+    return distanceFrechet(a, b, Double.POSITIVE_INFINITY);
+  }
+  
+  /**
+   * Distance de Fréchet discrète, avec abandon.
+   * 
+   * @param a coordonnées de la première ligne : x0, y0, x1, y1, ...
+   * @param b coordonnées de la seconde ligne
+   * @param borne seuil d'abandon
+   * @return la distance exacte si elle est inférieure ou égale à borne, sinon un
+   *         minorant de la distance strictement supérieur à borne
+   */
+  public static double distanceFrechet(double[] a, double[] b, double borne) {
+    return distanceFrechet(a, 0, a.length / 2, b, 0, b.length / 2, borne, null);
+  }
+  
+  /**
+   * Distance de Fréchet discrète entre les sommets debutA à finA - 1 de a et
+   * debutB à finB - 1 de b (parties d'une géométrie packée, sans copie).
+   * 
+   * @param abandon si non null, abandon[0] indique si le calcul s'est arrêté
+   *        avant la fin (la distance retournée est alors un minorant)
+   */
+  static double distanceFrechet(double[] a, int debutA, int finA, double[] b, int debutB, int finB, double borne, 
+      boolean[] abandon) {
+    if (finA <= debutA || finB <= debutB) {
+      return Float.MAX_VALUE;
+    }
+    // La ligne de la matrice est indexée par la plus courte des deux polylignes
+    if (finB - debutB > finA - debutA) {
+      double[] t = a;
+      a = b;
+      b = t;
+      int d = debutA;
+      debutA = debutB;
+      debutB = d;
+      int f = finA;
+      finA = finB;
+      finB = f;
+    }
+    int n = finA - debutA;
+    int m = finB - debutB;
+    double borne2 = borne * borne;
+    
+    // Les extrémités sont toujours couplées
+    double minorant = Math.max(dist2(a, debutA, b, debutB), dist2(a, finA - 1, b, finB - 1));
+    if (minorant > borne2) {
+      return abandonner(abandon, minorant);
+    }
+    
+    double[] ligne = new double[m];
+    ligne[0] = dist2(a, debutA, b, debutB);
+    double minLigne = ligne[0];
+    for (int j = 1; j < m; j++) {
+      ligne[j] = Math.max(ligne[j - 1], dist2(a, debutA, b, debutB + j));
+      minLigne = Math.min(minLigne, ligne[j]);
+    }
+    if (minLigne > borne2) {
+      return abandonner(abandon, minLigne);
+    }
+    
+    for (int i = 1; i < n; i++) {
+      double diag = ligne[0];
+      ligne[0] = Math.max(ligne[0], dist2(a, debutA + i, b, debutB));
+      minLigne = ligne[0];
+      for (int j = 1; j < m; j++) {
+        double haut = ligne[j];
+        double prec = Math.min(Math.min(diag, haut), ligne[j - 1]);
+        ligne[j] = Math.max(prec, dist2(a, debutA + i, b, debutB + j));
+        diag = haut;
+        if (ligne[j] < minLigne) {
+          minLigne = ligne[j];
+        }
+      }
+      if (minLigne > borne2) {
+        return abandonner(abandon, minLigne);
+      }
+    }
+    return Math.sqrt(ligne[m - 1]);
+  }
+  
+  /** @return le minorant de la distance, abandon noté s'il est demandé */
+  private static double abandonner(boolean[] abandon, double minorant2) {
+    if (abandon != null) {
+      abandon[0] = true;
+    }
+    return Math.sqrt(minorant2);
+  }
+  
+  private static double dist2(double[] a, int i, double[] b, int j) {
+    double dx = a[2 * i] - b[2 * j];
+    double dy = a[2 * i + 1] - b[2 * j + 1];
+    return dx * dx + dy * dy;
+  }
+  
+  @Override
+  public String getNom() {
+    return "Frechet";
+  }
 }
@@ -0,0 +1,98 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.distance.geom;
+
+import fr.ign.cogit.distance.Distance;
+import fr.ign.cogit.index.IndexVoisinage;
+import fr.ign.cogit.index.IndexVoisinage.Voisinage;
+
+/**
+ * Distance entre les voisinages de deux objets (cf. IndexVoisinage), dans [0, 1] :
+ * moyenne des écarts sur le nombre de voisins, sur leurs natures (intersection
+ * des histogrammes) et sur leurs directions (demi-somme des écarts entre les
+ * répartitions par secteur). Le terme des natures n'est pris en compte que si
+ * les deux voisinages en ont.
+ * 
+ * Retourne NaN si l'un des objets n'est pas indexé ou si les deux voisinages 
+ * sont vides : le voisinage ne dit alors rien.
+ */
+public class DistanceVoisinage extends DistanceAbstractGeom implements Distance {
+  
+  private final IndexVoisinage index;
+  
+  public DistanceVoisinage(IndexVoisinage index) {
+    this.index = index;
+  }
+  
+  @Override
+  public double getDistance() {
+    Voisinage vRef = this.index.getVoisinage(this.geomRef);
+    Voisinage vComp = this.index.getVoisinage(this.geomComp);
+    if (vRef == null || vComp == null) {
+      return Double.NaN;
+    }
+    int n1 = vRef.getNbVoisins();
+    int n2 = vComp.getNbVoisins();
+    if (n1 == 0 && n2 == 0) {
+      return Double.NaN;
+    }
+    if (n1 == 0 || n2 == 0) {
+      return 1;
+    }
+    
+    double dNombre = Math.abs(n1 - n2) / (double) Math.max(n1, n2);
+    
+    double dDirection = 0;
+    for (int s = 0; s < IndexVoisinage.NB_SECTEURS; s++) {
+      dDirection += Math.abs(vRef.getNbVoisins(s) / (double) n1 - vComp.getNbVoisins(s) / (double) n2);
+    }
+    dDirection = dDirection / 2;
+    
+    String[] natRef = vRef.getNatures();
+    String[] natComp = vComp.getNatures();
+    if (natRef.length == 0 || natComp.length == 0) {
+      return (dNombre + dDirection) / 2;
+    }
+    double dNature = 1 - communs(natRef, natComp) / (double) Math.max(natRef.length, natComp.length);
+    return (dNombre + dNature + dDirection) / 3;
+  }
+  
+  /**
+   * Taille de l'intersection de deux listes triées, avec répétitions.
+   */
+  private static int communs(String[] a, String[] b) {
+    int i = 0;
+    int j = 0;
+    int n = 0;
+    while (i < a.length && j < b.length) {
+      int c = a[i].compareTo(b[j]);
+      if (c == 0) {
+        n++;
+        i++;
+        j++;
+      } else if (c < 0) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return n;
+  }
+  
+  @Override
+  public String getNom() {
+    return "Voisinage";
+  }
+  
+}
@@ -0,0 +1,324 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.distance.geom;
+
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IPolygon;
+import fr.ign.cogit.geoxygene.api.spatial.geomaggr.IAggregate;
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
+
+/**
+ * Copie compacte d'une géométrie pour les calculs de distance : les sommets de
+ * toutes les parties (cf. {@link DistanceAbstractGeom#parties(IGeometry)}) sont
+ * rangés à la suite dans un seul tableau x0, y0, x1, y1, ..., avec les
+ * rectangles englobants, longueurs et centroïde calculés une fois pour toutes.
+ * 
+ * Les tableaux retournés par les accesseurs sont partagés et ne doivent pas être
+ * modifiés. Les grilles de segments des parties longues sont construites à la
+ * première demande.
+ * 
+ * Une géométrie packée peut être simplifiée ({@link #simplifier(double)}) : elle
+ * garde alors l'écart maximal entre un sommet supprimé et la ligne simplifiée.
+ */
+public final class GeometriePackee {
+  
+  /** Coordonnées de tous les sommets. */
+  private final double[] xy;
+  
+  /** La partie i va du sommet debuts[i] au sommet debuts[i + 1] - 1. */
+  private final int[] debuts;
+  
+  /** xmin, ymin, xmax, ymax de chaque partie à la suite. */
+  private final double[] enveloppes;
+  
+  /** xmin, ymin, xmax, ymax de la géométrie. */
+  private final double[] enveloppe;
+  
+  private final double[] longueurs;
+  private final double longueur;
+  private final double centroideX;
+  private final double centroideY;
+  
+  /** Vrai si les parties sont des contours de polygones. */
+  private final boolean surfacique;
+  
+  /** Écart maximal à la géométrie d'origine, 0 si elle n'a pas été simplifiée. */
+  private double erreur = 0;
+  
+  private volatile GrilleSegments[] grilles;
+  
+  public static GeometriePackee creer(IGeometry geom) {
+    return new GeometriePackee(DistanceAbstractGeom.coordonneesParties(geom), estSurfacique(geom));
+  }
+  
+  /**
+   * @param parties coordonnées de chaque partie
+   * @param surfacique vrai si les parties sont des contours de polygones
+   */
+  public GeometriePackee(double[][] parties, boolean surfacique) {
+    this.surfacique = surfacique;
+    int nb = parties.length;
+    this.debuts = new int[nb + 1];
+    for (int i = 0; i < nb; i++) {
+      this.debuts[i + 1] = this.debuts[i] + parties[i].length / 2;
+    }
+    this.xy = new double[2 * this.debuts[nb]];
+    this.enveloppes = new double[4 * nb];
+    this.enveloppe = new double[] { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, 
+        Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+    this.longueurs = new double[nb];
+    
+    double l = 0;
+    double sx = 0;
+    double sy = 0;
+    for (int i = 0; i < nb; i++) {
+      double[] p = parties[i];
+      System.arraycopy(p, 0, this.xy, 2 * this.debuts[i], p.length);
+      double xmin = Double.POSITIVE_INFINITY, ymin = Double.POSITIVE_INFINITY;
+      double xmax = Double.NEGATIVE_INFINITY, ymax = Double.NEGATIVE_INFINITY;
+      double li = 0;
+      for (int k = 0; k < p.length; k += 2) {
+        xmin = Math.min(xmin, p[k]);
+        ymin = Math.min(ymin, p[k + 1]);
+        xmax = Math.max(xmax, p[k]);
+        ymax = Math.max(ymax, p[k + 1]);
+        if (k > 0) {
+          double dx = p[k] - p[k - 2];
+          double dy = p[k + 1] - p[k - 1];
+          double ls = Math.sqrt(dx * dx + dy * dy);
+          li += ls;
+          sx += ls * (p[k] + p[k - 2]) / 2;
+          sy += ls * (p[k + 1] + p[k - 1]) / 2;
+        }
+      }
+      this.enveloppes[4 * i] = xmin;
+      this.enveloppes[4 * i + 1] = ymin;
+      this.enveloppes[4 * i + 2] = xmax;
+      this.enveloppes[4 * i + 3] = ymax;
+      this.enveloppe[0] = Math.min(this.enveloppe[0], xmin);
+      this.enveloppe[1] = Math.min(this.enveloppe[1], ymin);
+      this.enveloppe[2] = Math.max(this.enveloppe[2], xmax);
+      this.enveloppe[3] = Math.max(this.enveloppe[3], ymax);
+      this.longueurs[i] = li;
+      l += li;
+    }
+    this.longueur = l;
+    
+    // Centroïde des lignes, ou des sommets pour des points
+    if (l > 0) {
+      this.centroideX = sx / l;
+      this.centroideY = sy / l;
+    } else {
+      int n = this.xy.length / 2;
+      sx = 0;
+      sy = 0;
+      for (int k = 0; k < this.xy.length; k += 2) {
+        sx += this.xy[k];
+        sy += this.xy[k + 1];
+      }
+      this.centroideX = n > 0 ? sx / n : Double.NaN;
+      this.centroideY = n > 0 ? sy / n : Double.NaN;
+    }
+  }
+  
+  private static boolean estSurfacique(IGeometry geom) {
+    if (geom instanceof IPolygon) {
+      return true;
+    }
+    if (geom instanceof IAggregate<?>) {
+      for (IGeometry element : ((IAggregate<?>) geom).getList()) {
+        if (estSurfacique(element)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+  
+  public double[] getCoordonnees() {
+    return this.xy;
+  }
+  
+  public int getNbParties() {
+    return this.debuts.length - 1;
+  }
+  
+  public int getNbSommets() {
+    return this.xy.length / 2;
+  }
+  
+  /** @return premier sommet de la partie i */
+  public int getDebut(int i) {
+    return this.debuts[i];
+  }
+  
+  /** @return sommet qui suit le dernier sommet de la partie i */
+  public int getFin(int i) {
+    return this.debuts[i + 1];
+  }
+  
+  /**
+   * @return coordonnées de la partie i (le tableau partagé s'il n'y a qu'une partie)
+   */
+  public double[] partie(int i) {
+    if (getNbParties() == 1) {
+      return this.xy;
+    }
+    double[] p = new double[2 * (this.debuts[i + 1] - this.debuts[i])];
+    System.arraycopy(this.xy, 2 * this.debuts[i], p, 0, p.length);
+    return p;
+  }
+  
+  /** @return xmin, ymin, xmax, ymax */
+  public double[] getEnveloppe() {
+    return this.enveloppe;
+  }
+  
+  /** @return xmin, ymin, xmax, ymax de chaque partie à la suite (4 valeurs par partie) */
+  public double[] getEnveloppesParties() {
+    return this.enveloppes;
+  }
+  
+  public double getLongueur() {
+    return this.longueur;
+  }
+  
+  public double getLongueurPartie(int i) {
+    return this.longueurs[i];
+  }
+  
+  public double getCentroideX() {
+    return this.centroideX;
+  }
+  
+  public double getCentroideY() {
+    return this.centroideY;
+  }
+  
+  public boolean isSurfacique() {
+    return this.surfacique;
+  }
+  
+  /**
+   * @return distance maximale entre un sommet d'origine et la géométrie
+   *         simplifiée, 0 pour une géométrie non simplifiée
+   */
+  public double getErreur() {
+    return this.erreur;
+  }
+  
+  /**
+   * Simplification de Douglas-Peucker de chaque partie : les extrémités de
+   * chaque partie sont conservées, et tout sommet supprimé est à moins de
+   * tolérance de la partie simplifiée.
+   * 
+   * @return la géométrie simplifiée, this si aucun sommet n'est supprimé
+   */
+  public GeometriePackee simplifier(double tolerance) {
+    int nb = getNbParties();
+    boolean[] garde = new boolean[getNbSommets()];
+    int[] pile = new int[2 * Math.max(getNbSommets(), 1)];
+    double tolerance2 = tolerance * tolerance;
+    double erreur2 = 0;
+    int nbGardes = 0;
+    for (int i = 0; i < nb; i++) {
+      int debut = this.debuts[i];
+      int fin = this.debuts[i + 1] - 1;
+      if (fin < debut) {
+        continue;
+      }
+      garde[debut] = true;
+      garde[fin] = true;
+      int sommet = 0;
+      if (fin > debut + 1) {
+        pile[sommet++] = debut;
+        pile[sommet++] = fin;
+      }
+      while (sommet > 0) {
+        int b = pile[--sommet];
+        int a = pile[--sommet];
+        double max2 = -1;
+        int loin = -1;
+        for (int k = a + 1; k < b; k++) {
+          double d2 = GrilleSegments.distance2Segment(this.xy[2 * k], this.xy[2 * k + 1], 
+              this.xy[2 * a], this.xy[2 * a + 1], this.xy[2 * b], this.xy[2 * b + 1]);
+          if (d2 > max2) {
+            max2 = d2;
+            loin = k;
+          }
+        }
+        if (max2 > tolerance2) {
+          garde[loin] = true;
+          if (loin > a + 1) {
+            pile[sommet++] = a;
+            pile[sommet++] = loin;
+          }
+          if (b > loin + 1) {
+            pile[sommet++] = loin;
+            pile[sommet++] = b;
+          }
+        } else {
+          erreur2 = Math.max(erreur2, max2);
+        }
+      }
+    }
+    for (boolean g : garde) {
+      if (g) {
+        nbGardes++;
+      }
+    }
+    if (nbGardes == getNbSommets()) {
+      return this;
+    }
+    
+    double[][] parties = new double[nb][];
+    for (int i = 0; i < nb; i++) {
+      int n = 0;
+      for (int k = this.debuts[i]; k < this.debuts[i + 1]; k++) {
+        if (garde[k]) {
+          n++;
+        }
+      }
+      parties[i] = new double[2 * n];
+      n = 0;
+      for (int k = this.debuts[i]; k < this.debuts[i + 1]; k++) {
+        if (garde[k]) {
+          parties[i][n++] = this.xy[2 * k];
+          parties[i][n++] = this.xy[2 * k + 1];
+        }
+      }
+    }
+    GeometriePackee simplifiee = new GeometriePackee(parties, this.surfacique);
+    simplifiee.erreur = this.erreur + Math.sqrt(erreur2);
+    return simplifiee;
+  }
+  
+  /**
+   * @return grille sur les segments de la partie i, null si elle est trop courte
+   *         pour en avoir besoin
+   */
+  public GrilleSegments getGrille(int i) {
+    GrilleSegments[] g = this.grilles;
+    if (g == null) {
+      g = new GrilleSegments[getNbParties()];
+      for (int j = 0; j < g.length; j++) {
+        if (this.debuts[j + 1] - this.debuts[j] > GrilleSegments.NB_SEGMENTS_MIN) {
+          g[j] = new GrilleSegments(this.xy, this.debuts[j], this.debuts[j + 1]);
+        }
+      }
+      this.grilles = g;
+    }
+    return g[i];
+  }
+  
+}
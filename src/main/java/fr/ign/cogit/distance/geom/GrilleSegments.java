@@ -0,0 +1,202 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.distance.geom;
+
+/**
+ * Grille régulière sur les segments d'une polyligne, pour la recherche du
+ * segment le plus proche d'un point sans parcourir toute la ligne.
+ * 
+ * Chaque segment est rangé dans toutes les cellules que touche son rectangle
+ * englobant (rangement compact : un tableau de débuts de cellules et un tableau
+ * d'indices de segments). La recherche parcourt les cellules par anneaux
+ * concentriques autour du point, et s'arrête dès que l'anneau suivant est plus
+ * loin que le meilleur segment trouvé.
+ * 
+ * La grille est immuable et peut être partagée entre threads.
+ */
+public final class GrilleSegments {
+  
+  /** En dessous de ce nombre de segments, le parcours exhaustif est plus rapide. */
+  public static final int NB_SEGMENTS_MIN = 32;
+  
+  /** Coordonnées : x0, y0, x1, y1, ... */
+  private final double[] xy;
+  
+  /** Premier sommet de la polyligne dans xy : le segment s va du sommet premier + s au suivant. */
+  private final int premier;
+  
+  private final double minX;
+  private final double minY;
+  private final double taille;
+  private final int nx;
+  private final int ny;
+  
+  /** Segments de la cellule c : segments[debuts[c]] .. segments[debuts[c + 1] - 1]. */
+  private final int[] debuts;
+  private final int[] segments;
+  
+  /**
+   * @param xy coordonnées de la polyligne (au moins 2 sommets)
+   */
+  public GrilleSegments(double[] xy) {
+    this(xy, 0, xy.length / 2);
+  }
+  
+  /**
+   * Grille sur la polyligne formée des sommets debut à fin - 1 de xy (au moins 2).
+   */
+  public GrilleSegments(double[] xy, int debut, int fin) {
+    this.xy = xy;
+    this.premier = debut;
+    int nbSegments = fin - debut - 1;
+    
+    double xmin = Double.POSITIVE_INFINITY, ymin = Double.POSITIVE_INFINITY;
+    double xmax = Double.NEGATIVE_INFINITY, ymax = Double.NEGATIVE_INFINITY;
+    for (int i = 2 * debut; i < 2 * fin; i += 2) {
+      xmin = Math.min(xmin, xy[i]);
+      xmax = Math.max(xmax, xy[i]);
+      ymin = Math.min(ymin, xy[i + 1]);
+      ymax = Math.max(ymax, xy[i + 1]);
+    }
+    double w = xmax - xmin;
+    double h = ymax - ymin;
+    
+    // Environ une cellule par segment
+    double t = Math.sqrt(w * h / Math.max(nbSegments, 1));
+    if (!(t > 0) || t * Math.max(nbSegments, 1) < Math.max(w, h)) {
+      t = Math.max(w, h) / Math.max(nbSegments, 1);
+    }
+    if (!(t > 0)) {
+      t = 1;
+    }
+    this.minX = xmin;
+    this.minY = ymin;
+    this.taille = t;
+    this.nx = Math.max(1, (int) Math.ceil(w / t));
+    this.ny = Math.max(1, (int) Math.ceil(h / t));
+    
+    // Comptage, puis rangement
+    int[] compte = new int[nx * ny + 1];
+    for (int s = 0, i = 2 * debut; s < nbSegments; s++, i += 2) {
+      int x0 = cellX(Math.min(xy[i], xy[i + 2]));
+      int x1 = cellX(Math.max(xy[i], xy[i + 2]));
+      int y0 = cellY(Math.min(xy[i + 1], xy[i + 3]));
+      int y1 = cellY(Math.max(xy[i + 1], xy[i + 3]));
+      for (int cy = y0; cy <= y1; cy++) {
+        for (int cx = x0; cx <= x1; cx++) {
+          compte[cy * nx + cx + 1]++;
+        }
+      }
+    }
+    for (int c = 0; c < nx * ny; c++) {
+      compte[c + 1] += compte[c];
+    }
+    this.debuts = compte.clone();
+    this.segments = new int[compte[nx * ny]];
+    for (int s = 0, i = 2 * debut; s < nbSegments; s++, i += 2) {
+      int x0 = cellX(Math.min(xy[i], xy[i + 2]));
+      int x1 = cellX(Math.max(xy[i], xy[i + 2]));
+      int y0 = cellY(Math.min(xy[i + 1], xy[i + 3]));
+      int y1 = cellY(Math.max(xy[i + 1], xy[i + 3]));
+      for (int cy = y0; cy <= y1; cy++) {
+        for (int cx = x0; cx <= x1; cx++) {
+          this.segments[compte[cy * nx + cx]++] = s;
+        }
+      }
+    }
+  }
+  
+  private int cellX(double x) {
+    int c = (int) ((x - minX) / taille);
+    return c < 0 ? 0 : (c >= nx ? nx - 1 : c);
+  }
+  
+  private int cellY(double y) {
+    int c = (int) ((y - minY) / taille);
+    return c < 0 ? 0 : (c >= ny ? ny - 1 : c);
+  }
+  
+  /**
+   * Carré de la distance du point (px, py) à la polyligne.
+   * 
+   * @param arret2 la recherche s'arrête dès qu'un segment à une distance au
+   *          carré inférieure à arret2 est trouvé (0 pour une recherche exacte)
+   * @return le carré de la distance, ou une valeur inférieure à arret2 en cas
+   *         d'arrêt anticipé
+   */
+  public double distance2(double px, double py, double arret2) {
+    int cx = cellX(px);
+    int cy = cellY(py);
+    double meilleur = Double.POSITIVE_INFINITY;
+    int rmax = Math.max(nx, ny);
+    for (int r = 0; r <= rmax; r++) {
+      if (r > 0) {
+        // Toute cellule de l'anneau r est à au moins (r - 1) * taille du point
+        double minorant = (r - 1) * taille;
+        if (minorant * minorant >= meilleur) {
+          break;
+        }
+      }
+      for (int y = cy - r; y <= cy + r; y++) {
+        if (y < 0 || y >= ny) {
+          continue;
+        }
+        boolean bord = (y == cy - r || y == cy + r);
+        int pas = bord ? 1 : 2 * r;
+        for (int x = cx - r; x <= cx + r; x += Math.max(pas, 1)) {
+          if (x < 0 || x >= nx) {
+            continue;
+          }
+          int c = y * nx + x;
+          for (int k = debuts[c]; k < debuts[c + 1]; k++) {
+            double d = distance2Segment(px, py, xy, premier + segments[k]);
+            if (d < meilleur) {
+              meilleur = d;
+              if (meilleur < arret2) {
+                return meilleur;
+              }
+            }
+          }
+        }
+      }
+    }
+    return meilleur;
+  }
+  
+  /**
+   * Carré de la distance du point (px, py) au segment allant du sommet s au
+   * sommet s + 1 de xy.
+   */
+  static double distance2Segment(double px, double py, double[] xy, int s) {
+    return distance2Segment(px, py, xy[2 * s], xy[2 * s + 1], xy[2 * s + 2], xy[2 * s + 3]);
+  }
+  
+  /**
+   * Carré de la distance du point (px, py) au segment (x1, y1) - (x2, y2).
+   */
+  static double distance2Segment(double px, double py, double x1, double y1, double x2, double y2) {
+    double dx = x2 - x1;
+    double dy = y2 - y1;
+    double l2 = dx * dx + dy * dy;
+    double t = 0;
+    if (l2 > 0) {
+      t = ((px - x1) * dx + (py - y1) * dy) / l2;
+      t = t < 0 ? 0 : (t > 1 ? 1 : t);
+    }
+    double ex = x1 + t * dx - px;
+    double ey = y1 + t * dy - py;
+    return ex * ex + ey * ey;
+  }
+  
+}
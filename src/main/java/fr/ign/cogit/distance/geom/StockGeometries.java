@@ -0,0 +1,142 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.distance.geom;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import fr.ign.cogit.geoxygene.api.feature.IFeature;
+import fr.ign.cogit.geoxygene.api.feature.IPopulation;
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
+
+/**
+ * Stock des géométries compactes ({@link GeometriePackee}) utilisées par les
+ * distances géométriques. Chaque géométrie n'est copiée qu'une fois, à la
+ * première distance qui la demande ou au chargement d'une population avant
+ * l'appariement.
+ * 
+ * Un stock appartient à un appariement : AppariementDST le crée, le donne à
+ * ses distances géométriques et le vide à la fin ({@link #clear()}). Une
+ * distance utilisée seule a son propre stock. Les géométries qui ne sont plus
+ * utilisées sont libérées au fil de l'eau (voir {@link CacheGeometrie}).
+ * 
+ * Le stock garde aussi les géométries simplifiées à une tolérance donnée
+ * ({@link #simplifiees(double)}) : chaque géométrie n'est alors simplifiée
+ * qu'une fois par tolérance. Chaque stock tient enfin les orientations
+ * générales de ses géométries, pour DistanceEcartOrientation.
+ */
+public class StockGeometries extends CacheGeometrie<GeometriePackee> {
+  
+  private final double tolerance;
+  
+  /** Stock des géométries d'origine, d'où sont tirées les simplifiées. */
+  private final StockGeometries origine;
+  
+  /** Stocks des géométries simplifiées, par tolérance (dans le stock d'origine seulement). */
+  private final ConcurrentHashMap<Double, StockGeometries> simplifiees;
+  
+  /** Orientation générale de chaque géométrie (NaN si elle n'en a pas). */
+  private final CacheGeometrie<Double> orientations = new CacheGeometrie<Double>() {
+    @Override
+    protected Double calculer(IGeometry geom) {
+      if (tolerance > 0) {
+        return DistanceEcartOrientation.orientation(StockGeometries.this.get(geom));
+      }
+      return DistanceEcartOrientation.orientation(geom, StockGeometries.this);
+    }
+  };
+  
+  /**
+   * Stock vide, des géométries d'origine.
+   */
+  public StockGeometries() {
+    this.tolerance = 0;
+    this.origine = this;
+    this.simplifiees = new ConcurrentHashMap<Double, StockGeometries>();
+  }
+  
+  private StockGeometries(StockGeometries origine, double tolerance) {
+    this.tolerance = tolerance;
+    this.origine = origine;
+    this.simplifiees = null;
+  }
+  
+  /**
+   * @return le stock des géométries simplifiées à cette tolérance, tenu par ce
+   *         stock ; le stock d'origine si elle est nulle
+   */
+  public StockGeometries simplifiees(double tolerance) {
+    if (!(tolerance > 0)) {
+      return this.origine;
+    }
+    if (this.origine != this) {
+      return this.origine.simplifiees(tolerance);
+    }
+    StockGeometries stock = this.simplifiees.get(tolerance);
+    if (stock == null) {
+      stock = new StockGeometries(this, tolerance);
+      StockGeometries existant = this.simplifiees.putIfAbsent(tolerance, stock);
+      if (existant != null) {
+        stock = existant;
+      }
+    }
+    return stock;
+  }
+  
+  public double getTolerance() {
+    return this.tolerance;
+  }
+  
+  /**
+   * @return orientations des géométries de ce stock (simplifiées à sa tolérance)
+   */
+  CacheGeometrie<Double> getOrientations() {
+    return this.orientations;
+  }
+  
+  @Override
+  protected GeometriePackee calculer(IGeometry geom) {
+    if (this.tolerance > 0) {
+      return this.origine.get(geom).simplifier(this.tolerance);
+    }
+    return GeometriePackee.creer(geom);
+  }
+  
+  /**
+   * Copie à l'avance les géométries d'une population.
+   */
+  public void charger(IPopulation<? extends IFeature> population) {
+    for (IFeature feature : population) {
+      if (feature.getGeom() != null) {
+        get(feature.getGeom());
+      }
+    }
+  }
+  
+  /**
+   * Vide le stock et ses orientations, et pour le stock d'origine les stocks
+   * simplifiés.
+   */
+  @Override
+  public void clear() {
+    super.clear();
+    this.orientations.clear();
+    if (this.simplifiees != null) {
+      for (StockGeometries stock : this.simplifiees.values()) {
+        stock.clear();
+      }
+      this.simplifiees.clear();
+    }
+  }
+  
+}
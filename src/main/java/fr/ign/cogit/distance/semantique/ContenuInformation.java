@@ -0,0 +1,146 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.distance.semantique;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import fr.ign.cogit.geoxygene.api.feature.IFeature;
+import fr.ign.cogit.geoxygene.api.feature.IPopulation;
+
+/**
+ * Contenu informatif des concepts d'une taxonomie : IC(c) = -log p(c), où p(c)
+ * est la fréquence des natures de la population de comparaison subsumées par c.
+ * 
+ * Les fréquences sont comptées une seule fois ; chaque concept reçoit un compte
+ * de 1 en plus de ses occurrences (lissage), pour que IC reste fini.
+ */
+public class ContenuInformation {
+    
+    private final TaxonomieCompilee taxonomie;
+    
+    private final ResolutionConcepts resolution;
+    
+    private final double[] ic;
+    
+    private final double icMax;
+    
+    /** Nombre de natures de la population absentes de la taxonomie. */
+    private final int nbInconnues;
+    
+    /**
+     * @param comptes nombre d'occurrences de chaque concept (indices de la taxonomie)
+     */
+    public ContenuInformation(TaxonomieCompilee taxonomie, int[] comptes) {
+        this(new ResolutionConcepts(taxonomie), comptes, 0);
+    }
+    
+    private ContenuInformation(ResolutionConcepts resolution, int[] comptes, int nbInconnues) {
+        this.resolution = resolution;
+        this.taxonomie = resolution.getTaxonomie();
+        TaxonomieCompilee taxonomie = this.taxonomie;
+        this.nbInconnues = nbInconnues;
+        int n = taxonomie.size();
+        double[] frequences = new double[n];
+        double total = 0;
+        for (int c = 0; c < n; c++) {
+            double propre = comptes[c] + 1;
+            total += propre;
+            BitSet a = taxonomie.getAncetres(c);
+            for (int k = a.nextSetBit(0); k >= 0; k = a.nextSetBit(k + 1)) {
+                frequences[k] += propre;
+            }
+        }
+        this.ic = new double[n];
+        for (int c = 0; c < n; c++) {
+            ic[c] = Math.log(total / frequences[c]);
+        }
+        this.icMax = Math.log(total);
+    }
+    
+    /**
+     * Comptage des natures d'une population.
+     * 
+     * @param attrNature nom de l'attribut nature (Objet.getAttrNameSemantique())
+     */
+    public static ContenuInformation compter(TaxonomieCompilee taxonomie, IPopulation<? extends IFeature> population, 
+            String attrNature) {
+        return compter(new ResolutionConcepts(taxonomie), population, attrNature);
+    }
+    
+    public static ContenuInformation compter(ResolutionConcepts resolution, IPopulation<? extends IFeature> population, 
+            String attrNature) {
+        List<String> natures = new ArrayList<String>(population.size());
+        for (IFeature f : population) {
+            Object nature = f.getAttribute(attrNature);
+            if (nature != null) {
+                natures.add(nature.toString());
+            }
+        }
+        return compter(resolution, natures);
+    }
+    
+    public static ContenuInformation compter(TaxonomieCompilee taxonomie, Iterable<String> natures) {
+        return compter(new ResolutionConcepts(taxonomie), natures);
+    }
+    
+    public static ContenuInformation compter(ResolutionConcepts resolution, Iterable<String> natures) {
+        int[] comptes = new int[resolution.getTaxonomie().size()];
+        int nbInconnues = 0;
+        for (String nature : natures) {
+            int i = resolution.resoudre(nature);
+            if (i >= 0) {
+                comptes[i]++;
+            } else {
+                nbInconnues++;
+            }
+        }
+        return new ContenuInformation(resolution, comptes, nbInconnues);
+    }
+    
+    public TaxonomieCompilee getTaxonomie() {
+        return taxonomie;
+    }
+    
+    public ResolutionConcepts getResolution() {
+        return resolution;
+    }
+    
+    public int getNbInconnues() {
+        return nbInconnues;
+    }
+    
+    public double getIC(int i) {
+        return ic[i];
+    }
+    
+    /**
+     * @return contenu informatif d'un concept jamais observé et sans descendant
+     */
+    public double getICMax() {
+        return icMax;
+    }
+    
+    /**
+     * IC du plus proche ancêtre commun (index en O(1)), 0 sans ancêtre commun.
+     * Avec l'héritage multiple, c'est l'ancêtre commun le plus profond et non
+     * forcément le plus informatif.
+     */
+    public double icAncetreCommun(int i, int j) {
+        int c = taxonomie.ancetreCommun(i, j);
+        return c < 0 ? 0 : ic[c];
+    }
+    
+}
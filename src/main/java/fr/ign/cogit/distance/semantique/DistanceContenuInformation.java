@@ -0,0 +1,54 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.distance.semantique;
+
+import fr.ign.cogit.distance.Distance;
+
+/**
+ * Distances fondées sur le contenu informatif des concepts (Resnik, Lin,
+ * Jiang-Conrath), ramenées dans [0, 1]. Une nature absente de la taxonomie
+ * est à distance 1 de toutes les autres.
+ */
+public abstract class DistanceContenuInformation extends DistanceAbstractSemantique implements Distance {
+    
+    protected final ContenuInformation contenu;
+    
+    public DistanceContenuInformation(ContenuInformation contenu) {
+        this.contenu = contenu;
+    }
+    
+    public ContenuInformation getContenuInformation() {
+        return contenu;
+    }
+    
+    @Override
+    public double getDistance() {
+        ResolutionConcepts resolution = contenu.getResolution();
+        int i = resolution.resoudre(this.attrNameSemRef);
+        int j = resolution.resoudre(this.attrNameSemComp);
+        if (i < 0 || j < 0) {
+            return 1;
+        }
+        if (i == j) {
+            return 0;
+        }
+        return distance(i, j);
+    }
+    
+    /**
+     * @return distance entre deux concepts distincts de la taxonomie
+     */
+    protected abstract double distance(int i, int j);
+    
+}
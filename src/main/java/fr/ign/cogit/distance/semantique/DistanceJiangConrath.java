@@ -0,0 +1,36 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.distance.semantique;
+
+/**
+ * Jiang-Conrath : distance = IC(a) + IC(b) - 2 IC(ancêtre commun),
+ * divisée par son maximum 2 IC max.
+ */
+public class DistanceJiangConrath extends DistanceContenuInformation {
+    
+    public DistanceJiangConrath(ContenuInformation contenu) {
+        super(contenu);
+    }
+    
+    @Override
+    protected double distance(int i, int j) {
+        double d = contenu.getIC(i) + contenu.getIC(j) - 2 * contenu.icAncetreCommun(i, j);
+        return Math.min(1, d / (2 * contenu.getICMax()));
+    }
+    
+    @Override
+    public String getNom() {
+        return "JiangConrath";
+    }
+}
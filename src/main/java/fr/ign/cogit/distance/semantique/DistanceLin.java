@@ -0,0 +1,39 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.distance.semantique;
+
+/**
+ * Lin : similarité = 2 IC(ancêtre commun) / (IC(a) + IC(b)).
+ * Distance = 1 - similarité.
+ */
+public class DistanceLin extends DistanceContenuInformation {
+    
+    public DistanceLin(ContenuInformation contenu) {
+        super(contenu);
+    }
+    
+    @Override
+    protected double distance(int i, int j) {
+        double somme = contenu.getIC(i) + contenu.getIC(j);
+        if (somme == 0) {
+            return 0;
+        }
+        return 1 - 2 * contenu.icAncetreCommun(i, j) / somme;
+    }
+    
+    @Override
+    public String getNom() {
+        return "Lin";
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.distance.semantique;
+
+/**
+ * Resnik : similarité = IC(ancêtre commun).
+ * Distance = 1 - IC(ancêtre commun) / IC max.
+ */
+public class DistanceResnik extends DistanceContenuInformation {
+    
+    public DistanceResnik(ContenuInformation contenu) {
+        super(contenu);
+    }
+    
+    @Override
+    protected double distance(int i, int j) {
+        return 1 - contenu.icAncetreCommun(i, j) / contenu.getICMax();
+    }
+    
+    @Override
+    public String getNom() {
+        return "Resnik";
+    }
+}
@@ -13,31 +13,56 @@
  * 
  */package fr.ign.cogit.distance.semantique;
 
-import java.io.File;
-
 import edu.stanford.smi.protegex.owl.model.RDFResource;
 import fr.ign.cogit.distance.Distance;
+import fr.ign.cogit.distance.text.CacheNormalisation;
 import fr.ign.cogit.ontology.OntologieOWL;
 import fr.ign.cogit.ontology.similarite.MesureSimilariteSemantique;
 import fr.ign.cogit.ontology.similarite.WuPalmerSemanticSimilarity;
 
 /**
+ * Distance = 1 - similarité de Wu-Palmer entre les deux natures.
+ * 
+ * Construite à partir d'un fichier, la distance interroge le ServiceOntologie
+ * partagé de la JVM (taxonomie compilée) : plusieurs threads peuvent chacun
+ * avoir leur distance sans recharger l'ontologie. Construite sur une
+ * ResolutionConcepts, elle calcule sur cette taxonomie compilée, déjà 
+ * chargée, sans le service. Construite sur une OntologieOWL, elle passe par
+ * Protégé, qui n'est pas thread-safe.
+ * 
+ * Avec le service, les similarités sont lues par défaut dans la matrice du
+ * service, calculée une fois pour toutes les distances. Avec le service ou
+ * une ResolutionConcepts, les natures sont résolues par la table (synonymes)
+ * et une nature non résolue a une similarité nulle. Une autre matrice peut
+ * être donnée par setMatrice. Sur
+ * une OntologieOWL, la matrice est calculée par initMatrice ; les natures
+ * absentes de la matrice passent par le calcul sur l'ontologie.
  * 
  * @author M-D Van Damme
  */
-public class DistanceWuPalmer extends DistanceAbstractSemantique implements Distance {
+public class DistanceWuPalmer extends DistanceAbstractSemantique implements Distance, AutoCloseable {
     
-    /** Ontologie. */
+    /** Ontologie partagée. */
+    private ServiceOntologie service = null;
+    
+    /** Taxonomie compilée et résolution des natures, sans le service. */
+    private ResolutionConcepts resolution = null;
+    
+    /** Ontologie Protégé. */
     private OntologieOWL onto = null;
     
+    /** Similarités précalculées (optionnel). */
+    private MatriceSimilarite matrice = null;
+    
+    private MesureSimilariteSemantique mesureSim = null;
+    
     /** Default URI ontologie. */
     private static final String URI_ONTO = "./data/ontology/FusionTopoCartoExtract.owl";
     // private static final String URI_ONTO = "./data/ontology/GeOnto.owl";
     
     public DistanceWuPalmer(String uri) {
         try {
-            File file = new File(uri);
-            onto = new OntologieOWL("Onto", file.getPath());
+            service = ServiceOntologie.obtenir(uri);
         } catch(Exception e) {
             e.printStackTrace();
         } 
@@ -47,7 +72,15 @@ public class DistanceWuPalmer extends DistanceAbstractSemantique implements Dist
     	this(URI_ONTO);
     }
     
+    /**
+     * Libère l'ontologie : référence sur le service partagé, ou modèle Protégé.
+     */
+    @Override
     public void close() {
+        if (service != null) {
+            service.close();
+            service = null;
+        }
         if (onto != null) {
             onto.close();
         }
@@ -57,6 +90,42 @@ public class DistanceWuPalmer extends DistanceAbstractSemantique implements Dist
         this.onto = onto;
     }
     
+    /**
+     * @param resolution table des natures d'une taxonomie compilée déjà chargée
+     */
+    public DistanceWuPalmer(ResolutionConcepts resolution) {
+        this.resolution = resolution;
+    }
+    
+    /**
+     * Calcule la matrice des similarités entre tous les concepts de l'ontologie.
+     * Avec le service, c'est sa matrice, partagée et lue par défaut.
+     */
+    public void initMatrice() {
+        if (service != null) {
+            service.getMatrice();
+            this.matrice = null;
+        } else if (resolution != null) {
+            this.matrice = MatriceSimilarite.calculer(resolution.getTaxonomie());
+        } else {
+            this.matrice = MatriceSimilarite.calculer(onto);
+        }
+    }
+    
+    /**
+     * Utilise une matrice déjà calculée, par exemple partagée entre plusieurs distances.
+     */
+    public void setMatrice(MatriceSimilarite matrice) {
+        this.matrice = matrice;
+    }
+    
+    public MatriceSimilarite getMatrice() {
+        if (this.matrice == null && service != null) {
+            return service.getMatrice();
+        }
+        return this.matrice;
+    }
+    
     
     @Override
     public double getDistance() {
@@ -68,10 +137,45 @@ public class DistanceWuPalmer extends DistanceAbstractSemantique implements Dist
     
     public double mesureSimilariteWuPalmer(String attrNameSemRef, String typeComp) {
         
-        RDFResource rS = onto.getOWLModel().getRDFResource(attrNameSemRef.toLowerCase());
-        RDFResource rT = onto.getOWLModel().getRDFResource(typeComp.toLowerCase());
+        if (service != null || resolution != null) {
+            // Natures résolues par la table ("Col, passage" : col)
+            int i = service != null ? service.getIndice(attrNameSemRef) : resolution.resoudre(attrNameSemRef);
+            int j = service != null ? service.getIndice(typeComp) : resolution.resoudre(typeComp);
+            if (i < 0 || j < 0) {
+                return 0;
+            }
+            if (matrice == null && service != null) {
+                // Matrice du service, aux indices de la taxonomie
+                return service.similariteWuPalmer(i, j);
+            }
+            TaxonomieCompilee taxonomie = service != null ? service.getTaxonomie() : resolution.getTaxonomie();
+            if (matrice == null) {
+                return taxonomie.similariteWuPalmer(i, j);
+            }
+            int mi = matrice.getIndice(taxonomie.getNom(i));
+            int mj = matrice.getIndice(taxonomie.getNom(j));
+            if (mi >= 0 && mj >= 0) {
+                return matrice.getSimilarite(mi, mj);
+            }
+            return taxonomie.similariteWuPalmer(i, j);
+        }
+        
+        String nomS = CacheNormalisation.MINUSCULES.get(attrNameSemRef);
+        String nomT = CacheNormalisation.MINUSCULES.get(typeComp);
+        if (matrice != null) {
+            int i = matrice.getIndice(nomS);
+            int j = matrice.getIndice(nomT);
+            if (i >= 0 && j >= 0) {
+                return matrice.getSimilarite(i, j);
+            }
+        }
+        
+        RDFResource rS = onto.getOWLModel().getRDFResource(nomS);
+        RDFResource rT = onto.getOWLModel().getRDFResource(nomT);
         
-        MesureSimilariteSemantique mesureSim = new WuPalmerSemanticSimilarity(onto);
+        if (mesureSim == null) {
+            mesureSim = new WuPalmerSemanticSimilarity(onto);
+        }
         double scoreSimilariteSemantique = mesureSim.calcule(rS, rT);
         // System.out.println(typeRef.toLowerCase() + ", " + typeComp.toLowerCase() + " = " + scoreSimilariteSemantique);
         // LOGGER.trace("Score similarité sémantique = " + scoreSimilariteSemantique);
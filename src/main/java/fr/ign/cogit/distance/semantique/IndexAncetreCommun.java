@@ -0,0 +1,184 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.distance.semantique;
+
+import java.util.Arrays;
+
+/**
+ * Plus proche ancêtre commun en temps constant sur une taxonomie compilée.
+ * 
+ * Chaque concept est rattaché à sa super-classe la moins profonde (celle qui
+ * donne sa profondeur), ce qui forme un arbre couvrant sous une racine
+ * virtuelle. Sur cet arbre : tour eulérien et table creuse des minima de
+ * profondeur, soit une requête en O(1) après une construction en O(n log n).
+ * 
+ * Avec l'héritage multiple, l'arbre ne suffit plus pour les concepts dont un
+ * ancêtre a plusieurs super-classes : ces requêtes reviennent au parcours du
+ * graphe des ancêtres de la taxonomie.
+ */
+public class IndexAncetreCommun {
+    
+    private final TaxonomieCompilee taxonomie;
+    
+    /** Tour eulérien (n = racine virtuelle). */
+    private final int[] euler;
+    
+    /** Profondeurs le long du tour (0 pour la racine virtuelle). */
+    private final int[] profondeursEuler;
+    
+    /** Première position de chaque concept dans le tour. */
+    private final int[] premiere;
+    
+    /** table[k][p] : position du minimum de profondeur sur euler[p .. p + 2^k - 1]. */
+    private final int[][] table;
+    
+    /** Concept ayant un ancêtre (ou lui-même) à plusieurs super-classes, ou hors de l'arbre (cycle). */
+    private final boolean[] graphe;
+    
+    private final boolean arbre;
+    
+    public IndexAncetreCommun(TaxonomieCompilee taxonomie) {
+        this.taxonomie = taxonomie;
+        int n = taxonomie.size();
+        
+        // Arbre couvrant : super-classe la moins profonde
+        int[] nbEnfants = new int[n + 1];
+        int[] pere = new int[n];
+        for (int i = 0; i < n; i++) {
+            pere[i] = n;
+            int[] parents = taxonomie.getParents(i);
+            for (int p : parents) {
+                if (pere[i] == n || taxonomie.getProfondeur(p) < taxonomie.getProfondeur(pere[i])) {
+                    pere[i] = p;
+                }
+            }
+            nbEnfants[pere[i]]++;
+        }
+        int[] debutEnfants = new int[n + 2];
+        for (int i = 0; i <= n; i++) {
+            debutEnfants[i + 1] = debutEnfants[i] + nbEnfants[i];
+        }
+        int[] enfants = new int[n];
+        int[] rempli = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            enfants[debutEnfants[pere[i]] + rempli[pere[i]]++] = i;
+        }
+        
+        // Tour eulérien itératif depuis la racine virtuelle
+        this.euler = new int[2 * n + 1];
+        this.profondeursEuler = new int[2 * n + 1];
+        this.premiere = new int[n + 1];
+        Arrays.fill(premiere, -1);
+        boolean[] multiple = new boolean[n + 1];
+        int[] pile = new int[n + 1];
+        int[] suivant = new int[n + 1];
+        int[] profondeur = new int[n + 1];
+        int sommet = 0;
+        int m = 0;
+        pile[0] = n;
+        suivant[0] = debutEnfants[n];
+        premiere[n] = 0;
+        euler[m] = n;
+        profondeursEuler[m++] = 0;
+        while (sommet >= 0) {
+            int noeud = pile[sommet];
+            if (suivant[sommet] < debutEnfants[noeud + 1]) {
+                int e = enfants[suivant[sommet]++];
+                multiple[e] = multiple[noeud] || taxonomie.getParents(e).length > 1;
+                profondeur[e] = profondeur[noeud] + 1;
+                premiere[e] = m;
+                euler[m] = e;
+                profondeursEuler[m++] = profondeur[e];
+                sommet++;
+                pile[sommet] = e;
+                suivant[sommet] = debutEnfants[e];
+            } else {
+                sommet--;
+                if (sommet >= 0) {
+                    euler[m] = pile[sommet];
+                    profondeursEuler[m++] = profondeur[pile[sommet]];
+                }
+            }
+        }
+        
+        boolean arbre = true;
+        this.graphe = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            graphe[i] = multiple[i] || premiere[i] < 0;
+            arbre &= !graphe[i];
+        }
+        this.arbre = arbre;
+        
+        // Table creuse
+        int niveaux = 1;
+        while ((1 << niveaux) <= m) {
+            niveaux++;
+        }
+        this.table = new int[niveaux][];
+        table[0] = new int[m];
+        for (int p = 0; p < m; p++) {
+            table[0][p] = p;
+        }
+        for (int k = 1; k < niveaux; k++) {
+            int l = m - (1 << k) + 1;
+            table[k] = new int[l];
+            int[] prec = table[k - 1];
+            int demi = 1 << (k - 1);
+            for (int p = 0; p < l; p++) {
+                int a = prec[p];
+                int b = prec[p + demi];
+                table[k][p] = profondeursEuler[a] <= profondeursEuler[b] ? a : b;
+            }
+        }
+    }
+    
+    /**
+     * @return vrai si la taxonomie est un arbre (ou une forêt) : toutes les
+     *     requêtes sont en temps constant
+     */
+    public boolean isArbre() {
+        return arbre;
+    }
+    
+    /**
+     * @return le plus profond des ancêtres communs, -1 si les deux concepts
+     *     n'ont pas de racine commune
+     */
+    public int ancetreCommun(int i, int j) {
+        if (graphe[i] || graphe[j]) {
+            return taxonomie.ancetreCommunGraphe(i, j);
+        }
+        int a = premiere[i];
+        int b = premiere[j];
+        if (a > b) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        int k = 31 - Integer.numberOfLeadingZeros(b - a + 1);
+        int p = table[k][a];
+        int q = table[k][b - (1 << k) + 1];
+        int c = euler[profondeursEuler[p] <= profondeursEuler[q] ? p : q];
+        return c == taxonomie.size() ? -1 : c;
+    }
+    
+    /**
+     * @return profondeur du plus proche ancêtre commun, 0 s'il n'y en a pas
+     */
+    public int profondeurAncetreCommun(int i, int j) {
+        int c = ancetreCommun(i, j);
+        return c < 0 ? 0 : taxonomie.getProfondeur(c);
+    }
+    
+}
@@ -0,0 +1,117 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.distance.semantique;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.stanford.smi.protegex.owl.model.RDFResource;
+import fr.ign.cogit.ontology.OntologieOWL;
+import fr.ign.cogit.ontology.similarite.MesureSimilariteSemantique;
+import fr.ign.cogit.ontology.similarite.WuPalmerSemanticSimilarity;
+
+/**
+ * Similarités de Wu-Palmer entre tous les concepts d'une ontologie, calculées
+ * une fois au démarrage. Le vocabulaire des natures (quelques centaines de
+ * concepts) tient dans une matrice triangulaire de float ; le critère
+ * sémantique n'est plus alors qu'une lecture de tableau.
+ * 
+ * La matrice est immuable et peut être partagée entre threads.
+ */
+public class MatriceSimilarite {
+    
+    /** Noms des concepts, triés. */
+    private final String[] noms;
+    
+    /** Nom du concept → indice. */
+    private final Map<String, Integer> indices;
+    
+    /** Similarité (i, j), i >= j, rangée en i * (i + 1) / 2 + j. */
+    private final float[] similarites;
+    
+    MatriceSimilarite(String[] noms, float[] similarites) {
+        this.noms = noms;
+        this.similarites = similarites;
+        this.indices = new HashMap<String, Integer>(noms.length * 2);
+        for (int i = 0; i < noms.length; i++) {
+            this.indices.put(noms[i], i);
+        }
+    }
+    
+    /**
+     * Calcul de la matrice sur les classes définies dans l'ontologie, avec la
+     * mesure de Wu-Palmer de la bibliothèque d'ontologies.
+     */
+    public static MatriceSimilarite calculer(OntologieOWL onto) {
+        Map<String, RDFResource> classes = new HashMap<String, RDFResource>();
+        for (Object o : onto.getOWLModel().getUserDefinedOWLNamedClasses()) {
+            RDFResource r = (RDFResource) o;
+            classes.put(r.getName(), r);
+        }
+        List<String> liste = new ArrayList<String>(classes.keySet());
+        Collections.sort(liste);
+        String[] noms = liste.toArray(new String[liste.size()]);
+        
+        MesureSimilariteSemantique mesureSim = new WuPalmerSemanticSimilarity(onto);
+        int n = noms.length;
+        float[] similarites = new float[n * (n + 1) / 2];
+        for (int i = 0; i < n; i++) {
+            RDFResource rI = classes.get(noms[i]);
+            for (int j = 0; j <= i; j++) {
+                similarites[i * (i + 1) / 2 + j] = (float) mesureSim.calcule(rI, classes.get(noms[j]));
+            }
+        }
+        return new MatriceSimilarite(noms, similarites);
+    }
+    
+    /**
+     * Calcul de la matrice sur une taxonomie compilée (ancêtre commun en O(1)).
+     */
+    public static MatriceSimilarite calculer(TaxonomieCompilee taxonomie) {
+        int n = taxonomie.size();
+        String[] noms = new String[n];
+        float[] similarites = new float[n * (n + 1) / 2];
+        for (int i = 0; i < n; i++) {
+            noms[i] = taxonomie.getNom(i);
+            for (int j = 0; j <= i; j++) {
+                similarites[i * (i + 1) / 2 + j] = (float) taxonomie.similariteWuPalmer(i, j);
+            }
+        }
+        return new MatriceSimilarite(noms, similarites);
+    }
+    
+    public int size() {
+        return this.noms.length;
+    }
+    
+    public String getNom(int i) {
+        return this.noms[i];
+    }
+    
+    /**
+     * @return indice du concept, -1 s'il n'est pas dans la matrice
+     */
+    public int getIndice(String nom) {
+        Integer i = this.indices.get(nom);
+        return i == null ? -1 : i;
+    }
+    
+    public float getSimilarite(int i, int j) {
+        return i >= j ? this.similarites[i * (i + 1) / 2 + j] : this.similarites[j * (j + 1) / 2 + i];
+    }
+    
+}
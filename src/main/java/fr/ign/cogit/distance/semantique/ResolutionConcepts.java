@@ -0,0 +1,211 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.distance.semantique;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import fr.ign.cogit.distance.text.NormalisationTexte;
+
+/**
+ * Table de résolution des valeurs d'attribut nature vers les concepts d'une
+ * taxonomie compilée, construite une fois au chargement.
+ * 
+ * Clés normalisées (NormalisationTexte) : noms des concepts, libellés
+ * rdfs:label non ambigus, puis synonymes configurés (correspondances entre
+ * les vocabulaires BDTopo et BDCarto), qui l'emportent. Une valeur absente de
+ * la table est essayée partie par partie ("Col, passage" : "col").
+ * 
+ * Chaque valeur brute n'est résolue qu'une fois ; les échecs sont comptés.
+ */
+public class ResolutionConcepts {
+    
+    /** Logger. */
+    private final static Logger LOGGER = Logger.getLogger(ResolutionConcepts.class.getName());
+    
+    /** Nombre maximal de valeurs brutes mémorisées. */
+    private static final int TAILLE_MAX = 100000;
+    
+    private final TaxonomieCompilee taxonomie;
+    
+    /** Valeur normalisée → indice du concept. */
+    private final Map<String, Integer> table;
+    
+    /** Valeur brute → résolution. */
+    private final ConcurrentHashMap<String, Resolution> resolues = new ConcurrentHashMap<String, Resolution>();
+    
+    private final AtomicInteger nbEchecs = new AtomicInteger();
+    
+    private static final class Resolution {
+        final int indice;
+        final AtomicInteger echecs;
+        Resolution(int indice) {
+            this.indice = indice;
+            this.echecs = indice < 0 ? new AtomicInteger() : null;
+        }
+    }
+    
+    public ResolutionConcepts(TaxonomieCompilee taxonomie) {
+        this(taxonomie, Collections.<String, String>emptyMap());
+    }
+    
+    /**
+     * @param synonymes valeur d'attribut → nom du concept
+     */
+    public ResolutionConcepts(TaxonomieCompilee taxonomie, Map<String, String> synonymes) {
+        this.taxonomie = taxonomie;
+        Map<String, Integer> table = new HashMap<String, Integer>();
+        
+        // Libellés : on écarte ceux qui désignent plusieurs concepts ("peak", "cove")
+        Set<String> ambigus = new HashSet<String>();
+        for (int i = 0; i < taxonomie.size(); i++) {
+            for (String libelle : taxonomie.getLibelles(i)) {
+                String cle = NormalisationTexte.normaliser(libelle);
+                Integer autre = table.put(cle, i);
+                if (autre != null && autre != i) {
+                    ambigus.add(cle);
+                }
+            }
+        }
+        table.keySet().removeAll(ambigus);
+        
+        for (int i = 0; i < taxonomie.size(); i++) {
+            table.put(NormalisationTexte.normaliser(taxonomie.getNom(i)), i);
+        }
+        
+        for (Map.Entry<String, String> e : synonymes.entrySet()) {
+            int i = taxonomie.getIndice(e.getValue());
+            if (i < 0) {
+                LOGGER.warn("Synonyme " + e.getKey() + " : concept inconnu " + e.getValue());
+                continue;
+            }
+            table.put(NormalisationTexte.normaliser(e.getKey()), i);
+        }
+        this.table = table;
+    }
+    
+    /**
+     * Lecture d'un fichier de synonymes, une correspondance par ligne :
+     * "valeur = concept". Lignes vides et commentaires (#) ignorés.
+     */
+    public static Map<String, String> lireSynonymes(File fichier) throws IOException {
+        Map<String, String> synonymes = new LinkedHashMap<String, String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(fichier), "UTF-8"));
+        try {
+            String ligne;
+            int numero = 0;
+            while ((ligne = reader.readLine()) != null) {
+                numero++;
+                ligne = ligne.trim();
+                if (ligne.length() == 0 || ligne.startsWith("#")) {
+                    continue;
+                }
+                int k = ligne.lastIndexOf('=');
+                if (k <= 0) {
+                    LOGGER.warn(fichier.getName() + ", ligne " + numero + " ignorée : " + ligne);
+                    continue;
+                }
+                synonymes.put(ligne.substring(0, k).trim(), ligne.substring(k + 1).trim());
+            }
+        } finally {
+            reader.close();
+        }
+        return synonymes;
+    }
+    
+    /**
+     * @return fichier de synonymes associé au fichier OWL : synonymes_natures.txt du même répertoire
+     */
+    public static File fichierSynonymes(File owl) {
+        return new File(owl.getAbsoluteFile().getParentFile(), "synonymes_natures.txt");
+    }
+    
+    public TaxonomieCompilee getTaxonomie() {
+        return taxonomie;
+    }
+    
+    /**
+     * @return indice du concept désigné par la valeur d'attribut, -1 si aucun
+     */
+    public int resoudre(String valeur) {
+        if (valeur == null) {
+            nbEchecs.incrementAndGet();
+            return -1;
+        }
+        Resolution r = resolues.get(valeur);
+        if (r == null) {
+            r = new Resolution(calculer(valeur));
+            if (resolues.size() < TAILLE_MAX) {
+                Resolution prec = resolues.putIfAbsent(valeur, r);
+                if (prec != null) {
+                    r = prec;
+                }
+            }
+        }
+        if (r.echecs != null) {
+            r.echecs.incrementAndGet();
+            nbEchecs.incrementAndGet();
+        }
+        return r.indice;
+    }
+    
+    private int calculer(String valeur) {
+        String cle = NormalisationTexte.normaliser(valeur);
+        Integer i = table.get(cle);
+        if (i != null) {
+            return i;
+        }
+        for (String partie : valeur.split("[,;/]")) {
+            i = table.get(NormalisationTexte.normaliser(partie));
+            if (i != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * @return nombre de résolutions en échec depuis le chargement
+     */
+    public int getNbEchecs() {
+        return nbEchecs.get();
+    }
+    
+    /**
+     * @return valeurs non résolues et nombre d'occurrences de chacune
+     */
+    public Map<String, Integer> getEchecs() {
+        Map<String, Integer> echecs = new HashMap<String, Integer>();
+        for (Map.Entry<String, Resolution> e : resolues.entrySet()) {
+            if (e.getValue().echecs != null) {
+                echecs.put(e.getKey(), e.getValue().echecs.get());
+            }
+        }
+        return echecs;
+    }
+    
+}
@@ -0,0 +1,184 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.distance.semantique;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Ontologie partagée par toutes les distances sémantiques d'une JVM : une
+ * seule taxonomie compilée par fichier OWL, immuable, interrogeable depuis
+ * plusieurs threads sans synchronisation. Les natures sont résolues en
+ * concepts par une table préchargée (ResolutionConcepts), avec les synonymes
+ * du fichier synonymes_natures.txt placé à côté de l'ontologie.
+ * 
+ * La matrice des similarités de Wu-Palmer entre concepts est calculée une
+ * fois par service, au premier besoin, si la taxonomie n'est pas trop grande.
+ * 
+ * Le service est compté par références : chaque obtenir() rend une poignée
+ * à fermer par close(). Fermer deux fois la même poignée ne libère qu'une
+ * référence. Quand toutes les poignées sont fermées, l'ontologie est retirée
+ * du registre et un prochain obtenir() recharge le snapshot ; les poignées
+ * fermées restent lisibles.
+ */
+public final class ServiceOntologie implements AutoCloseable {
+    
+    /** Logger. */
+    private final static Logger LOGGER = Logger.getLogger(ServiceOntologie.class.getName());
+    
+    /** Ontologies ouvertes, par chemin canonique du fichier OWL. */
+    private static final Map<String, Ontologie> ONTOLOGIES = new HashMap<String, Ontologie>();
+    
+    /** Au-delà, la matrice n'est pas calculée (n² / 2 float). */
+    static final int TAILLE_MAX_MATRICE = 4096;
+    
+    /**
+     * Ontologie chargée, partagée par toutes les poignées du même fichier.
+     */
+    private static final class Ontologie {
+        
+        private final String cle;
+        
+        private final TaxonomieCompilee taxonomie;
+        
+        private final ResolutionConcepts resolution;
+        
+        /** Calculée au premier getMatrice(), indices de la taxonomie. */
+        private volatile MatriceSimilarite matrice = null;
+        
+        /** Poignées ouvertes, protégé par ONTOLOGIES. */
+        private int references = 0;
+        
+        private Ontologie(String cle, TaxonomieCompilee taxonomie, ResolutionConcepts resolution) {
+            this.cle = cle;
+            this.taxonomie = taxonomie;
+            this.resolution = resolution;
+        }
+    }
+    
+    private final Ontologie ontologie;
+    
+    /** Protégé par ONTOLOGIES. */
+    private boolean ferme = false;
+    
+    private ServiceOntologie(Ontologie ontologie) {
+        this.ontologie = ontologie;
+    }
+    
+    /**
+     * Poignée sur l'ontologie, chargée au premier appel pour ce fichier.
+     * 
+     * @param uri fichier OWL ; le snapshot compilé est à côté, extension .taxo
+     */
+    public static ServiceOntologie obtenir(String uri) throws Exception {
+        File owl = new File(uri);
+        String cle = owl.getCanonicalPath();
+        synchronized (ONTOLOGIES) {
+            Ontologie ontologie = ONTOLOGIES.get(cle);
+            if (ontologie == null) {
+                TaxonomieCompilee taxonomie = TaxonomieCompilee.obtenir(owl, TaxonomieCompilee.fichierSnapshot(owl));
+                File fichierSynonymes = ResolutionConcepts.fichierSynonymes(owl);
+                Map<String, String> synonymes = Collections.emptyMap();
+                if (fichierSynonymes.exists()) {
+                    synonymes = ResolutionConcepts.lireSynonymes(fichierSynonymes);
+                }
+                ontologie = new Ontologie(cle, taxonomie, new ResolutionConcepts(taxonomie, synonymes));
+                ONTOLOGIES.put(cle, ontologie);
+                LOGGER.debug("Ontologie chargée : " + cle + " (" + taxonomie.size() + " concepts)");
+            }
+            ontologie.references++;
+            return new ServiceOntologie(ontologie);
+        }
+    }
+    
+    /**
+     * Libère la référence de cette poignée ; sans effet si elle est déjà fermée.
+     */
+    @Override
+    public void close() {
+        synchronized (ONTOLOGIES) {
+            if (ferme) {
+                return;
+            }
+            ferme = true;
+            ontologie.references--;
+            if (ontologie.references == 0 && ONTOLOGIES.get(ontologie.cle) == ontologie) {
+                ONTOLOGIES.remove(ontologie.cle);
+            }
+        }
+    }
+    
+    public TaxonomieCompilee getTaxonomie() {
+        return ontologie.taxonomie;
+    }
+    
+    public ResolutionConcepts getResolution() {
+        return ontologie.resolution;
+    }
+    
+    /**
+     * Matrice des similarités entre les concepts de la taxonomie, aux mêmes
+     * indices, calculée une seule fois pour toutes les poignées.
+     * 
+     * @return null si la taxonomie dépasse TAILLE_MAX_MATRICE concepts
+     */
+    public MatriceSimilarite getMatrice() {
+        MatriceSimilarite m = ontologie.matrice;
+        if (m == null && ontologie.taxonomie.size() <= TAILLE_MAX_MATRICE) {
+            synchronized (ontologie) {
+                m = ontologie.matrice;
+                if (m == null) {
+                    m = MatriceSimilarite.calculer(ontologie.taxonomie);
+                    ontologie.matrice = m;
+                }
+            }
+        }
+        return m;
+    }
+    
+    /**
+     * @return indice du concept désigné par la nature, -1 s'il n'existe pas
+     */
+    public int getIndice(String nature) {
+        return ontologie.resolution.resoudre(nature);
+    }
+    
+    /**
+     * @return similarité de Wu-Palmer, 0 si l'une des natures n'est pas un concept
+     */
+    public double similariteWuPalmer(String natureRef, String natureComp) {
+        int i = getIndice(natureRef);
+        int j = getIndice(natureComp);
+        if (i < 0 || j < 0) {
+            return 0;
+        }
+        return similariteWuPalmer(i, j);
+    }
+    
+    /**
+     * @return similarité de Wu-Palmer entre les concepts i et j de la taxonomie
+     */
+    public double similariteWuPalmer(int i, int j) {
+        MatriceSimilarite m = getMatrice();
+        if (m != null) {
+            return m.getSimilarite(i, j);
+        }
+        return ontologie.taxonomie.similariteWuPalmer(i, j);
+    }
+    
+}
@@ -0,0 +1,417 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.distance.semantique;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.log4j.Logger;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Hiérarchie des classes d'une ontologie OWL réduite à ce qu'utilise la mesure
+ * de Wu-Palmer : noms, relations de sous-classe, profondeurs et libellés.
+ * 
+ * La taxonomie est extraite du fichier OWL par un simple parcours XML (sans
+ * Protégé), puis enregistrée dans un petit fichier binaire qui est projeté en
+ * mémoire aux démarrages suivants.
+ * 
+ * Profondeur : 1 pour les classes racines (sans super-classe nommée), puis
+ * 1 + la plus petite profondeur des super-classes.
+ */
+public class TaxonomieCompilee {
+    
+    /** Logger. */
+    private final static Logger LOGGER = Logger.getLogger(TaxonomieCompilee.class.getName());
+    
+    /** En-tête du fichier binaire : "TAXO". */
+    private static final int MAGIC = 0x5441584F;
+    private static final int VERSION = 1;
+    
+    private static final String NS_RDF = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+    private static final String NS_RDFS = "http://www.w3.org/2000/01/rdf-schema#";
+    private static final String NS_OWL = "http://www.w3.org/2002/07/owl#";
+    
+    /** Noms des concepts, triés. */
+    private final String[] noms;
+    
+    /** Indices des super-classes directes. */
+    private final int[][] parents;
+    
+    private final int[] profondeurs;
+    
+    private final String[][] libelles;
+    
+    /** Ancêtres de chaque concept, lui-même compris (héritage multiple uniquement). */
+    private BitSet[] ancetres = null;
+    
+    private final IndexAncetreCommun index;
+    
+    private final Map<String, Integer> indices;
+    
+    TaxonomieCompilee(String[] noms, int[][] parents, int[] profondeurs, String[][] libelles) {
+        this.noms = noms;
+        this.parents = parents;
+        this.profondeurs = profondeurs;
+        this.libelles = libelles;
+        this.indices = new HashMap<String, Integer>(noms.length * 2);
+        for (int i = 0; i < noms.length; i++) {
+            this.indices.put(noms[i], i);
+        }
+        this.index = new IndexAncetreCommun(this);
+    }
+    
+    private BitSet ancetres(int i) {
+        if (ancetres[i] == null) {
+            BitSet a = new BitSet(noms.length);
+            a.set(i);
+            // Marqué avant la descente : un cycle éventuel ne boucle pas
+            ancetres[i] = a;
+            for (int p : parents[i]) {
+                a.or(ancetres(p));
+            }
+        }
+        return ancetres[i];
+    }
+    
+    /**
+     * Snapshot à jour s'il existe, sinon compilation du fichier OWL et
+     * écriture du snapshot.
+     * 
+     * @param owl fichier de l'ontologie
+     * @param snapshot fichier binaire compilé
+     */
+    public static TaxonomieCompilee obtenir(File owl, File snapshot) throws Exception {
+        if (snapshot.exists() && (!owl.exists() || snapshot.lastModified() >= owl.lastModified())) {
+            try {
+                return charger(snapshot);
+            } catch (IOException e) {
+                LOGGER.warn("Snapshot " + snapshot.getPath() + " illisible, recompilation : " + e.getMessage());
+            }
+        }
+        TaxonomieCompilee taxo = compiler(owl);
+        try {
+            taxo.enregistrer(snapshot);
+        } catch (IOException e) {
+            // Répertoire en lecture seule : on garde la taxonomie en mémoire
+            LOGGER.warn("Impossible d'écrire le snapshot " + snapshot.getPath() + " : " + e.getMessage());
+        }
+        return taxo;
+    }
+    
+    /**
+     * @return fichier du snapshot associé au fichier OWL : même nom, extension .taxo
+     */
+    public static File fichierSnapshot(File owl) {
+        String chemin = owl.getPath();
+        int k = chemin.lastIndexOf('.');
+        return new File((k > chemin.lastIndexOf(File.separatorChar) ? chemin.substring(0, k) : chemin) + ".taxo");
+    }
+    
+    /**
+     * Extraction de la hiérarchie des classes nommées du fichier OWL.
+     */
+    public static TaxonomieCompilee compiler(File owl) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document doc = factory.newDocumentBuilder().parse(owl);
+        
+        Map<String, Set<String>> superClasses = new HashMap<String, Set<String>>();
+        Map<String, Set<String>> labels = new HashMap<String, Set<String>>();
+        
+        NodeList classes = doc.getElementsByTagNameNS(NS_OWL, "Class");
+        for (int k = 0; k < classes.getLength(); k++) {
+            Element c = (Element) classes.item(k);
+            String nom = nomClasse(c);
+            if (nom == null) {
+                continue;
+            }
+            declarer(nom, superClasses, labels);
+            
+            // Classe déclarée dans le rdfs:subClassOf d'une autre
+            Node parent = c.getParentNode();
+            if (estElement(parent, NS_RDFS, "subClassOf") && estElement(parent.getParentNode(), NS_OWL, "Class")) {
+                String fille = nomClasse((Element) parent.getParentNode());
+                if (fille != null) {
+                    declarer(fille, superClasses, labels);
+                    superClasses.get(fille).add(nom);
+                }
+            }
+            
+            for (Node n = c.getFirstChild(); n != null; n = n.getNextSibling()) {
+                if (estElement(n, NS_RDFS, "label")) {
+                    String l = n.getTextContent().trim();
+                    if (l.length() > 0) {
+                        labels.get(nom).add(l);
+                    }
+                } else if (estElement(n, NS_RDFS, "subClassOf")) {
+                    String ressource = local(((Element) n).getAttributeNS(NS_RDF, "resource"));
+                    if (ressource != null && !ressource.equals("Thing")) {
+                        declarer(ressource, superClasses, labels);
+                        superClasses.get(nom).add(ressource);
+                    }
+                }
+            }
+        }
+        
+        List<String> liste = new ArrayList<String>(superClasses.keySet());
+        Collections.sort(liste);
+        String[] noms = liste.toArray(new String[liste.size()]);
+        Map<String, Integer> indices = new HashMap<String, Integer>();
+        for (int i = 0; i < noms.length; i++) {
+            indices.put(noms[i], i);
+        }
+        int[][] parents = new int[noms.length][];
+        String[][] libelles = new String[noms.length][];
+        for (int i = 0; i < noms.length; i++) {
+            Set<String> sc = superClasses.get(noms[i]);
+            parents[i] = new int[sc.size()];
+            int k = 0;
+            for (String s : sc) {
+                parents[i][k++] = indices.get(s);
+            }
+            Set<String> l = labels.get(noms[i]);
+            libelles[i] = l.toArray(new String[l.size()]);
+        }
+        
+        int[] profondeurs = new int[noms.length];
+        for (int i = 0; i < noms.length; i++) {
+            profondeur(i, parents, profondeurs);
+        }
+        return new TaxonomieCompilee(noms, parents, profondeurs, libelles);
+    }
+    
+    private static int profondeur(int i, int[][] parents, int[] profondeurs) {
+        if (profondeurs[i] == 0) {
+            // Valeur provisoire en cas de cycle
+            profondeurs[i] = 1;
+            int min = Integer.MAX_VALUE;
+            for (int p : parents[i]) {
+                min = Math.min(min, profondeur(p, parents, profondeurs));
+            }
+            profondeurs[i] = parents[i].length == 0 ? 1 : min + 1;
+        }
+        return profondeurs[i];
+    }
+    
+    private static void declarer(String nom, Map<String, Set<String>> superClasses, Map<String, Set<String>> labels) {
+        if (!superClasses.containsKey(nom)) {
+            superClasses.put(nom, new LinkedHashSet<String>());
+            labels.put(nom, new LinkedHashSet<String>());
+        }
+    }
+    
+    private static boolean estElement(Node n, String ns, String nom) {
+        return n != null && n.getNodeType() == Node.ELEMENT_NODE 
+                && ns.equals(n.getNamespaceURI()) && nom.equals(n.getLocalName());
+    }
+    
+    private static String nomClasse(Element c) {
+        String nom = local(c.getAttributeNS(NS_RDF, "ID"));
+        if (nom == null) {
+            nom = local(c.getAttributeNS(NS_RDF, "about"));
+        }
+        return nom;
+    }
+    
+    private static String local(String uri) {
+        if (uri == null || uri.length() == 0) {
+            return null;
+        }
+        int k = uri.lastIndexOf('#');
+        String nom = k < 0 ? uri : uri.substring(k + 1);
+        return nom.length() == 0 ? null : nom;
+    }
+    
+    /**
+     * Écriture du fichier binaire.
+     */
+    public void enregistrer(File snapshot) throws IOException {
+        ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(octets);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(noms.length);
+        for (int i = 0; i < noms.length; i++) {
+            out.writeUTF(noms[i]);
+            out.writeInt(profondeurs[i]);
+            out.writeInt(parents[i].length);
+            for (int p : parents[i]) {
+                out.writeInt(p);
+            }
+            out.writeInt(libelles[i].length);
+            for (String l : libelles[i]) {
+                out.writeUTF(l);
+            }
+        }
+        out.close();
+        
+        // Écriture dans un fichier temporaire puis renommage : un autre job ne lit jamais un snapshot partiel
+        File tmp = new File(snapshot.getPath() + ".tmp");
+        FileOutputStream fos = new FileOutputStream(tmp);
+        try {
+            octets.writeTo(fos);
+        } finally {
+            fos.close();
+        }
+        if (snapshot.exists() && !snapshot.delete() || !tmp.renameTo(snapshot)) {
+            tmp.delete();
+            throw new IOException("Renommage de " + tmp.getPath() + " impossible");
+        }
+    }
+    
+    /**
+     * Lecture d'un fichier binaire, projeté en mémoire.
+     */
+    public static TaxonomieCompilee charger(File snapshot) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(snapshot, "r");
+        try {
+            FileChannel canal = raf.getChannel();
+            MappedByteBuffer buf = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            if (buf.remaining() < 12 || buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                throw new IOException("Format de snapshot inconnu : " + snapshot.getPath());
+            }
+            int n = buf.getInt();
+            String[] noms = new String[n];
+            int[] profondeurs = new int[n];
+            int[][] parents = new int[n][];
+            String[][] libelles = new String[n][];
+            for (int i = 0; i < n; i++) {
+                noms[i] = lireUTF(buf);
+                profondeurs[i] = buf.getInt();
+                parents[i] = new int[buf.getInt()];
+                for (int k = 0; k < parents[i].length; k++) {
+                    parents[i][k] = buf.getInt();
+                }
+                libelles[i] = new String[buf.getInt()];
+                for (int k = 0; k < libelles[i].length; k++) {
+                    libelles[i][k] = lireUTF(buf);
+                }
+            }
+            return new TaxonomieCompilee(noms, parents, profondeurs, libelles);
+        } catch (RuntimeException e) {
+            // BufferUnderflowException, indice hors bornes : fichier tronqué
+            throw new IOException("Snapshot corrompu : " + snapshot.getPath());
+        } finally {
+            raf.close();
+        }
+    }
+    
+    /** Chaîne écrite par DataOutputStream.writeUTF (sans caractère nul ni hors BMP dans les noms OWL). */
+    private static String lireUTF(MappedByteBuffer buf) throws IOException {
+        byte[] b = new byte[buf.getShort() & 0xFFFF];
+        buf.get(b);
+        return new String(b, "UTF-8");
+    }
+    
+    public int size() {
+        return noms.length;
+    }
+    
+    public String getNom(int i) {
+        return noms[i];
+    }
+    
+    /**
+     * @return indice du concept, -1 s'il n'est pas dans la taxonomie
+     */
+    public int getIndice(String nom) {
+        Integer i = indices.get(nom);
+        return i == null ? -1 : i;
+    }
+    
+    public int getProfondeur(int i) {
+        return profondeurs[i];
+    }
+    
+    public int[] getParents(int i) {
+        return parents[i].clone();
+    }
+    
+    public String[] getLibelles(int i) {
+        return libelles[i].clone();
+    }
+    
+    /**
+     * Ancêtres du concept, lui-même compris (ne pas modifier).
+     */
+    BitSet getAncetres(int i) {
+        synchronized (this) {
+            if (ancetres == null) {
+                ancetres = new BitSet[noms.length];
+                for (int k = 0; k < noms.length; k++) {
+                    ancetres(k);
+                }
+            }
+        }
+        return ancetres[i];
+    }
+    
+    public IndexAncetreCommun getIndex() {
+        return index;
+    }
+    
+    /**
+     * @return le plus profond des ancêtres communs, -1 si les deux concepts
+     *     n'ont pas de racine commune
+     */
+    public int ancetreCommun(int i, int j) {
+        return index.ancetreCommun(i, j);
+    }
+    
+    /**
+     * Parcours des ensembles d'ancêtres, pour les concepts à héritage multiple.
+     */
+    int ancetreCommunGraphe(int i, int j) {
+        BitSet a = getAncetres(i);
+        BitSet b = getAncetres(j);
+        int meilleur = -1;
+        for (int k = a.nextSetBit(0); k >= 0; k = a.nextSetBit(k + 1)) {
+            if (b.get(k) && (meilleur < 0 || profondeurs[k] > profondeurs[meilleur])) {
+                meilleur = k;
+            }
+        }
+        return meilleur;
+    }
+    
+    /**
+     * Similarité de Wu-Palmer : 2 * prof(ancêtre commun) / (prof(i) + prof(j)).
+     */
+    public double similariteWuPalmer(int i, int j) {
+        if (i == j) {
+            return 1;
+        }
+        return 2.0 * index.profondeurAncetreCommun(i, j) / (profondeurs[i] + profondeurs[j]);
+    }
+    
+}
@@ -0,0 +1,151 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.distance.text;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import fr.ign.cogit.geoxygene.util.string.ApproximateMatcher;
+import fr.ign.cogit.geoxygene.util.string.TraitementChainesDeCaracteres;
+
+/**
+ * Cache des formes normalisées des toponymes, indexé par la valeur brute de
+ * l'attribut. Les mêmes noms reviennent très souvent ("chemin rural",
+ * "lieu-dit", ...) : chaque valeur distincte n'est normalisée qu'une fois.
+ * 
+ * Le cache est partagé entre threads. Sa taille est bornée par une éviction
+ * progressive en deux générations (approximation d'une file LRU) : les
+ * valeurs sont ajoutées à la génération récente ; quand elle atteint la moitié
+ * du maximum, elle devient l'ancienne génération et l'ancienne est abandonnée.
+ * Une valeur trouvée dans l'ancienne génération est remontée dans la récente :
+ * seules les valeurs qui n'ont pas servi pendant toute une génération sont
+ * recalculées, les noms fréquents restent en cache.
+ * 
+ * Les valeurs retournées sont partagées et ne doivent pas être modifiées.
+ */
+public abstract class CacheNormalisation<V> {
+
+  public static final int TAILLE_MAX_DEFAUT = 200000;
+
+  /** Passage en minuscules (critère toponymique). */
+  public static final CacheNormalisation<String> MINUSCULES = new CacheNormalisation<String>(TAILLE_MAX_DEFAUT) {
+    @Override
+    protected String calculer(String brut) {
+      return canonique(this, brut, brut.toLowerCase());
+    }
+  };
+
+  /** Normalisation de la mesure de Samal : minuscules, sans accent ni ponctuation. */
+  public static final CacheNormalisation<String> SAMAL = new CacheNormalisation<String>(TAILLE_MAX_DEFAUT) {
+    @Override
+    protected String calculer(String brut) {
+      ApproximateMatcher matcher = new ApproximateMatcher();
+      matcher.setIgnoreCase(true);
+      matcher.setIgnoreAccent(true);
+      return TraitementChainesDeCaracteres.ignorePunctuation(matcher.process(brut));
+    }
+  };
+
+  /** Normalisation des index de toponymes (cf. NormalisationTexte). */
+  public static final CacheNormalisation<String> INDEX = new CacheNormalisation<String>(TAILLE_MAX_DEFAUT) {
+    @Override
+    protected String calculer(String brut) {
+      return canonique(this, brut, NormalisationTexte.normaliser(brut));
+    }
+  };
+
+  /** Génération courante : valeurs ajoutées ou utilisées depuis le dernier vieillissement. */
+  private volatile ConcurrentHashMap<String, V> recents;
+
+  /** Génération précédente, lue seulement. */
+  private volatile ConcurrentHashMap<String, V> anciens;
+
+  private final int tailleGeneration;
+
+  /**
+   * @param tailleMax nombre maximal de valeurs gardées (les deux générations)
+   */
+  public CacheNormalisation(int tailleMax) {
+    this.tailleGeneration = Math.max(1, tailleMax / 2);
+    this.recents = nouvelleGeneration();
+    this.anciens = nouvelleGeneration();
+  }
+
+  private ConcurrentHashMap<String, V> nouvelleGeneration() {
+    return new ConcurrentHashMap<String, V>(Math.min(this.tailleGeneration, 1024));
+  }
+
+  /**
+   * Calcul de la forme normalisée, appelé une fois par valeur brute distincte.
+   */
+  protected abstract V calculer(String brut);
+
+  /**
+   * @param brut valeur brute, non null
+   * @return forme normalisée de brut
+   */
+  public V get(String brut) {
+    ConcurrentHashMap<String, V> generation = this.recents;
+    V valeur = generation.get(brut);
+    if (valeur != null) {
+      return valeur;
+    }
+    // Valeur encore dans l'ancienne génération : remontée sans recalcul
+    valeur = this.anciens.get(brut);
+    if (valeur == null) {
+      valeur = calculer(brut);
+    }
+    V existante = generation.putIfAbsent(brut, valeur);
+    if (existante != null) {
+      return existante;
+    }
+    if (generation.size() >= this.tailleGeneration) {
+      vieillir(generation);
+    }
+    return valeur;
+  }
+
+  /**
+   * La génération pleine devient l'ancienne ; un seul thread fait le
+   * changement pour une génération donnée.
+   */
+  private synchronized void vieillir(ConcurrentHashMap<String, V> pleine) {
+    if (this.recents == pleine) {
+      this.anciens = pleine;
+      this.recents = nouvelleGeneration();
+    }
+  }
+
+  /**
+   * Partage d'une même instance pour toutes les valeurs brutes de même forme
+   * normalisée : la forme normalisée est elle-même mise en cache (normalisation
+   * idempotente uniquement).
+   */
+  private static String canonique(CacheNormalisation<String> c, String brut, String normalise) {
+    return normalise.equals(brut) ? brut : c.get(normalise);
+  }
+
+  /**
+   * @return nombre de valeurs en cache (une valeur remontée de l'ancienne
+   *         génération peut être comptée deux fois)
+   */
+  public int size() {
+    return this.recents.size() + this.anciens.size();
+  }
+
+  public synchronized void clear() {
+    this.anciens = nouvelleGeneration();
+    this.recents = nouvelleGeneration();
+  }
+
+}
@@ -37,6 +37,35 @@ public class DistanceAbstractText implements Distance {
     return this.txtComp;
   }
 
+  /**
+   * Distances entre un texte de référence et un tableau de textes candidats.
+   *
+   * @param txtRef texte de référence
+   * @param txtComps textes candidats
+   * @return distances[i] = distance(txtRef, txtComps[i])
+   */
+  public double[] getDistances(String txtRef, String[] txtComps) {
+    double[] distances = new double[txtComps.length];
+    getDistances(txtRef, txtComps, distances);
+    return distances;
+  }
+
+  /**
+   * Version sans allocation : les distances sont écrites dans le tableau fourni.
+   * Les sous-classes redéfinissent cette méthode pour ne faire qu'une seule fois
+   * les prétraitements du texte de référence.
+   *
+   * @param txtRef texte de référence
+   * @param txtComps textes candidats
+   * @param distances tableau de sortie, de taille au moins txtComps.length
+   */
+  public void getDistances(String txtRef, String[] txtComps, double[] distances) {
+    for (int i = 0; i < txtComps.length; i++) {
+      setText(txtRef, txtComps[i]);
+      distances[i] = getDistance();
+    }
+  }
+
   @Override
   public double getDistance() {
     return 0;
@@ -16,89 +16,51 @@ package fr.ign.cogit.distance.text;
 import fr.ign.cogit.distance.Distance;
 
 /**
- * @author Subham, M-D Van Damme
+ * Distance de Hamming normalisée, pour des codes de largeur fixe (code INSEE,
+ * numéro de route, ...) :
+ *    Distance(s1, s2) = Hamming(s1, s2) / max(long(s1), long(s2))
+ * 
+ * La comparaison ne tient pas compte de la casse. Si les longueurs diffèrent, les
+ * caractères en trop comptent comme des différences. Un code null est traité
+ * comme une chaîne vide.
+ * 
+ * Les caractères sont rangés par 4 dans des long, comparés par XOR, et les
+ * positions différentes comptées avec Long.bitCount.
  * 
+ * @author Subham, M-D Van Damme
  */
-public class DistanceHamming implements Distance {
+public class DistanceHamming extends DistanceAbstractText implements Distance {
   
+  /** Caractère de bourrage pour la chaîne la plus courte (non-caractère Unicode). */
+  private static final char BOURRAGE = '\uFFFF';
   
-  /**
-   * @return true if and only if every character in the input String s is one of a, A, c, C, g, G, t or T.
-   * @return false if s is null or empty.
-   */
-  public static boolean isDNASequence(String s) {
-    // TODO fill in this method
-    if (s.length()==0 || s.equals(null)) {
-      return false;
-    } else {
-      String temp=  s.toUpperCase();
-      for (int i=0;i < temp.length();i++) {
-        char c=temp.charAt(i);
-        if (c=='A' || c=='T' || c== 'C' || c=='G' || c==' ') {
-          continue;
-        } else {
-          System.exit(0);
-        }
-      }
-      return true;
+  private static final long BITS_BAS = 0x7FFF7FFF7FFF7FFFL;
+  private static final long BITS_HAUTS = 0x8000800080008000L;
+  
+  @Override
+  public double getDistance() {
+    return getDistance(txtRef, txtComp);
+  }
+  
+  public static double getDistance(String s, String t) {
+    int n = Math.max(longueur(s), longueur(t));
+    if (n == 0) {
+      return 0;
     }
+    return getHammingDistance(s, t) / n;
   }
   
   /**
-   * Get the distance matrix
-   *
-   * @param sequences - array of sequences
-   * @return distance matrix
+   * Le code de référence est rangé en mots de 64 bits une seule fois pour le lot.
    */
-  public static int[][] getDistances(String[] sequences) {
-    String s1 = sequences[0];
-    String s2 = sequences[1];
-    if (s1 == null || s2 == null) {
-      System.exit(0);
-    }
-    int m = s1.length();
-    int n = s2.length();
-    // normalize case
-    s1 = s1.toUpperCase();
-    s2 = s2.toUpperCase();
-    int distance[][] = new int[40][40];
-       
-    // Instead of a 2d array of space O(m*n) such as 
-    // int d[][] = new int[m + 1][n + 1], only the previous row and 
-    // current row need to be stored at any one time in prevD[] and currD[].
-    int prevD[] = new int[n + 1];
-    int currD[] = new int[n + 1];
-    int temp[]; // temporary pointer for swapping
-       
-    // the distance of any second string to an empty first string
-    for (int j = 0; j < n + 1; j++) {
-      prevD[j] = j;
-    }
-       
-    // for each row in the distance matrix
-    for (int i = 0; i < m; i++) {
-      // the distance of any first string to an empty second string
-      currD[0] = i + 1;
-      char ch1 = s1.charAt(i);
-           
-      // for each column in the distance matrix
-      for (int j = 1; j <= n; j++) {
-        char ch2 = s2.charAt(j - 1);
-        if (ch1 == ch2) {
-          currD[j] = prevD[j - 1];
-        } else {
-          currD[j] = Math.min(prevD[j] + 1, Math.min(currD[j - 1] + 1, prevD[j - 1] + 1));
-        }
-      }
-           
-      temp = prevD;
-      prevD = currD;
-      currD = temp;
-           
+  @Override
+  public void getDistances(String txtRef, String[] txtComps, double[] distances) {
+    long[] motsRef = ranger(txtRef);
+    int lRef = longueur(txtRef);
+    for (int i = 0; i < txtComps.length; i++) {
+      int n = Math.max(lRef, longueur(txtComps[i]));
+      distances[i] = n == 0 ? 0 : (double) hamming(motsRef, lRef, txtComps[i]) / n;
     }
-       
-    return distance;
-       
   }
   
   /**
@@ -106,51 +68,55 @@ public class DistanceHamming implements Distance {
    *
    * @param sequence1 - the first sequence
    * @param sequence2 - the second sequence
-   * @return the hamming distance
+   * @return the hamming distance (number of differing positions)
    */
-  public static double getHammingDistance(String sequence1, String sequence2){
-    // TODO fill in this method
-    int distance =0;
-    if (sequence1 == null || sequence2==null) {
-       System.exit(0);
+  public static double getHammingDistance(String sequence1, String sequence2) {
+    return hamming(ranger(sequence1), longueur(sequence1), sequence2);
+  }
+  
+  private static int longueur(String s) {
+    return s == null ? 0 : s.length();
+  }
+  
+  /**
+   * Range les caractères (en majuscules) par 4 dans des long.
+   */
+  private static long[] ranger(String s) {
+    int n = longueur(s);
+    long[] mots = new long[(n + 3) >> 2];
+    for (int m = 0; m < mots.length; m++) {
+      mots[m] = mot(s, n, m);
     }
-       
-    sequence1 = sequence1.toUpperCase();
-    sequence2 = sequence2.toUpperCase();
-       
-    if(sequence1.length() != sequence2.length()) {
-      System.out.println("The string are not equal in length ,Please enter the strings wit equal lengths ");
+    return mots;
+  }
+  
+  /**
+   * Mot de 64 bits n° m de la chaîne s de longueur n, complété par du bourrage.
+   */
+  private static long mot(String s, int n, int m) {
+    long mot = 0;
+    for (int k = 0; k < 4; k++) {
+      int i = (m << 2) + k;
+      char c = i < n ? Character.toUpperCase(s.charAt(i)) : BOURRAGE;
+      mot |= ((long) c) << (k << 4);
     }
-       
-    for(int i=0;i < sequence1.length();i++) {
-      if(sequence1.charAt(i) != sequence2.charAt(i)) {
-        distance++;
-      }
+    return mot;
+  }
+  
+  private static int hamming(long[] motsRef, int lRef, String comp) {
+    int lComp = longueur(comp);
+    int nbMots = (Math.max(lRef, lComp) + 3) >> 2;
+    int distance = 0;
+    for (int m = 0; m < nbMots; m++) {
+      long a = m < motsRef.length ? motsRef[m] : -1L;
+      long x = a ^ mot(comp, lComp, m);
+      // bit de poids fort de chaque caractère positionné si le caractère diffère
+      long diff = (((x & BITS_BAS) + BITS_BAS) | x) & BITS_HAUTS;
+      distance += Long.bitCount(diff);
     }
-       
     return distance;
-       
   }
-
-  public static void main(String[] args) {
-    
-    // // ACCC - Atcg = 2
-    // 1011101 - 1001001 = 2 
-    // ramer - cases = 3
-    // 0000000000 - 1111111111 = 10
-    // 0000011111 - 1111100000 = 10
-    String s1 = "Val-Bertier";  
-    String s2 = "valbertier ";
-    double d = getHammingDistance(s1, s2);
-    System.out.print("Hamming distance is " + d);
-
-  }
-
-  @Override
-  public double getDistance() {
-    return 0;
-  }
-
+  
   @Override
   public String getNom() {
       return "Hamming";
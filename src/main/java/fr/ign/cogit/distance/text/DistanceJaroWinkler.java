@@ -18,6 +18,9 @@ import org.apache.lucene.search.spell.JaroWinklerDistance;
 import fr.ign.cogit.distance.Distance;
 
 /**
+ * Distance = 1 - similarité de Jaro-Winkler, les textes étant comparés en
+ * minuscules comme dans le critère toponymique (formes lues dans
+ * CacheNormalisation.MINUSCULES).
  * 
  * @author M-D Van Damme
  */
@@ -25,8 +28,7 @@ public class DistanceJaroWinkler extends DistanceAbstractText implements Distanc
   
   @Override
   public double getDistance() {
-    double distNorm = 1 - getSimilarite(txtRef, txtComp);
-    return distNorm;
+    return getDistance(txtRef, txtComp);
   }
   
   public static double getDistance(String s, String t) {
@@ -36,10 +38,23 @@ public class DistanceJaroWinkler extends DistanceAbstractText implements Distanc
   
   public static double getSimilarite(String s1, String s2) {
     JaroWinklerDistance j = new JaroWinklerDistance();
-    double jaro = j.getDistance(s1, s2);
+    double jaro = j.getDistance(CacheNormalisation.MINUSCULES.get(s1), CacheNormalisation.MINUSCULES.get(s2));
     return jaro;
   }
   
+  /**
+   * Une seule instance de JaroWinklerDistance pour tout le lot ; le texte de
+   * référence n'est cherché qu'une fois dans le cache.
+   */
+  @Override
+  public void getDistances(String txtRef, String[] txtComps, double[] distances) {
+    JaroWinklerDistance j = new JaroWinklerDistance();
+    String ref = CacheNormalisation.MINUSCULES.get(txtRef);
+    for (int i = 0; i < txtComps.length; i++) {
+      distances[i] = 1 - j.getDistance(ref, CacheNormalisation.MINUSCULES.get(txtComps[i]));
+    }
+  }
+  
   @Override
   public String getNom() {
       return "JaroWinkler";
@@ -19,25 +19,137 @@ import fr.ign.cogit.distance.Distance;
 
 /**
  * Distance(s1, s2) = DistanceLevenshtein(s1, s2) / max(long(s1), long(s2))
+ * 
+ * Les textes sont comparés en minuscules, comme dans le critère toponymique ;
+ * la forme en minuscules de chaque valeur est lue dans 
+ * CacheNormalisation.MINUSCULES, pas recalculée à chaque appel.
  * @author M-D Van Damme
  */
 public class DistanceLevenshtein extends DistanceAbstractText implements Distance {
   
   @Override
   public double getDistance() {
-    double l = StringUtils.getLevenshteinDistance(txtRef, txtComp);
-    double distNorm = l / Math.max (txtRef.length(), txtComp.length());
-    return distNorm;
+    return getDistance(txtRef, txtComp);
   }
   
   public static double getDistance(String s, String t) {
+    s = CacheNormalisation.MINUSCULES.get(s);
+    t = CacheNormalisation.MINUSCULES.get(t);
     double l = StringUtils.getLevenshteinDistance(s, t);
     double distNorm = l / Math.max (s.length(), t.length());
     return distNorm;
   }
   
+  /**
+   * Le texte de référence sert de motif à l'algorithme bit-parallèle de Myers :
+   * les masques de caractères sont construits une seule fois pour tout le lot.
+   * Au-delà de 64 caractères, on revient au calcul classique.
+   */
+  @Override
+  public void getDistances(String txtRef, String[] txtComps, double[] distances) {
+    this.txtRef = txtRef;
+    if (txtRef.length() == 0 || txtRef.length() > MasquesMyers.LONGUEUR_MAX) {
+      for (int i = 0; i < txtComps.length; i++) {
+        this.txtComp = txtComps[i];
+        distances[i] = getDistance();
+      }
+      return;
+    }
+    String ref = CacheNormalisation.MINUSCULES.get(txtRef);
+    MasquesMyers masques = new MasquesMyers(ref);
+    for (int i = 0; i < txtComps.length; i++) {
+      this.txtComp = txtComps[i];
+      String comp = CacheNormalisation.MINUSCULES.get(txtComps[i]);
+      double l = masques.distance(comp);
+      distances[i] = l / Math.max(ref.length(), comp.length());
+    }
+  }
+
   @Override
   public String getNom() {
       return "Levenshtein";
   }
+
+  /**
+   * Masques de caractères du motif pour la distance d'édition de Myers (1999),
+   * dans la formulation de Hyyrö pour la distance globale.
+   */
+  static final class MasquesMyers {
+
+    static final int LONGUEUR_MAX = 64;
+
+    /** Masques des caractères Latin-1, indexés directement. */
+    private final long[] peqLatin = new long[256];
+
+    /** Masques des autres caractères, recherchés linéairement (rares dans les toponymes). */
+    private final char[] autresCar;
+    private final long[] autresPeq;
+    private int nbAutres = 0;
+
+    private final int m;
+    private final long dernierBit;
+
+    MasquesMyers(String motif) {
+      this.m = motif.length();
+      this.dernierBit = 1L << (m - 1);
+      this.autresCar = new char[m];
+      this.autresPeq = new long[m];
+      for (int i = 0; i < m; i++) {
+        char c = motif.charAt(i);
+        if (c < 256) {
+          peqLatin[c] |= 1L << i;
+        } else {
+          int k = indexAutre(c);
+          if (k < 0) {
+            k = nbAutres++;
+            autresCar[k] = c;
+          }
+          autresPeq[k] |= 1L << i;
+        }
+      }
+    }
+
+    private int indexAutre(char c) {
+      for (int k = 0; k < nbAutres; k++) {
+        if (autresCar[k] == c) {
+          return k;
+        }
+      }
+      return -1;
+    }
+
+    private long peq(char c) {
+      if (c < 256) {
+        return peqLatin[c];
+      }
+      int k = indexAutre(c);
+      return k < 0 ? 0 : autresPeq[k];
+    }
+
+    /**
+     * @return distance de Levenshtein (non normalisée) entre le motif et le texte
+     */
+    int distance(String texte) {
+      long pv = -1L;
+      long mv = 0L;
+      int score = m;
+      for (int j = 0; j < texte.length(); j++) {
+        long eq = peq(texte.charAt(j));
+        long xv = eq | mv;
+        long xh = (((eq & pv) + pv) ^ pv) | eq;
+        long ph = mv | ~(xh | pv);
+        long mh = pv & xh;
+        if ((ph & dernierBit) != 0) {
+          score++;
+        } else if ((mh & dernierBit) != 0) {
+          score--;
+        }
+        ph = (ph << 1) | 1L;
+        mh = mh << 1;
+        pv = mh | ~(xv | ph);
+        mv = ph & xv;
+      }
+      return score;
+    }
+  }
 }
@@ -21,12 +21,27 @@ import fr.ign.cogit.distance.Distance;
  */
 public class DistanceSamal extends DistanceAbstractText implements Distance {
   
+	/** Pré-filtre phonétique, désactivé par défaut. */
+	private boolean filtrePhonetique = false;
+  
+	/**
+	 * Active le pré-filtre phonétique : deux toponymes qui n'ont aucune clé
+	 * phonétique commune (cf. PhonetiqueFrancaise) sont à distance 1 sans calcul
+	 * de la mesure de Samal. Les toponymes vides ne sont jamais filtrés.
+	 */
+	public void setFiltrePhonetique(boolean filtrePhonetique) {
+		this.filtrePhonetique = filtrePhonetique;
+	}
+  
 	public static double mesureRessemblanceToponymeSamal(String string1, String string2) {
 		return MesureRessemblance.getMesureRessemblance(string1, string2);
 	}
   
 	@Override
 	public double getDistance() {
+		if (filtrePhonetique && estFiltre(PhonetiqueFrancaise.cles(txtRef), PhonetiqueFrancaise.cles(txtComp))) {
+			return 1;
+		}
 		return 1 - mesureRessemblanceToponymeSamal(txtRef, txtComp);
 	}
   
@@ -34,6 +49,44 @@ public class DistanceSamal extends DistanceAbstractText implements Distance {
 		return 1 - mesureRessemblanceToponymeSamal(s, t);
 	}
   
+	/**
+	 * La chaîne de référence n'est normalisée et découpée qu'une fois pour le lot.
+	 */
+	@Override
+	public void getDistances(String txtRef, String[] txtComps, double[] distances) {
+		if (!filtrePhonetique) {
+			double[] ressemblances = MesureRessemblance.getMesuresRessemblance(txtRef, txtComps);
+			for (int i = 0; i < txtComps.length; i++) {
+				distances[i] = 1 - ressemblances[i];
+			}
+			return;
+		}
+		
+		// Seuls les candidats qui passent le filtre sont comparés
+		String[] clesRef = PhonetiqueFrancaise.cles(txtRef);
+		int[] retenus = new int[txtComps.length];
+		int nbRetenus = 0;
+		for (int i = 0; i < txtComps.length; i++) {
+			if (estFiltre(clesRef, PhonetiqueFrancaise.cles(txtComps[i]))) {
+				distances[i] = 1;
+			} else {
+				retenus[nbRetenus++] = i;
+			}
+		}
+		String[] comps = new String[nbRetenus];
+		for (int k = 0; k < nbRetenus; k++) {
+			comps[k] = txtComps[retenus[k]];
+		}
+		double[] ressemblances = MesureRessemblance.getMesuresRessemblance(txtRef, comps);
+		for (int k = 0; k < nbRetenus; k++) {
+			distances[retenus[k]] = 1 - ressemblances[k];
+		}
+	}
+  
+	private static boolean estFiltre(String[] clesRef, String[] clesComp) {
+		return clesRef.length > 0 && clesComp.length > 0 && !PhonetiqueFrancaise.partageCle(clesRef, clesComp);
+	}
+  
 	@Override
 	public String getNom() {
 		return "Samal";
@@ -19,7 +19,6 @@ import java.util.StringTokenizer;
 
 import fr.ign.cogit.geoxygene.util.string.ApproximateMatcher;
 import fr.ign.cogit.geoxygene.util.string.MatriceConfiance;
-import fr.ign.cogit.geoxygene.util.string.TraitementChainesDeCaracteres;
 
 /**
  * 
@@ -29,48 +28,66 @@ import fr.ign.cogit.geoxygene.util.string.TraitementChainesDeCaracteres;
 public class MesureRessemblance {
 
   public static double getMesureRessemblance(String string1, String string2) {
+    return getMesuresRessemblance(string1, new String[] { string2 })[0];
+  }
+
+  /**
+   * Mesure de ressemblance entre une chaîne de référence et un tableau de
+   * chaînes candidates. La chaîne de référence n'est normalisée et découpée en
+   * mots qu'une seule fois pour tout le lot.
+   *
+   * @param string1 chaîne de référence
+   * @param strings2 chaînes candidates
+   * @return confiance[i] = ressemblance(string1, strings2[i])
+   */
+  public static double[] getMesuresRessemblance(String string1, String[] strings2) {
 
-    List<String> tokenLigne = new ArrayList<String>();
-    List<String> tokenColonne = new ArrayList<String>();
+    double[] confiances = new double[strings2.length];
     ApproximateMatcher matcher = new ApproximateMatcher();
-    MatriceConfiance matriceToken;
-    StringTokenizer st1, st2;
     matcher.setIgnoreCase(true);
     matcher.setIgnoreAccent(true);
-    double ecart = 0, ecartRelatif = 0, confiance = 0;
 
-    string1 = matcher.process(string1);
-    string1 = TraitementChainesDeCaracteres.ignorePunctuation(string1);
-    string2 = matcher.process(string2);
-    string2 = TraitementChainesDeCaracteres.ignorePunctuation(string2);
-    st1 = new StringTokenizer(string1);
-    st2 = new StringTokenizer(string2);
-    matriceToken = new MatriceConfiance(string1, string2);
+    string1 = CacheNormalisation.SAMAL.get(string1);
+    List<String> tokenLigne = decoupe(string1);
+
+    for (int k = 0; k < strings2.length; k++) {
+      String string2 = CacheNormalisation.SAMAL.get(strings2[k]);
+      List<String> tokenColonne = decoupe(string2);
+      confiances[k] = confiance(matcher, string1, string2, tokenLigne, tokenColonne);
+    }
+    return confiances;
+  }
+
+  private static List<String> decoupe(String s) {
+    List<String> tokens = new ArrayList<String>();
+    StringTokenizer st = new StringTokenizer(s);
+    while (st.hasMoreElements()) {
+      tokens.add(st.nextToken());
+    }
+    return tokens;
+  }
+
+  private static double confiance(ApproximateMatcher matcher, String string1, String string2,
+      List<String> tokenLigne, List<String> tokenColonne) {
+
+    MatriceConfiance matriceToken = new MatriceConfiance(string1, string2);
     // initialisation matrice
     for (int i = 0; i < matriceToken.nbRows; i++) {
       for (int j = 0; j < matriceToken.nbColumns; j++) {
         matriceToken.values[i][j] = 0;
       }
     }
-    while (st1.hasMoreElements()) {
-      tokenLigne.add(st1.nextToken());
-    }
-    while (st2.hasMoreElements()) {
-      tokenColonne.add(st2.nextToken());
-    }
     for (int i = 0; i < tokenLigne.size(); i++) {
+      String tokenI = tokenLigne.get(i);
       for (int j = 0; j < tokenColonne.size(); j++) {
-        ecart = matcher.distance(tokenLigne.get(i).toString(), tokenColonne
-            .get(j).toString());
+        String tokenJ = tokenColonne.get(j);
+        double ecart = matcher.distance(tokenI, tokenJ);
         // l'ecart relatif ici est la distance normalisée
-        ecartRelatif = 1 - (ecart / Math.max(tokenLigne.get(i).toString()
-            .length(), tokenColonne.get(j).toString().length()));
+        double ecartRelatif = 1 - (ecart / Math.max(tokenI.length(), tokenJ.length()));
         matriceToken.values[i][j] = ecartRelatif;
-        //   matriceToken.values[i][j] = ecart;
       }
     }
-    confiance = matriceToken.confidenceMaxsRows();
-    return confiance;
+    return matriceToken.confidenceMaxsRows();
   }
   
 }
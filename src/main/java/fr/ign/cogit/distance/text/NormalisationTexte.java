@@ -0,0 +1,64 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.distance.text;
+
+import java.text.Normalizer;
+
+/**
+ * Normalisation des toponymes pour l'indexation : minuscules, sans accents,
+ * la ponctuation est remplacée par des espaces et les espaces multiples réduits.
+ */
+public final class NormalisationTexte {
+
+  private NormalisationTexte() {
+  }
+
+  /**
+   * @param s chaîne brute (peut être null)
+   * @return chaîne normalisée, "" si s est null
+   */
+  public static String normaliser(String s) {
+    if (s == null) {
+      return "";
+    }
+    String d = Normalizer.normalize(s, Normalizer.Form.NFD);
+    StringBuilder sb = new StringBuilder(d.length());
+    boolean espace = true;
+    for (int i = 0; i < d.length(); i++) {
+      char c = d.charAt(i);
+      if (Character.getType(c) == Character.NON_SPACING_MARK) {
+        continue;
+      }
+      if (c == 'œ' || c == 'Œ') {
+        sb.append("oe");
+        espace = false;
+      } else if (c == 'æ' || c == 'Æ') {
+        sb.append("ae");
+        espace = false;
+      } else if (Character.isLetterOrDigit(c)) {
+        sb.append(Character.toLowerCase(c));
+        espace = false;
+      } else if (!espace) {
+        sb.append(' ');
+        espace = true;
+      }
+    }
+    int n = sb.length();
+    if (n > 0 && sb.charAt(n - 1) == ' ') {
+      sb.setLength(n - 1);
+    }
+    return sb.toString();
+  }
+
+}
@@ -0,0 +1,219 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.distance.text;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Clés phonétiques des toponymes français, dans l'esprit de l'algorithme
+ * Soundex2 (F. Brouard).
+ * 
+ * Le toponyme est normalisé (cf. NormalisationTexte), les abréviations usuelles
+ * sont développées ("st" → "saint", "mt" → "mont", ...) et les mots vides
+ * ("de", "la", "l", ...) sont ignorés. Chaque mot restant donne une clé de 4
+ * caractères au plus, par exemple :
+ *   "Sibérie", "Siberie" → "sbr"
+ *   "Escarpu", "Escarpus" → "eskr"
+ */
+public final class PhonetiqueFrancaise {
+
+  /** Longueur maximale d'une clé. */
+  private static final int LONGUEUR_CLE = 4;
+
+  private static final String[] VIDE = new String[0];
+
+  private static final Set<String> MOTS_VIDES = new HashSet<String>(Arrays.asList(
+      "le", "la", "les", "l", "de", "du", "des", "d", "et", "ou", "en", "a", "au", "aux", "sur", "sous"));
+
+  private static final Map<String, String> ABREVIATIONS = new HashMap<String, String>();
+  static {
+    ABREVIATIONS.put("st", "saint");
+    ABREVIATIONS.put("ste", "sainte");
+    ABREVIATIONS.put("sts", "saints");
+    ABREVIATIONS.put("stes", "saintes");
+    ABREVIATIONS.put("mt", "mont");
+    ABREVIATIONS.put("mts", "monts");
+    ABREVIATIONS.put("gd", "grand");
+    ABREVIATIONS.put("gde", "grande");
+    ABREVIATIONS.put("gds", "grands");
+    ABREVIATIONS.put("gdes", "grandes");
+    ABREVIATIONS.put("nd", "notre dame");
+    ABREVIATIONS.put("ch", "chemin");
+    ABREVIATIONS.put("che", "chemin");
+    ABREVIATIONS.put("rte", "route");
+    ABREVIATIONS.put("av", "avenue");
+    ABREVIATIONS.put("bd", "boulevard");
+    ABREVIATIONS.put("pl", "place");
+    ABREVIATIONS.put("imp", "impasse");
+    ABREVIATIONS.put("vx", "vieux");
+  }
+
+  /** Clés déjà calculées, par valeur brute du toponyme. */
+  private static final CacheNormalisation<String[]> CLES = new CacheNormalisation<String[]>(
+      CacheNormalisation.TAILLE_MAX_DEFAUT) {
+    @Override
+    protected String[] calculer(String brut) {
+      return calculerCles(brut);
+    }
+  };
+
+  private PhonetiqueFrancaise() {
+  }
+
+  /**
+   * @param nom toponyme brut (peut être null)
+   * @return clés phonétiques distinctes et triées des mots significatifs (tableau
+   *         partagé, à ne pas modifier)
+   */
+  public static String[] cles(String nom) {
+    if (nom == null) {
+      return VIDE;
+    }
+    return CLES.get(nom);
+  }
+
+  private static String[] calculerCles(String nom) {
+    String s = CacheNormalisation.INDEX.get(nom);
+    if (s.length() == 0) {
+      return VIDE;
+    }
+    Set<String> cles = new HashSet<String>();
+    for (String mot : s.split(" ")) {
+      String developpe = ABREVIATIONS.get(mot);
+      if (developpe != null) {
+        for (String m : developpe.split(" ")) {
+          ajouter(cles, m);
+        }
+      } else {
+        ajouter(cles, mot);
+      }
+    }
+    String[] tab = cles.toArray(new String[cles.size()]);
+    Arrays.sort(tab);
+    return tab;
+  }
+
+  private static void ajouter(Set<String> cles, String mot) {
+    if (!MOTS_VIDES.contains(mot)) {
+      String cle = cle(mot);
+      if (cle.length() > 0) {
+        cles.add(cle);
+      }
+    }
+  }
+
+  /**
+   * @return true si les deux tableaux triés de clés ont au moins une clé commune
+   */
+  public static boolean partageCle(String[] cles1, String[] cles2) {
+    int i = 0;
+    int j = 0;
+    while (i < cles1.length && j < cles2.length) {
+      int c = cles1[i].compareTo(cles2[j]);
+      if (c == 0) {
+        return true;
+      } else if (c < 0) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Clé Soundex2 d'un mot déjà normalisé (minuscules, sans accent). Les mots
+   * contenant des chiffres (numéros de route, ...) sont gardés tels quels.
+   */
+  public static String cle(String mot) {
+    for (int i = 0; i < mot.length(); i++) {
+      if (Character.isDigit(mot.charAt(i))) {
+        return mot;
+      }
+    }
+    if (mot.length() == 0) {
+      return mot;
+    }
+
+    // 1. Sons durs
+    String s = mot.replace("gui", "ki").replace("gue", "ke").replace("ga", "ka").replace("go", "ko")
+        .replace("gu", "k").replace("ca", "ka").replace("co", "ko").replace("cu", "ku")
+        .replace("q", "k").replace("cc", "k").replace("ck", "k");
+
+    // 2. Voyelles (sauf la première lettre et le y) remplacées par 'a'
+    StringBuilder sb = new StringBuilder(s.length());
+    sb.append(s.charAt(0));
+    for (int i = 1; i < s.length(); i++) {
+      char c = s.charAt(i);
+      sb.append(c == 'e' || c == 'i' || c == 'o' || c == 'u' ? 'a' : c);
+    }
+    s = sb.toString();
+
+    // 3. Préfixes, puis "ph" partout
+    if (s.startsWith("mac")) {
+      s = "mcc" + s.substring(3);
+    } else if (s.startsWith("asa")) {
+      s = "aza" + s.substring(3);
+    } else if (s.startsWith("kn")) {
+      s = "nn" + s.substring(2);
+    } else if (s.startsWith("pf")) {
+      s = "ff" + s.substring(2);
+    } else if (s.startsWith("sch")) {
+      s = "sss" + s.substring(3);
+    }
+    s = s.replace("ph", "ff");
+
+    // 4. 'h' muet (sauf "ch" et "sh"), 'y' sauf après 'a'
+    sb.setLength(0);
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      char prec = i > 0 ? s.charAt(i - 1) : ' ';
+      if (c == 'h' && prec != 'c' && prec != 's') {
+        continue;
+      }
+      if (c == 'y' && prec != 'a') {
+        continue;
+      }
+      sb.append(c);
+    }
+
+    // 5. Terminaison muette
+    int n = sb.length();
+    if (n > 1) {
+      char fin = sb.charAt(n - 1);
+      if (fin == 'a' || fin == 'd' || fin == 't' || fin == 's') {
+        sb.setLength(n - 1);
+      }
+    }
+
+    // 6. 'a' supprimés sauf en tête, 7. lettres répétées, 8. troncature
+    StringBuilder cle = new StringBuilder(LONGUEUR_CLE);
+    for (int i = 0; i < sb.length() && cle.length() < LONGUEUR_CLE; i++) {
+      char c = sb.charAt(i);
+      if (c == 'a' && i > 0) {
+        continue;
+      }
+      if (cle.length() > 0 && cle.charAt(cle.length() - 1) == c) {
+        continue;
+      }
+      cle.append(c);
+    }
+    return cle.toString();
+  }
+
+}
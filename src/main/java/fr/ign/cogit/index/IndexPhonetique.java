@@ -0,0 +1,157 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.ign.cogit.distance.text.PhonetiqueFrancaise;
+import fr.ign.cogit.geoxygene.api.feature.IFeature;
+import fr.ign.cogit.geoxygene.api.feature.IPopulation;
+import fr.ign.cogit.geoxygene.feature.Population;
+import fr.ign.cogit.metadata.Objet;
+
+/**
+ * Index des objets de comparaison par clé phonétique du toponyme
+ * (cf. PhonetiqueFrancaise). Les clés de chaque objet sont calculées une seule
+ * fois à la construction.
+ * 
+ * Sert au blocage : les candidats d'un objet de référence sont les objets qui
+ * partagent au moins une clé phonétique avec lui. C'est une alternative peu
+ * coûteuse à la sélection spatiale, ou un filtre supplémentaire.
+ * 
+ * L'index est immuable une fois construit et peut être partagé entre threads.
+ */
+public class IndexPhonetique {
+
+  private static final int[] VIDE = new int[0];
+
+  private final IFeature[] features;
+
+  /** Clés triées de chaque objet. */
+  private final String[][] clesParObjet;
+
+  /** Clé → indices triés des objets. */
+  private final Map<String, int[]> index;
+
+  public IndexPhonetique(IPopulation<IFeature> popComp, Objet objComp) {
+    int n = popComp.size();
+    this.features = new IFeature[n];
+    this.clesParObjet = new String[n][];
+
+    Map<String, List<Integer>> listes = new HashMap<String, List<Integer>>();
+    int i = 0;
+    for (IFeature feature : popComp) {
+      this.features[i] = feature;
+      Object nom = feature.getAttribute(objComp.getNom());
+      String[] cles = PhonetiqueFrancaise.cles(nom == null ? null : nom.toString());
+      this.clesParObjet[i] = cles;
+      for (String cle : cles) {
+        List<Integer> l = listes.get(cle);
+        if (l == null) {
+          l = new ArrayList<Integer>();
+          listes.put(cle, l);
+        }
+        l.add(i);
+      }
+      i++;
+    }
+
+    this.index = new HashMap<String, int[]>(listes.size() * 2);
+    for (Map.Entry<String, List<Integer>> e : listes.entrySet()) {
+      List<Integer> l = e.getValue();
+      int[] ids = new int[l.size()];
+      for (int k = 0; k < ids.length; k++) {
+        ids[k] = l.get(k);
+      }
+      this.index.put(e.getKey(), ids);
+    }
+  }
+
+  public int size() {
+    return this.features.length;
+  }
+
+  /**
+   * @return clés phonétiques (triées) de l'objet d'indice i
+   */
+  public String[] getCles(int i) {
+    return this.clesParObjet[i];
+  }
+
+  /**
+   * @return indices triés des objets qui portent la clé
+   */
+  public int[] getIndices(String cle) {
+    int[] ids = this.index.get(cle);
+    return ids == null ? VIDE : ids;
+  }
+
+  /**
+   * Filtre : vrai si les clés du toponyme de référence (cf.
+   * PhonetiqueFrancaise.cles) croisent celles de l'objet de comparaison d'indice i.
+   */
+  public boolean partageCle(String[] clesRef, int i) {
+    return PhonetiqueFrancaise.partageCle(clesRef, this.clesParObjet[i]);
+  }
+
+  /**
+   * Les objets qui partagent au moins une clé avec le toponyme de l'objet de
+   * référence.
+   */
+  public IPopulation<IFeature> getCandidats(IFeature featRef, Objet objRef) {
+    Object nom = featRef.getAttribute(objRef.getNom());
+    return getCandidats(nom == null ? null : nom.toString());
+  }
+
+  /**
+   * Les objets qui partagent au moins une clé avec nom, du plus grand au plus
+   * petit nombre de clés communes.
+   * 
+   * @param nom toponyme brut
+   * @return liste de candidats pour AppariementDST.appariementObjet
+   */
+  public IPopulation<IFeature> getCandidats(String nom) {
+    String[] cles = PhonetiqueFrancaise.cles(nom);
+    Map<Integer, int[]> communs = new HashMap<Integer, int[]>();
+    for (String cle : cles) {
+      for (int id : getIndices(cle)) {
+        int[] c = communs.get(id);
+        if (c == null) {
+          communs.put(id, new int[] { 1 });
+        } else {
+          c[0]++;
+        }
+      }
+    }
+
+    long[] tri = new long[communs.size()];
+    int k = 0;
+    for (Map.Entry<Integer, int[]> e : communs.entrySet()) {
+      // nombre de clés communes décroissant, puis indice croissant
+      tri[k++] = ((long) (Integer.MAX_VALUE - e.getValue()[0]) << 32) | e.getKey();
+    }
+    Arrays.sort(tri);
+
+    IPopulation<IFeature> candidats = new Population<IFeature>();
+    for (long t : tri) {
+      candidats.add(this.features[(int) t]);
+    }
+    return candidats;
+  }
+
+}
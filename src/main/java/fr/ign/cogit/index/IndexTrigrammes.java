@@ -0,0 +1,321 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.index;
+
+import java.util.Arrays;
+
+import fr.ign.cogit.distance.text.CacheNormalisation;
+import fr.ign.cogit.geoxygene.api.feature.IFeature;
+import fr.ign.cogit.geoxygene.api.feature.IPopulation;
+import fr.ign.cogit.geoxygene.feature.Population;
+import fr.ign.cogit.metadata.Objet;
+
+/**
+ * Index inversé des trigrammes de caractères des toponymes d'une population de
+ * comparaison. Sert à sélectionner les candidats par le nom, pour les objets dont
+ * la géométrie est absente ou peu fiable.
+ * 
+ * Les toponymes sont normalisés (minuscules, sans accents ni ponctuation) puis
+ * encadrés d'un espace ; chaque trigramme est codé sur un alphabet réduit
+ * (espace, a-z, 0-9, autre), ce qui permet de ranger les listes de postings dans
+ * un simple tableau. Chaque liste est un tableau d'entiers trié des indices
+ * d'objets.
+ * 
+ * Les candidats sont classés par coefficient de Dice sur les trigrammes :
+ * 2 * |T(ref) ∩ T(comp)| / (|T(ref)| + |T(comp)|).
+ * 
+ * L'index est immuable une fois construit et peut être partagé entre threads.
+ */
+public class IndexTrigrammes {
+
+  /** Espace, a-z, 0-9 et un symbole pour tous les autres caractères. */
+  private static final int TAILLE_ALPHABET = 38;
+  private static final int NB_TRIGRAMMES = TAILLE_ALPHABET * TAILLE_ALPHABET * TAILLE_ALPHABET;
+  private static final int[] VIDE = new int[0];
+
+  private final IFeature[] features;
+
+  /** Nombre de trigrammes distincts de chaque objet. */
+  private final int[] nbTrigrammes;
+
+  /** postings[trigramme] = indices triés des objets qui contiennent ce trigramme. */
+  private final int[][] postings;
+
+  /**
+   * Construit l'index sur l'attribut toponymique (objComp.getNom()) de la
+   * population de comparaison.
+   */
+  public IndexTrigrammes(IPopulation<IFeature> popComp, Objet objComp) {
+    int n = popComp.size();
+    this.features = new IFeature[n];
+    this.nbTrigrammes = new int[n];
+    int[][] trigrammesParObjet = new int[n][];
+    int[] tailles = new int[NB_TRIGRAMMES];
+
+    int i = 0;
+    for (IFeature feature : popComp) {
+      this.features[i] = feature;
+      Object nom = feature.getAttribute(objComp.getNom());
+      int[] codes = trigrammes(nom == null ? "" : nom.toString());
+      trigrammesParObjet[i] = codes;
+      this.nbTrigrammes[i] = codes.length;
+      for (int code : codes) {
+        tailles[code]++;
+      }
+      i++;
+    }
+
+    // Les objets sont parcourus dans l'ordre : les listes sont triées par construction
+    this.postings = new int[NB_TRIGRAMMES][];
+    for (int code = 0; code < NB_TRIGRAMMES; code++) {
+      this.postings[code] = tailles[code] == 0 ? VIDE : new int[tailles[code]];
+      tailles[code] = 0;
+    }
+    for (i = 0; i < n; i++) {
+      for (int code : trigrammesParObjet[i]) {
+        this.postings[code][tailles[code]++] = i;
+      }
+    }
+  }
+
+  public int size() {
+    return this.features.length;
+  }
+
+  /**
+   * Les k meilleurs candidats pour le toponyme de l'objet de référence.
+   */
+  public IPopulation<IFeature> getCandidats(IFeature featRef, Objet objRef, int k) {
+    Object nom = featRef.getAttribute(objRef.getNom());
+    return getCandidats(nom == null ? "" : nom.toString(), k);
+  }
+
+  /**
+   * Les k objets de comparaison dont le toponyme partage le plus de trigrammes
+   * avec nom, par score décroissant. Les objets sans trigramme commun ne sont
+   * jamais retenus.
+   * 
+   * @param nom toponyme brut (il est normalisé ici)
+   * @param k nombre maximal de candidats
+   * @return liste de candidats pour AppariementDST.appariementObjet
+   */
+  public IPopulation<IFeature> getCandidats(String nom, int k) {
+    IPopulation<IFeature> candidats = new Population<IFeature>();
+    for (int id : getIndicesCandidats(nom, k)) {
+      candidats.add(this.features[id]);
+    }
+    return candidats;
+  }
+
+  /**
+   * @return indices (dans la population de comparaison) des k meilleurs
+   *         candidats, par score décroissant
+   */
+  public int[] getIndicesCandidats(String nom, int k) {
+    int[] codes = trigrammes(nom);
+    if (codes.length == 0 || k <= 0) {
+      return VIDE;
+    }
+
+    // Fusion des listes triées : un tas sur la tête de chaque liste
+    int q = codes.length;
+    int[][] listes = new int[q][];
+    int[] curseurs = new int[q];
+    int[] tas = new int[q];
+    int taille = 0;
+    for (int c = 0; c < q; c++) {
+      listes[c] = this.postings[codes[c]];
+      if (listes[c].length > 0) {
+        tas[taille] = c;
+        monter(tas, taille, listes, curseurs);
+        taille++;
+      }
+    }
+
+    // Top-k : tas-min sur le score
+    double[] meilleursScores = new double[k];
+    int[] meilleursIds = new int[k];
+    int nbMeilleurs = 0;
+
+    while (taille > 0) {
+      int id = tete(tas[0], listes, curseurs);
+      int commun = 0;
+      while (taille > 0 && tete(tas[0], listes, curseurs) == id) {
+        commun++;
+        int c = tas[0];
+        curseurs[c]++;
+        if (curseurs[c] == listes[c].length) {
+          taille--;
+          tas[0] = tas[taille];
+        }
+        descendre(tas, taille, listes, curseurs);
+      }
+
+      double score = 2.0 * commun / (q + this.nbTrigrammes[id]);
+      if (nbMeilleurs < k) {
+        meilleursScores[nbMeilleurs] = score;
+        meilleursIds[nbMeilleurs] = id;
+        remonterScore(meilleursScores, meilleursIds, nbMeilleurs);
+        nbMeilleurs++;
+      } else if (score > meilleursScores[0]) {
+        meilleursScores[0] = score;
+        meilleursIds[0] = id;
+        descendreScore(meilleursScores, meilleursIds, nbMeilleurs);
+      }
+    }
+
+    // Vidage du tas-min : du plus faible au meilleur score
+    int[] resultat = new int[nbMeilleurs];
+    for (int r = nbMeilleurs - 1; r >= 0; r--) {
+      resultat[r] = meilleursIds[0];
+      nbMeilleurs--;
+      meilleursScores[0] = meilleursScores[nbMeilleurs];
+      meilleursIds[0] = meilleursIds[nbMeilleurs];
+      descendreScore(meilleursScores, meilleursIds, nbMeilleurs);
+    }
+    return resultat;
+  }
+
+  /**
+   * @return codes triés et distincts des trigrammes du toponyme normalisé
+   */
+  static int[] trigrammes(String nom) {
+    String s = nom == null ? "" : CacheNormalisation.INDEX.get(nom);
+    if (s.length() == 0) {
+      return VIDE;
+    }
+    int n = s.length() + 2;
+    int[] codes = new int[n - 2];
+    int a = 0;
+    int b = code(s.charAt(0));
+    for (int i = 0; i < n - 2; i++) {
+      int c = i + 1 < s.length() ? code(s.charAt(i + 1)) : 0;
+      codes[i] = (a * TAILLE_ALPHABET + b) * TAILLE_ALPHABET + c;
+      a = b;
+      b = c;
+    }
+    Arrays.sort(codes);
+    int distincts = 0;
+    for (int i = 0; i < codes.length; i++) {
+      if (i == 0 || codes[i] != codes[i - 1]) {
+        codes[distincts++] = codes[i];
+      }
+    }
+    return distincts == codes.length ? codes : Arrays.copyOf(codes, distincts);
+  }
+
+  private static int code(char c) {
+    if (c == ' ') {
+      return 0;
+    } else if (c >= 'a' && c <= 'z') {
+      return 1 + c - 'a';
+    } else if (c >= '0' && c <= '9') {
+      return 27 + c - '0';
+    }
+    return TAILLE_ALPHABET - 1;
+  }
+
+  // ---------------------------------------------------------------------------
+  // Tas des têtes de listes (ordonné par indice d'objet)
+
+  private static int tete(int c, int[][] listes, int[] curseurs) {
+    return listes[c][curseurs[c]];
+  }
+
+  private static void monter(int[] tas, int i, int[][] listes, int[] curseurs) {
+    int c = tas[i];
+    int v = tete(c, listes, curseurs);
+    while (i > 0) {
+      int p = (i - 1) >> 1;
+      if (tete(tas[p], listes, curseurs) <= v) {
+        break;
+      }
+      tas[i] = tas[p];
+      i = p;
+    }
+    tas[i] = c;
+  }
+
+  private static void descendre(int[] tas, int taille, int[][] listes, int[] curseurs) {
+    if (taille == 0) {
+      return;
+    }
+    int i = 0;
+    int c = tas[0];
+    int v = tete(c, listes, curseurs);
+    while (true) {
+      int g = 2 * i + 1;
+      if (g >= taille) {
+        break;
+      }
+      int d = g + 1;
+      int min = d < taille && tete(tas[d], listes, curseurs) < tete(tas[g], listes, curseurs) ? d : g;
+      if (tete(tas[min], listes, curseurs) >= v) {
+        break;
+      }
+      tas[i] = tas[min];
+      i = min;
+    }
+    tas[i] = c;
+  }
+
+  // ---------------------------------------------------------------------------
+  // Tas-min des k meilleurs scores (à score égal, l'indice le plus petit gagne)
+
+  private static boolean plusFaible(double s1, int id1, double s2, int id2) {
+    return s1 < s2 || (s1 == s2 && id1 > id2);
+  }
+
+  private static void remonterScore(double[] scores, int[] ids, int i) {
+    double s = scores[i];
+    int id = ids[i];
+    while (i > 0) {
+      int p = (i - 1) >> 1;
+      if (!plusFaible(s, id, scores[p], ids[p])) {
+        break;
+      }
+      scores[i] = scores[p];
+      ids[i] = ids[p];
+      i = p;
+    }
+    scores[i] = s;
+    ids[i] = id;
+  }
+
+  private static void descendreScore(double[] scores, int[] ids, int taille) {
+    if (taille == 0) {
+      return;
+    }
+    int i = 0;
+    double s = scores[0];
+    int id = ids[0];
+    while (true) {
+      int g = 2 * i + 1;
+      if (g >= taille) {
+        break;
+      }
+      int d = g + 1;
+      int min = d < taille && plusFaible(scores[d], ids[d], scores[g], ids[g]) ? d : g;
+      if (!plusFaible(scores[min], ids[min], s, id)) {
+        break;
+      }
+      scores[i] = scores[min];
+      ids[i] = ids[min];
+      i = min;
+    }
+    scores[i] = s;
+    ids[i] = id;
+  }
+
+}
@@ -0,0 +1,219 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.ign.cogit.distance.geom.GeometriePackee;
+import fr.ign.cogit.geoxygene.api.feature.IFeature;
+import fr.ign.cogit.geoxygene.api.feature.IPopulation;
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
+import fr.ign.cogit.metadata.Objet;
+
+/**
+ * Voisinages précalculés des objets de référence et de comparaison, pour le
+ * critère de voisinage.
+ * 
+ * Les centroïdes des deux populations sont rangés dans une même grille
+ * (cellules de la taille du rayon). Le voisinage d'un objet est l'ensemble des
+ * objets de sa propre population à moins d'un rayon de son centroïde ; il est
+ * résumé par le nombre de voisins, leurs natures et leurs directions (secteurs
+ * de 45° depuis le nord). Tous les voisinages sont calculés une fois, à la 
+ * construction.
+ * 
+ * L'index est immuable une fois construit et peut être partagé entre threads.
+ */
+public class IndexVoisinage {
+  
+  /** Nombre de secteurs de direction. */
+  public static final int NB_SECTEURS = 8;
+  
+  private final double rayon;
+  
+  /** Voisinage de chaque objet, par géométrie (identité). */
+  private final Map<IGeometry, Voisinage> voisinages;
+  
+  /**
+   * @param rayon rayon du voisinage, dans l'unité des coordonnées
+   */
+  public IndexVoisinage(IPopulation<IFeature> popRef, Objet objRef, 
+      IPopulation<IFeature> popComp, Objet objComp, double rayon) {
+    this.rayon = rayon;
+    
+    int n = popRef.size() + popComp.size();
+    IGeometry[] geoms = new IGeometry[n];
+    String[] natures = new String[n];
+    boolean[] estRef = new boolean[n];
+    double[] xy = new double[2 * n];
+    int nb = 0;
+    nb = lire(popRef, objRef, true, geoms, natures, estRef, xy, nb);
+    nb = lire(popComp, objComp, false, geoms, natures, estRef, xy, nb);
+    
+    // Grille commune aux deux populations
+    Map<Long, List<Integer>> listes = new HashMap<Long, List<Integer>>();
+    for (int i = 0; i < nb; i++) {
+      Long cle = cellule((long) Math.floor(xy[2 * i] / rayon), (long) Math.floor(xy[2 * i + 1] / rayon));
+      List<Integer> l = listes.get(cle);
+      if (l == null) {
+        l = new ArrayList<Integer>();
+        listes.put(cle, l);
+      }
+      l.add(i);
+    }
+    Map<Long, int[]> grille = new HashMap<Long, int[]>(listes.size() * 2);
+    for (Map.Entry<Long, List<Integer>> e : listes.entrySet()) {
+      int[] ids = new int[e.getValue().size()];
+      for (int k = 0; k < ids.length; k++) {
+        ids[k] = e.getValue().get(k);
+      }
+      grille.put(e.getKey(), ids);
+    }
+    
+    this.voisinages = new IdentityHashMap<IGeometry, Voisinage>(nb);
+    double rayon2 = rayon * rayon;
+    List<String> naturesVoisins = new ArrayList<String>();
+    for (int i = 0; i < nb; i++) {
+      double x = xy[2 * i];
+      double y = xy[2 * i + 1];
+      long cx = (long) Math.floor(x / rayon);
+      long cy = (long) Math.floor(y / rayon);
+      int nbVoisins = 0;
+      int[] secteurs = new int[NB_SECTEURS];
+      naturesVoisins.clear();
+      for (long gx = cx - 1; gx <= cx + 1; gx++) {
+        for (long gy = cy - 1; gy <= cy + 1; gy++) {
+          int[] ids = grille.get(cellule(gx, gy));
+          if (ids == null) {
+            continue;
+          }
+          for (int j : ids) {
+            if (j == i || estRef[j] != estRef[i]) {
+              continue;
+            }
+            double dx = xy[2 * j] - x;
+            double dy = xy[2 * j + 1] - y;
+            if (dx * dx + dy * dy > rayon2) {
+              continue;
+            }
+            nbVoisins++;
+            secteurs[secteur(dx, dy)]++;
+            if (natures[j] != null) {
+              naturesVoisins.add(natures[j]);
+            }
+          }
+        }
+      }
+      String[] n2 = naturesVoisins.toArray(new String[naturesVoisins.size()]);
+      Arrays.sort(n2);
+      this.voisinages.put(geoms[i], new Voisinage(nbVoisins, n2, secteurs));
+    }
+  }
+  
+  private static int lire(IPopulation<IFeature> pop, Objet obj, boolean ref, 
+      IGeometry[] geoms, String[] natures, boolean[] estRef, double[] xy, int nb) {
+    String attNature = obj == null ? null : obj.getAttrNameSemantique();
+    for (IFeature feature : pop) {
+      IGeometry geom = feature.getGeom();
+      if (geom == null) {
+        continue;
+      }
+      // Copie locale, gardée le temps de lire le centroïde : le stock des
+      // distances n'est pas rempli avec les deux populations
+      GeometriePackee packee = GeometriePackee.creer(geom);
+      if (Double.isNaN(packee.getCentroideX())) {
+        continue;
+      }
+      geoms[nb] = geom;
+      if (attNature != null) {
+        Object nature = feature.getAttribute(attNature);
+        natures[nb] = nature == null ? null : nature.toString();
+      }
+      estRef[nb] = ref;
+      xy[2 * nb] = packee.getCentroideX();
+      xy[2 * nb + 1] = packee.getCentroideY();
+      nb++;
+    }
+    return nb;
+  }
+  
+  private static Long cellule(long cx, long cy) {
+    return Long.valueOf((cx << 32) ^ (cy & 0xFFFFFFFFL));
+  }
+  
+  /**
+   * Secteur de la direction (dx, dy), comptée depuis le nord dans le sens des
+   * aiguilles d'une montre.
+   */
+  static int secteur(double dx, double dy) {
+    double angle = Math.atan2(dx, dy);
+    if (angle < 0) {
+      angle = angle + 2 * Math.PI;
+    }
+    int s = (int) (angle / (2 * Math.PI / NB_SECTEURS));
+    return s >= NB_SECTEURS ? NB_SECTEURS - 1 : s;
+  }
+  
+  public double getRayon() {
+    return this.rayon;
+  }
+  
+  public int size() {
+    return this.voisinages.size();
+  }
+  
+  /**
+   * @return voisinage de l'objet de géométrie geom, null s'il n'est pas indexé
+   */
+  public Voisinage getVoisinage(IGeometry geom) {
+    return this.voisinages.get(geom);
+  }
+  
+  /**
+   * Résumé du voisinage d'un objet.
+   */
+  public static final class Voisinage {
+    
+    private final int nbVoisins;
+    
+    /** Natures des voisins, triées (avec répétitions). */
+    private final String[] natures;
+    
+    /** Nombre de voisins par secteur de direction. */
+    private final int[] secteurs;
+    
+    Voisinage(int nbVoisins, String[] natures, int[] secteurs) {
+      this.nbVoisins = nbVoisins;
+      this.natures = natures;
+      this.secteurs = secteurs;
+    }
+    
+    public int getNbVoisins() {
+      return this.nbVoisins;
+    }
+    
+    public String[] getNatures() {
+      return this.natures;
+    }
+    
+    public int getNbVoisins(int secteur) {
+      return this.secteurs[secteur];
+    }
+  }
+  
+}
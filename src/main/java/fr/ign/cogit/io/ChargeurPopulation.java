@@ -0,0 +1,153 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import fr.ign.cogit.geoxygene.api.feature.IFeature;
+import fr.ign.cogit.geoxygene.api.feature.IPopulation;
+import fr.ign.cogit.geoxygene.feature.Population;
+import fr.ign.cogit.metadata.Objet;
+
+/**
+ * Chargement des populations de référence et de comparaison depuis un
+ * shapefile (.shp + .dbf), un CSV avec une colonne WKT (.csv) ou un GeoJSON
+ * (.geojson, .json). Les attributs gardés sont ceux des métadonnées Objet.
+ * 
+ * Le shapefile et le CSV sont projetés en mémoire et découpés entre plusieurs
+ * threads ; le GeoJSON est lu en flux. Plusieurs fichiers (par exemple un par
+ * département) sont lus en parallèle.
+ */
+public final class ChargeurPopulation {
+	
+	/** Logger. */
+	private final static Logger LOGGER = Logger.getLogger(ChargeurPopulation.class.getName());
+	
+	private ChargeurPopulation() {
+	}
+	
+	public static IPopulation<IFeature> charger(File fichier, Objet objet) throws IOException {
+		return charger(fichier, objet, Runtime.getRuntime().availableProcessors());
+	}
+	
+	public static IPopulation<IFeature> charger(File fichier, Objet objet, int nbThreads) throws IOException {
+		FabriqueObjets fabrique = new FabriqueObjets(objet, nomType(fichier));
+		long debut = System.currentTimeMillis();
+		List<IFeature> objets = lecteur(fichier).lire(fichier, fabrique, nbThreads);
+		LOGGER.info(objets.size() + " objets lus dans " + fichier.getName() + " en " + (System.currentTimeMillis() - debut) + " ms");
+		return population(objets);
+	}
+	
+	/**
+	 * Lecture de plusieurs fichiers en parallèle, concaténés dans l'ordre de la liste.
+	 */
+	public static IPopulation<IFeature> charger(List<File> fichiers, Objet objet, int nbThreads) throws IOException {
+		List<Callable<List<IFeature>>> taches = new ArrayList<Callable<List<IFeature>>>();
+		for (final File fichier : fichiers) {
+			final FabriqueObjets fabrique = new FabriqueObjets(objet, nomType(fichier));
+			final LecteurObjets lecteur = lecteur(fichier);
+			taches.add(new Callable<List<IFeature>>() {
+				@Override
+				public List<IFeature> call() throws Exception {
+					return lecteur.lire(fichier, fabrique, 1);
+				}
+			});
+		}
+		List<IFeature> objets = new ArrayList<IFeature>();
+		for (List<IFeature> partie : executer(taches, nbThreads)) {
+			objets.addAll(partie);
+		}
+		return population(objets);
+	}
+	
+	/**
+	 * @throws IOException si l'extension du fichier n'est pas reconnue
+	 */
+	public static LecteurObjets lecteur(File fichier) throws IOException {
+		String nom = fichier.getName().toLowerCase();
+		if (nom.endsWith(".shp")) {
+			return new LecteurShapefile();
+		} else if (nom.endsWith(".csv")) {
+			return new LecteurCSV();
+		} else if (nom.endsWith(".geojson") || nom.endsWith(".json")) {
+			return new LecteurGeoJSON();
+		}
+		throw new IOException("Format de fichier non reconnu : " + fichier.getName());
+	}
+	
+	private static String nomType(File fichier) {
+		String nom = fichier.getName();
+		int k = nom.lastIndexOf('.');
+		return k > 0 ? nom.substring(0, k) : nom;
+	}
+	
+	private static IPopulation<IFeature> population(List<IFeature> objets) {
+		IPopulation<IFeature> population = new Population<IFeature>();
+		for (IFeature objet : objets) {
+			population.add(objet);
+		}
+		return population;
+	}
+	
+	/**
+	 * Exécute les tâches sur nbThreads threads et rend leurs résultats dans l'ordre.
+	 */
+	static <T> List<T> executer(List<? extends Callable<T>> taches, int nbThreads) throws IOException {
+		List<T> resultats = new ArrayList<T>(taches.size());
+		if (nbThreads <= 1 || taches.size() <= 1) {
+			for (Callable<T> tache : taches) {
+				try {
+					resultats.add(tache.call());
+				} catch (IOException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new IOException(e);
+				}
+			}
+			return resultats;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(nbThreads, taches.size()));
+		try {
+			List<Future<T>> futures = new ArrayList<Future<T>>(taches.size());
+			for (Callable<T> tache : taches) {
+				futures.add(executor.submit(tache));
+			}
+			for (Future<T> future : futures) {
+				resultats.add(future.get());
+			}
+			return resultats;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Lecture interrompue", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+}
@@ -0,0 +1,183 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IDirectPosition;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IDirectPositionList;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.ILineString;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IPolygon;
+import fr.ign.cogit.geoxygene.api.spatial.geomaggr.IAggregate;
+import fr.ign.cogit.geoxygene.api.spatial.geomaggr.IMultiCurve;
+import fr.ign.cogit.geoxygene.api.spatial.geomaggr.IMultiPoint;
+import fr.ign.cogit.geoxygene.api.spatial.geomaggr.IMultiSurface;
+import fr.ign.cogit.geoxygene.api.spatial.geomprim.IPoint;
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPosition;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPositionList;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.GM_LineString;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.GM_Polygon;
+import fr.ign.cogit.geoxygene.spatial.geomaggr.GM_MultiCurve;
+import fr.ign.cogit.geoxygene.spatial.geomaggr.GM_MultiPoint;
+import fr.ign.cogit.geoxygene.spatial.geomaggr.GM_MultiSurface;
+import fr.ign.cogit.geoxygene.spatial.geomprim.GM_Point;
+import fr.ign.cogit.geoxygene.spatial.geomprim.GM_Ring;
+
+/**
+ * Codage des géométries en WKB 2D (OGC Simple Features) : points, lignes,
+ * polygones et leurs agrégats. Écriture en big-endian, lecture dans les
+ * deux ordres d'octets.
+ */
+public final class CodageWKB {
+	
+	private static final int POINT = 1;
+	private static final int LINESTRING = 2;
+	private static final int POLYGON = 3;
+	private static final int MULTIPOINT = 4;
+	private static final int MULTILINESTRING = 5;
+	private static final int MULTIPOLYGON = 6;
+	
+	private CodageWKB() {
+	}
+	
+	/**
+	 * @throws IllegalArgumentException pour un type de géométrie non géré
+	 */
+	public static byte[] encoder(IGeometry geom) {
+		ByteArrayOutputStream octets = new ByteArrayOutputStream(21 + 16 * geom.coord().size());
+		DataOutputStream out = new DataOutputStream(octets);
+		try {
+			ecrire(geom, out);
+			out.flush();
+		} catch (IOException e) {
+			// Impossible sur un ByteArrayOutputStream
+			throw new IllegalStateException(e);
+		}
+		return octets.toByteArray();
+	}
+	
+	private static void ecrire(IGeometry geom, DataOutputStream out) throws IOException {
+		out.writeByte(0);
+		if (geom instanceof IPoint) {
+			out.writeInt(POINT);
+			IDirectPosition p = ((IPoint) geom).getPosition();
+			out.writeDouble(p.getX());
+			out.writeDouble(p.getY());
+		} else if (geom instanceof ILineString) {
+			out.writeInt(LINESTRING);
+			ecrirePoints(geom.coord(), out);
+		} else if (geom instanceof IPolygon) {
+			out.writeInt(POLYGON);
+			IPolygon polygone = (IPolygon) geom;
+			out.writeInt(1 + polygone.sizeInterior());
+			ecrirePoints(polygone.exteriorCoord(), out);
+			for (int i = 0; i < polygone.sizeInterior(); i++) {
+				ecrirePoints(polygone.interiorCoord(i), out);
+			}
+		} else if (geom instanceof IMultiPoint) {
+			ecrireElements(MULTIPOINT, (IAggregate<?>) geom, out);
+		} else if (geom instanceof IMultiCurve<?>) {
+			ecrireElements(MULTILINESTRING, (IAggregate<?>) geom, out);
+		} else if (geom instanceof IMultiSurface<?>) {
+			ecrireElements(MULTIPOLYGON, (IAggregate<?>) geom, out);
+		} else {
+			throw new IllegalArgumentException("Type de géométrie non géré en WKB : " + geom.getClass().getName());
+		}
+	}
+	
+	private static void ecrireElements(int type, IAggregate<?> aggr, DataOutputStream out) throws IOException {
+		out.writeInt(type);
+		out.writeInt(aggr.size());
+		for (int i = 0; i < aggr.size(); i++) {
+			ecrire(aggr.get(i), out);
+		}
+	}
+	
+	private static void ecrirePoints(IDirectPositionList points, DataOutputStream out) throws IOException {
+		int n = points.size();
+		out.writeInt(n);
+		for (int i = 0; i < n; i++) {
+			IDirectPosition p = points.get(i);
+			out.writeDouble(p.getX());
+			out.writeDouble(p.getY());
+		}
+	}
+	
+	public static IGeometry decoder(byte[] wkb) {
+		return decoder(ByteBuffer.wrap(wkb));
+	}
+	
+	/**
+	 * Lecture à la position courante du buffer, qui est avancée.
+	 * 
+	 * @throws IllegalArgumentException pour un type de géométrie non géré
+	 */
+	public static IGeometry decoder(ByteBuffer buf) {
+		ByteOrder ordre = buf.order();
+		try {
+			buf.order(buf.get() == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+			int type = buf.getInt();
+			switch (type) {
+			case POINT:
+				return new GM_Point(new DirectPosition(buf.getDouble(), buf.getDouble()));
+			case LINESTRING:
+				return new GM_LineString(lirePoints(buf));
+			case POLYGON:
+				int nbAnneaux = buf.getInt();
+				GM_Polygon polygone = new GM_Polygon(new GM_LineString(lirePoints(buf)));
+				for (int i = 1; i < nbAnneaux; i++) {
+					polygone.addInterior(new GM_Ring(new GM_LineString(lirePoints(buf))));
+				}
+				return polygone;
+			case MULTIPOINT:
+				GM_MultiPoint points = new GM_MultiPoint();
+				for (int i = buf.getInt(); i > 0; i--) {
+					points.add((IPoint) decoder(buf));
+				}
+				return points;
+			case MULTILINESTRING:
+				GM_MultiCurve<ILineString> lignes = new GM_MultiCurve<ILineString>();
+				for (int i = buf.getInt(); i > 0; i--) {
+					lignes.add((ILineString) decoder(buf));
+				}
+				return lignes;
+			case MULTIPOLYGON:
+				GM_MultiSurface<IPolygon> surfaces = new GM_MultiSurface<IPolygon>();
+				for (int i = buf.getInt(); i > 0; i--) {
+					surfaces.add((IPolygon) decoder(buf));
+				}
+				return surfaces;
+			default:
+				throw new IllegalArgumentException("Type WKB non géré : " + type);
+			}
+		} finally {
+			buf.order(ordre);
+		}
+	}
+	
+	private static IDirectPositionList lirePoints(ByteBuffer buf) {
+		int n = buf.getInt();
+		DirectPositionList points = new DirectPositionList();
+		for (int i = 0; i < n; i++) {
+			points.add(new DirectPosition(buf.getDouble(), buf.getDouble()));
+		}
+		return points;
+	}
+	
+}
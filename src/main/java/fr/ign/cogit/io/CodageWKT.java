@@ -0,0 +1,213 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.io;
+
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IDirectPositionList;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.ILineString;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IPolygon;
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPosition;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPositionList;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.GM_LineString;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.GM_Polygon;
+import fr.ign.cogit.geoxygene.spatial.geomaggr.GM_MultiCurve;
+import fr.ign.cogit.geoxygene.spatial.geomaggr.GM_MultiPoint;
+import fr.ign.cogit.geoxygene.spatial.geomaggr.GM_MultiSurface;
+import fr.ign.cogit.geoxygene.spatial.geomprim.GM_Point;
+import fr.ign.cogit.geoxygene.spatial.geomprim.GM_Ring;
+
+/**
+ * Lecture des géométries WKT écrites par EcrivainCSV (et du WKT OGC courant) :
+ * POINT, LINESTRING, POLYGON et leurs MULTI. Seules les deux premières
+ * coordonnées de chaque position sont lues (Z et M ignorés).
+ */
+public final class CodageWKT {
+	
+	private final String wkt;
+	private int pos = 0;
+	
+	private CodageWKT(String wkt) {
+		this.wkt = wkt;
+	}
+	
+	/**
+	 * @return la géométrie, null pour une chaîne vide, "null" (écrit par
+	 *         EcrivainCSV pour une géométrie absente) ou une géométrie EMPTY
+	 * @throws IllegalArgumentException si le WKT est invalide ou d'un type non géré
+	 */
+	public static IGeometry decoder(String wkt) {
+		CodageWKT lecteur = new CodageWKT(wkt);
+		lecteur.blancs();
+		if (lecteur.pos == wkt.length() || wkt.trim().equalsIgnoreCase("null")) {
+			return null;
+		}
+		return lecteur.geometrie();
+	}
+	
+	private IGeometry geometrie() {
+		String type = mot();
+		// Dimension éventuelle : Z, M, ZM
+		blancs();
+		if (pos < wkt.length() && Character.isLetter(wkt.charAt(pos))) {
+			String dim = mot();
+			if (dim.equals("EMPTY")) {
+				return null;
+			}
+		}
+		if (vide()) {
+			return null;
+		}
+		if (type.equals("POINT")) {
+			attendre('(');
+			IGeometry p = new GM_Point(position());
+			attendre(')');
+			return p;
+		} else if (type.equals("LINESTRING")) {
+			return new GM_LineString(positions());
+		} else if (type.equals("POLYGON")) {
+			return polygone();
+		} else if (type.equals("MULTIPOINT")) {
+			GM_MultiPoint points = new GM_MultiPoint();
+			attendre('(');
+			do {
+				blancs();
+				// MULTIPOINT (1 2, 3 4) ou MULTIPOINT ((1 2), (3 4))
+				if (wkt.charAt(pos) == '(') {
+					pos++;
+					points.add(new GM_Point(position()));
+					attendre(')');
+				} else {
+					points.add(new GM_Point(position()));
+				}
+			} while (separateur());
+			attendre(')');
+			return points;
+		} else if (type.equals("MULTILINESTRING")) {
+			GM_MultiCurve<ILineString> lignes = new GM_MultiCurve<ILineString>();
+			attendre('(');
+			do {
+				lignes.add(new GM_LineString(positions()));
+			} while (separateur());
+			attendre(')');
+			return lignes;
+		} else if (type.equals("MULTIPOLYGON")) {
+			GM_MultiSurface<IPolygon> surfaces = new GM_MultiSurface<IPolygon>();
+			attendre('(');
+			do {
+				surfaces.add(polygone());
+			} while (separateur());
+			attendre(')');
+			return surfaces;
+		}
+		throw new IllegalArgumentException("Type WKT non géré : " + type);
+	}
+	
+	private IPolygon polygone() {
+		attendre('(');
+		GM_Polygon polygone = new GM_Polygon(new GM_LineString(positions()));
+		while (separateur()) {
+			polygone.addInterior(new GM_Ring(new GM_LineString(positions())));
+		}
+		attendre(')');
+		return polygone;
+	}
+	
+	private IDirectPositionList positions() {
+		attendre('(');
+		DirectPositionList points = new DirectPositionList();
+		do {
+			points.add(position());
+		} while (separateur());
+		attendre(')');
+		return points;
+	}
+	
+	private DirectPosition position() {
+		double x = nombre();
+		double y = nombre();
+		// Z, M ignorés
+		blancs();
+		while (pos < wkt.length() && wkt.charAt(pos) != ',' && wkt.charAt(pos) != ')') {
+			nombre();
+			blancs();
+		}
+		return new DirectPosition(x, y);
+	}
+	
+	private double nombre() {
+		blancs();
+		int debut = pos;
+		while (pos < wkt.length()) {
+			char c = wkt.charAt(pos);
+			if ((c >= '0' && c <= '9') || c == '.' || c == '-' || c == '+' || c == 'e' || c == 'E') {
+				pos++;
+			} else {
+				break;
+			}
+		}
+		if (debut == pos) {
+			throw erreur("nombre attendu");
+		}
+		return Double.parseDouble(wkt.substring(debut, pos));
+	}
+	
+	private String mot() {
+		blancs();
+		int debut = pos;
+		while (pos < wkt.length() && Character.isLetter(wkt.charAt(pos))) {
+			pos++;
+		}
+		if (debut == pos) {
+			throw erreur("type de géométrie attendu");
+		}
+		return wkt.substring(debut, pos).toUpperCase();
+	}
+	
+	private boolean vide() {
+		blancs();
+		if (wkt.regionMatches(true, pos, "EMPTY", 0, 5)) {
+			pos += 5;
+			return true;
+		}
+		return false;
+	}
+	
+	private boolean separateur() {
+		blancs();
+		if (pos < wkt.length() && wkt.charAt(pos) == ',') {
+			pos++;
+			return true;
+		}
+		return false;
+	}
+	
+	private void attendre(char c) {
+		blancs();
+		if (pos >= wkt.length() || wkt.charAt(pos) != c) {
+			throw erreur("'" + c + "' attendu");
+		}
+		pos++;
+	}
+	
+	private void blancs() {
+		while (pos < wkt.length() && Character.isWhitespace(wkt.charAt(pos))) {
+			pos++;
+		}
+	}
+	
+	private IllegalArgumentException erreur(String message) {
+		return new IllegalArgumentException("WKT invalide, " + message + " en position " + pos + " : " + wkt);
+	}
+	
+}
@@ -0,0 +1,87 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IDirectPositionList;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.ILineString;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IPolygon;
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.GM_LineString;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.GM_Polygon;
+import fr.ign.cogit.geoxygene.spatial.geomaggr.GM_MultiCurve;
+import fr.ign.cogit.geoxygene.spatial.geomaggr.GM_MultiPoint;
+import fr.ign.cogit.geoxygene.spatial.geomaggr.GM_MultiSurface;
+import fr.ign.cogit.geoxygene.spatial.geomprim.GM_Point;
+import fr.ign.cogit.geoxygene.spatial.geomprim.GM_Ring;
+
+/**
+ * Construction des géométries GeOxygene à partir des listes de positions lues
+ * par les lecteurs de fichiers : un élément seul donne une géométrie simple,
+ * plusieurs un agrégat.
+ */
+final class ConstructionGeometries {
+	
+	private ConstructionGeometries() {
+	}
+	
+	/** Agrégat de lignes, ou la ligne seule. */
+	static IGeometry lignes(List<IDirectPositionList> parties) {
+		if (parties.size() == 1) {
+			return new GM_LineString(parties.get(0));
+		}
+		GM_MultiCurve<ILineString> lignes = new GM_MultiCurve<ILineString>();
+		for (IDirectPositionList partie : parties) {
+			lignes.add(new GM_LineString(partie));
+		}
+		return lignes;
+	}
+	
+	/** Agrégat de points, ou le point seul. */
+	static IGeometry points(IDirectPositionList positions) {
+		if (positions.size() == 1) {
+			return new GM_Point(positions.get(0));
+		}
+		GM_MultiPoint points = new GM_MultiPoint();
+		for (int i = 0; i < positions.size(); i++) {
+			points.add(new GM_Point(positions.get(i)));
+		}
+		return points;
+	}
+	
+	/**
+	 * Polygones à partir d'anneaux groupés (extérieur puis trous), ou le polygone seul.
+	 */
+	static IGeometry polygones(List<List<IDirectPositionList>> anneaux) {
+		List<IPolygon> polygones = new ArrayList<IPolygon>(anneaux.size());
+		for (List<IDirectPositionList> a : anneaux) {
+			GM_Polygon polygone = new GM_Polygon(new GM_LineString(a.get(0)));
+			for (int i = 1; i < a.size(); i++) {
+				polygone.addInterior(new GM_Ring(new GM_LineString(a.get(i))));
+			}
+			polygones.add(polygone);
+		}
+		if (polygones.size() == 1) {
+			return polygones.get(0);
+		}
+		GM_MultiSurface<IPolygon> surfaces = new GM_MultiSurface<IPolygon>();
+		for (IPolygon p : polygones) {
+			surfaces.add(p);
+		}
+		return surfaces;
+	}
+	
+}
@@ -0,0 +1,263 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.io;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
+
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IDirectPosition;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IDirectPositionList;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.ILineString;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IPolygon;
+import fr.ign.cogit.geoxygene.api.spatial.geomaggr.IAggregate;
+import fr.ign.cogit.geoxygene.api.spatial.geomaggr.IMultiCurve;
+import fr.ign.cogit.geoxygene.api.spatial.geomaggr.IMultiPoint;
+import fr.ign.cogit.geoxygene.api.spatial.geomaggr.IMultiSurface;
+import fr.ign.cogit.geoxygene.api.spatial.geomprim.IPoint;
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
+
+/**
+ * Écriture d'un fichier CSV ligne par ligne, sans construire le fichier en
+ * mémoire. Les champs sont ajoutés dans un tampon réutilisé, vidé par blocs
+ * dans un flux bufferisé (éventuellement compressé en gzip).
+ * 
+ * Format des fichiers de résultats : chaque champ est suivi du séparateur ;
+ * un champ contenant le séparateur, un guillemet ou un saut de ligne est
+ * mis entre guillemets (guillemets doublés). Géométries en WKT.
+ */
+public class EcrivainCSV implements AutoCloseable {
+	
+	public static final Charset CHARSET_DEFAUT = Charset.forName("UTF-8");
+	
+	private static final char SEPARATEUR = ';';
+	
+	/** Taille du tampon de caractères et du buffer de sortie. */
+	private static final int TAILLE_TAMPON = 1 << 16;
+	
+	private final Writer writer;
+	
+	private final StringBuilder tampon = new StringBuilder(TAILLE_TAMPON + 1024);
+	
+	private final char[] caracteres = new char[TAILLE_TAMPON];
+	
+	private long nbLignes = 0;
+	
+	/**
+	 * Fichier en UTF-8, compressé si son nom se termine par .gz.
+	 */
+	public EcrivainCSV(File fichier) throws IOException {
+		this(fichier, CHARSET_DEFAUT, fichier.getName().endsWith(".gz"));
+	}
+	
+	public EcrivainCSV(File fichier, Charset charset, boolean gzip) throws IOException {
+		OutputStream out = new FileOutputStream(fichier);
+		try {
+			if (gzip) {
+				out = new GZIPOutputStream(out, TAILLE_TAMPON);
+			} else {
+				out = new BufferedOutputStream(out, TAILLE_TAMPON);
+			}
+		} catch (IOException e) {
+			out.close();
+			throw e;
+		}
+		this.writer = new OutputStreamWriter(out, charset);
+	}
+	
+	public EcrivainCSV champ(String valeur) throws IOException {
+		if (valeur != null) {
+			if (aProteger(valeur)) {
+				tampon.append('"');
+				for (int i = 0; i < valeur.length(); i++) {
+					char c = valeur.charAt(i);
+					if (c == '"') {
+						tampon.append('"');
+					}
+					tampon.append(c);
+				}
+				tampon.append('"');
+			} else {
+				tampon.append(valeur);
+			}
+		} else {
+			tampon.append("null");
+		}
+		tampon.append(SEPARATEUR);
+		return this;
+	}
+	
+	private static boolean aProteger(String valeur) {
+		for (int i = 0; i < valeur.length(); i++) {
+			char c = valeur.charAt(i);
+			if (c == SEPARATEUR || c == '"' || c == '\n' || c == '\r') {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	public EcrivainCSV champ(double valeur) {
+		tampon.append(valeur).append(SEPARATEUR);
+		return this;
+	}
+	
+	public EcrivainCSV champ(int valeur) {
+		tampon.append(valeur).append(SEPARATEUR);
+		return this;
+	}
+	
+	public EcrivainCSV champVide() {
+		tampon.append(SEPARATEUR);
+		return this;
+	}
+	
+	/**
+	 * Géométrie en WKT, écrite directement depuis les coordonnées ; null pour
+	 * une géométrie absente.
+	 */
+	public EcrivainCSV champ(IGeometry geom) {
+		if (geom != null) {
+			ajouterWKT(geom);
+		} else {
+			tampon.append("null");
+		}
+		tampon.append(SEPARATEUR);
+		return this;
+	}
+	
+	private void ajouterWKT(IGeometry geom) {
+		if (geom instanceof IPoint) {
+			tampon.append("POINT ");
+			ajouterCoordonnees(geom.coord());
+		} else if (geom instanceof ILineString) {
+			tampon.append("LINESTRING ");
+			ajouterCoordonnees(geom.coord());
+		} else if (geom instanceof IPolygon) {
+			tampon.append("POLYGON ");
+			ajouterPolygone((IPolygon) geom);
+		} else if (geom instanceof IMultiPoint) {
+			tampon.append("MULTIPOINT ");
+			ajouterElements((IAggregate<?>) geom);
+		} else if (geom instanceof IMultiCurve<?>) {
+			tampon.append("MULTILINESTRING ");
+			ajouterElements((IAggregate<?>) geom);
+		} else if (geom instanceof IMultiSurface<?>) {
+			tampon.append("MULTIPOLYGON ");
+			ajouterElements((IAggregate<?>) geom);
+		} else {
+			tampon.append(geom.toString());
+		}
+	}
+	
+	private void ajouterElements(IAggregate<?> aggr) {
+		if (aggr.size() == 0) {
+			tampon.append("EMPTY");
+			return;
+		}
+		tampon.append('(');
+		for (int i = 0; i < aggr.size(); i++) {
+			if (i > 0) {
+				tampon.append(", ");
+			}
+			IGeometry element = aggr.get(i);
+			if (element instanceof IPolygon) {
+				ajouterPolygone((IPolygon) element);
+			} else {
+				ajouterCoordonnees(element.coord());
+			}
+		}
+		tampon.append(')');
+	}
+	
+	private void ajouterPolygone(IPolygon polygone) {
+		if (polygone.exteriorCoord().size() == 0) {
+			tampon.append("EMPTY");
+			return;
+		}
+		tampon.append('(');
+		ajouterCoordonnees(polygone.exteriorCoord());
+		for (int i = 0; i < polygone.sizeInterior(); i++) {
+			tampon.append(", ");
+			ajouterCoordonnees(polygone.interiorCoord(i));
+		}
+		tampon.append(')');
+	}
+	
+	private void ajouterCoordonnees(IDirectPositionList points) {
+		int n = points.size();
+		if (n == 0) {
+			tampon.append("EMPTY");
+			return;
+		}
+		tampon.append('(');
+		for (int i = 0; i < n; i++) {
+			if (i > 0) {
+				tampon.append(", ");
+			}
+			IDirectPosition p = points.get(i);
+			tampon.append(p.getX()).append(' ').append(p.getY());
+		}
+		tampon.append(')');
+	}
+	
+	/**
+	 * Termine la ligne courante ; le tampon est vidé dans le fichier quand il est plein.
+	 */
+	public void finLigne() throws IOException {
+		tampon.append('\n');
+		nbLignes++;
+		if (tampon.length() >= TAILLE_TAMPON) {
+			vider();
+		}
+	}
+	
+	private void vider() throws IOException {
+		int n = tampon.length();
+		for (int debut = 0; debut < n; debut += caracteres.length) {
+			int fin = Math.min(n, debut + caracteres.length);
+			tampon.getChars(debut, fin, caracteres, 0);
+			writer.write(caracteres, 0, fin - debut);
+		}
+		tampon.setLength(0);
+	}
+	
+	/**
+	 * @return nombre de lignes terminées
+	 */
+	public long getNbLignes() {
+		return nbLignes;
+	}
+	
+	public void flush() throws IOException {
+		vider();
+		writer.flush();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		try {
+			vider();
+		} finally {
+			writer.close();
+		}
+	}
+	
+}
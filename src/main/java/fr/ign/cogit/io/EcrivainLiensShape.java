@@ -0,0 +1,264 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.Transaction;
+import org.geotools.data.shapefile.ShapefileDataStore;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+
+import fr.ign.cogit.dao.LigneResultat;
+import fr.ign.cogit.distance.geom.GeometriePackee;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IDirectPositionList;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IPolygon;
+import fr.ign.cogit.geoxygene.api.spatial.geomaggr.IAggregate;
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
+
+/**
+ * Écriture au fil de l'eau d'un shapefile de liens d'appariement : chaque
+ * lien est un segment du centroïde du candidat au centroïde de l'objet de
+ * référence, ajouté au fichier dès qu'il est reçu, par le FeatureWriter
+ * d'ajout de GeoTools (rien n'est gardé en mémoire d'un lien à l'autre).
+ * 
+ * Points, lignes, surfaces et agrégats sont acceptés ; les centroïdes sont
+ * calculés à la volée, sans rien garder des géométries (voir
+ * {@link #centroide(IGeometry, double[])}).
+ * 
+ * Attributs : cleRef, cleComp (texte), eval, diff (numériques), comme
+ * ExportToShape.exportLien. Les textes sont en UTF-8 (.cpg).
+ */
+public class EcrivainLiensShape implements AutoCloseable {
+	
+	/** Largeur des champs texte du .dbf, en octets. */
+	private static final int LARGEUR_TEXTE = 80;
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+	
+	private final ShapefileDataStore store;
+	private final FeatureWriter<SimpleFeatureType, SimpleFeature> writer;
+	private final GeometryFactory factory = new GeometryFactory();
+	
+	private final double[] centroideComp = new double[2];
+	private final double[] centroideRef = new double[2];
+	
+	private int nbLiens = 0;
+	
+	/**
+	 * @param chemin fichier .shp ; .shx, .dbf, .cpg (et .prj si crs est fourni) à côté
+	 * @param crs système de coordonnées, null pour ne pas écrire de .prj
+	 */
+	public EcrivainLiensShape(String chemin, CoordinateReferenceSystem crs) throws IOException {
+		String base = chemin.endsWith(".shp") ? chemin.substring(0, chemin.length() - 4) : chemin;
+		
+		SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
+		builder.setName("Lien");
+		builder.setCRS(crs);
+		builder.add("the_geom", LineString.class);
+		builder.length(LARGEUR_TEXTE).add("cleRef", String.class);
+		builder.length(LARGEUR_TEXTE).add("cleComp", String.class);
+		builder.add("eval", Double.class);
+		builder.add("diff", Double.class);
+		
+		this.store = new ShapefileDataStore(new File(base + ".shp").toURI().toURL());
+		try {
+			store.setCharset(CHARSET);
+			store.createSchema(builder.buildFeatureType());
+			this.writer = store.getFeatureWriterAppend(store.getTypeNames()[0], Transaction.AUTO_COMMIT);
+		} catch (IOException e) {
+			store.dispose();
+			throw e;
+		}
+		ecrireTexte(new File(base + ".cpg"), CHARSET.name());
+	}
+	
+	private static void ecrireTexte(File fichier, String texte) throws IOException {
+		Writer w = new OutputStreamWriter(new FileOutputStream(fichier), CHARSET);
+		try {
+			w.write(texte);
+		} finally {
+			w.close();
+		}
+	}
+	
+	/**
+	 * Lien pour une ligne de résultat appariée (décision "true", candidat
+	 * différent de NA).
+	 * 
+	 * @return vrai si un lien a été écrit
+	 */
+	public boolean ajouter(LigneResultat ligne) throws IOException {
+		if (!"true".equals(ligne.isDecision()) || "NA".equals(ligne.getNomTopoComp())) {
+			return false;
+		}
+		return ajouter(ligne.getGeomComp(), ligne.getGeomRef(), ligne.getIdTopoRef(), ligne.getIdTopoComp(), 
+				ligne.getProbaPignistiquePremier(), ligne.getProbaPignistiqueSecond());
+	}
+	
+	/**
+	 * Lien du centroïde de geomComp au centroïde de geomRef.
+	 * 
+	 * @return faux si l'une des géométries est absente ou vide
+	 */
+	public boolean ajouter(IGeometry geomComp, IGeometry geomRef, String cleRef, String cleComp, 
+			double eval, double diff) throws IOException {
+		if (geomComp == null || geomRef == null) {
+			return false;
+		}
+		if (!centroide(geomComp, centroideComp) || !centroide(geomRef, centroideRef)) {
+			return false;
+		}
+		ajouterLien(centroideComp[0], centroideComp[1], centroideRef[0], centroideRef[1], 
+				cleRef, cleComp, eval, diff);
+		return true;
+	}
+	
+	/**
+	 * Centroïde d'une géométrie : centre de gravité de l'aire pour les surfaces
+	 * (trous déduits), centroïde pondéré par la longueur pour les lignes et
+	 * moyenne des sommets pour les points (GeometriePackee, copie non conservée).
+	 * 
+	 * @param xy x et y du centroïde en sortie
+	 * @return faux si la géométrie est vide
+	 */
+	static boolean centroide(IGeometry geom, double[] xy) {
+		// aire, moments en x et en y
+		double[] somme = new double[3];
+		sommerSurfaces(geom, somme);
+		if (somme[0] > 0) {
+			xy[0] = somme[1] / somme[0];
+			xy[1] = somme[2] / somme[0];
+			return true;
+		}
+		GeometriePackee packee = GeometriePackee.creer(geom);
+		if (Double.isNaN(packee.getCentroideX())) {
+			return false;
+		}
+		xy[0] = packee.getCentroideX();
+		xy[1] = packee.getCentroideY();
+		return true;
+	}
+	
+	private static void sommerSurfaces(IGeometry geom, double[] somme) {
+		if (geom == null || geom.isEmpty()) {
+			return;
+		}
+		if (geom instanceof IAggregate<?>) {
+			for (IGeometry element : ((IAggregate<?>) geom).getList()) {
+				sommerSurfaces(element, somme);
+			}
+		} else if (geom instanceof IPolygon) {
+			IPolygon polygone = (IPolygon) geom;
+			ajouterAnneau(polygone.exteriorCoord(), 1, somme);
+			for (int i = 0; i < polygone.sizeInterior(); i++) {
+				ajouterAnneau(polygone.interiorCoord(i), -1, somme);
+			}
+		}
+	}
+	
+	/**
+	 * Aire et moments d'un anneau, quel que soit son sens, comptés avec le signe
+	 * donné. Les coordonnées sont prises relativement au premier sommet pour
+	 * garder la précision en Lambert 93.
+	 */
+	private static void ajouterAnneau(IDirectPositionList anneau, int signe, double[] somme) {
+		int n = anneau.size();
+		if (n < 3) {
+			return;
+		}
+		double ox = anneau.get(0).getX();
+		double oy = anneau.get(0).getY();
+		double a = 0;
+		double mx = 0;
+		double my = 0;
+		for (int j = 0; j < n; j++) {
+			double x0 = anneau.get(j).getX() - ox;
+			double y0 = anneau.get(j).getY() - oy;
+			double x1 = anneau.get((j + 1) % n).getX() - ox;
+			double y1 = anneau.get((j + 1) % n).getY() - oy;
+			double produit = x0 * y1 - x1 * y0;
+			a += produit;
+			mx += (x0 + x1) * produit;
+			my += (y0 + y1) * produit;
+		}
+		if (a < 0) {
+			a = -a;
+			mx = -mx;
+			my = -my;
+		}
+		a = a / 2;
+		somme[0] += signe * a;
+		somme[1] += signe * (mx / 6 + ox * a);
+		somme[2] += signe * (my / 6 + oy * a);
+	}
+	
+	public void ajouterLien(double x1, double y1, double x2, double y2, String cleRef, String cleComp, 
+			double eval, double diff) throws IOException {
+		SimpleFeature lien = writer.next();
+		lien.setAttributes(new Object[] {
+				factory.createLineString(new Coordinate[] { new Coordinate(x1, y1), new Coordinate(x2, y2) }),
+				tronquer(cleRef, LARGEUR_TEXTE), tronquer(cleComp, LARGEUR_TEXTE), eval, diff });
+		writer.write();
+		nbLiens++;
+	}
+	
+	/**
+	 * @return le plus long début de valeur dont l'encodage tient en largeur
+	 *         octets, coupé entre deux caractères (jamais au milieu d'un
+	 *         caractère multi-octets ni d'une paire de substitution)
+	 */
+	static String tronquer(String valeur, int largeur) {
+		if (valeur == null || valeur.length() * 4 <= largeur) {
+			return valeur;
+		}
+		int octets = 0;
+		int i = 0;
+		while (i < valeur.length()) {
+			int c = valeur.codePointAt(i);
+			int l = c < 0x80 ? 1 : c < 0x800 ? 2 : c < 0x10000 ? 3 : 4;
+			if (octets + l > largeur) {
+				return valeur.substring(0, i);
+			}
+			octets += l;
+			i += Character.charCount(c);
+		}
+		return valeur;
+	}
+	
+	public int getNbLiens() {
+		return nbLiens;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		try {
+			writer.close();
+		} finally {
+			store.dispose();
+		}
+	}
+	
+}
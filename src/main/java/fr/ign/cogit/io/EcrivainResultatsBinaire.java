@@ -0,0 +1,327 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import fr.ign.cogit.dao.LigneResultat;
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
+
+/**
+ * Fichier binaire des résultats d'appariement, en colonnes.
+ * 
+ * Chaque colonne (identifiants et noms codés par un dictionnaire, décisions
+ * par une énumération, positions et octets des WKB) est écrite au fil des
+ * lignes dans un fichier temporaire, à côté du fichier de résultats : seuls
+ * le dictionnaire et les noms de décisions restent en mémoire. A la
+ * fermeture, l'en-tête est écrit puis les colonnes sont recopiées à la suite
+ * et les fichiers temporaires supprimés :
+ * <pre>
+ *   MAGIC, VERSION, taille de l'en-tête, en-tête :
+ *     nbLignes, nbDistances, géométries (booléen), taille max d'un WKB,
+ *     noms des distances, décisions, dictionnaire
+ *   int[nbLignes] x 5 : idRef, nomRef, compteur, idComp, nomComp (-1 : null)
+ *   double[nbLignes] x nbDistances, puis pignistiques premier et second
+ *   byte[nbLignes] : décision
+ *   si géométries : long[2 nbLignes + 1] positions, puis WKB ref, comp, ref...
+ * </pre>
+ * Tout en big-endian ; voir LecteurResultatsBinaire.
+ */
+public class EcrivainResultatsBinaire implements AutoCloseable {
+	
+	/** Logger. */
+	private final static Logger LOGGER = Logger.getLogger(EcrivainResultatsBinaire.class.getName());
+	
+	static final int MAGIC = 0x52424E31;
+	static final int VERSION = 1;
+	
+	/** Taille du buffer de chaque colonne. */
+	private static final int TAILLE_TAMPON = 1 << 15;
+	
+	/**
+	 * Colonne écrite dans un fichier temporaire.
+	 */
+	private static final class Colonne {
+		
+		private final File fichier;
+		
+		private final DataOutputStream out;
+		
+		private Colonne(File repertoire) throws IOException {
+			this.fichier = File.createTempFile("colonne", ".tmp", repertoire);
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fichier), TAILLE_TAMPON));
+		}
+		
+		/** Recopie la colonne à la position courante du canal. */
+		private void copier(FileChannel destination) throws IOException {
+			out.close();
+			FileInputStream in = new FileInputStream(fichier);
+			try {
+				FileChannel source = in.getChannel();
+				long taille = source.size();
+				long p = 0;
+				while (p < taille) {
+					p += source.transferTo(p, taille - p, destination);
+				}
+			} finally {
+				in.close();
+			}
+		}
+		
+		private void supprimer() {
+			try {
+				out.close();
+			} catch (IOException e) {
+				LOGGER.warn("Fermeture de " + fichier.getPath() + " : " + e.getMessage());
+			}
+			if (!fichier.delete() && fichier.exists()) {
+				LOGGER.warn("Fichier temporaire non supprimé : " + fichier.getPath());
+			}
+		}
+	}
+	
+	private final File fichier;
+	
+	private final File repertoire;
+	
+	private final boolean geometries;
+	
+	private String[] nomsDistance;
+	
+	private final Map<String, Integer> dictionnaire = new HashMap<String, Integer>();
+	private final List<String> chaines = new ArrayList<String>();
+	
+	private final Map<String, Integer> codesDecision = new HashMap<String, Integer>();
+	private final List<String> decisions = new ArrayList<String>();
+	
+	/** Toutes les colonnes ouvertes, à supprimer à la fermeture. */
+	private final List<Colonne> colonnes = new ArrayList<Colonne>();
+	
+	private int n = 0;
+	private final Colonne[] colEntiers = new Colonne[5];
+	private Colonne[] colReels;
+	private final Colonne colDecision;
+	
+	private Colonne colPositions;
+	private Colonne colWKB;
+	private long tailleWKB = 0;
+	private int tailleMaxWKB = 0;
+	
+	private boolean ferme = false;
+	
+	/**
+	 * @param nomsDistance noms des distances, null pour les prendre sur la première ligne
+	 * @param geometries écrire les géométries en WKB
+	 */
+	public EcrivainResultatsBinaire(File fichier, String[] nomsDistance, boolean geometries) throws IOException {
+		this.fichier = fichier;
+		this.repertoire = fichier.getAbsoluteFile().getParentFile();
+		this.geometries = geometries;
+		try {
+			for (int c = 0; c < 5; c++) {
+				colEntiers[c] = colonne();
+			}
+			colDecision = colonne();
+			if (nomsDistance != null) {
+				initDistances(nomsDistance);
+			}
+			if (geometries) {
+				colPositions = colonne();
+				colPositions.out.writeLong(0);
+				colWKB = colonne();
+			}
+		} catch (IOException e) {
+			supprimerColonnes();
+			throw e;
+		}
+	}
+	
+	private Colonne colonne() throws IOException {
+		Colonne c = new Colonne(repertoire);
+		colonnes.add(c);
+		return c;
+	}
+	
+	private void initDistances(String[] noms) throws IOException {
+		this.nomsDistance = noms.clone();
+		this.colReels = new Colonne[noms.length + 2];
+		for (int c = 0; c < colReels.length; c++) {
+			colReels[c] = colonne();
+		}
+	}
+	
+	public void ajouter(LigneResultat ligne) throws IOException {
+		if (ferme) {
+			throw new IOException("Fichier de résultats déjà fermé : " + fichier.getPath());
+		}
+		if (nomsDistance == null) {
+			String[] noms = new String[ligne.getDistances().length];
+			for (int c = 0; c < noms.length; c++) {
+				noms[c] = ligne.getNomDistance(c);
+			}
+			initDistances(noms);
+		}
+		
+		// Décision codée avant toute écriture : une erreur laisse les colonnes alignées
+		String decision = ligne.isDecision();
+		Integer d = codesDecision.get(decision);
+		if (d == null) {
+			if (decisions.size() == Byte.MAX_VALUE) {
+				throw new IOException("Trop de valeurs de décision distinctes");
+			}
+			d = decisions.size();
+			codesDecision.put(decision, d);
+			decisions.add(decision);
+		}
+		
+		colEntiers[0].out.writeInt(code(ligne.getIdTopoRef()));
+		colEntiers[1].out.writeInt(code(ligne.getNomTopoRef()));
+		colEntiers[2].out.writeInt(ligne.getCompteurC());
+		colEntiers[3].out.writeInt(code(ligne.getIdTopoComp()));
+		colEntiers[4].out.writeInt(code(ligne.getNomTopoComp()));
+		
+		int k = nomsDistance.length;
+		for (int c = 0; c < k; c++) {
+			colReels[c].out.writeDouble(ligne.getDistance(c));
+		}
+		colReels[k].out.writeDouble(ligne.getProbaPignistiquePremier());
+		colReels[k + 1].out.writeDouble(ligne.getProbaPignistiqueSecond());
+		
+		colDecision.out.writeByte(d);
+		
+		if (geometries) {
+			ajouterWKB(ligne.getGeomRef());
+			ajouterWKB(ligne.getGeomComp());
+		}
+		n++;
+	}
+	
+	private void ajouterWKB(IGeometry geom) throws IOException {
+		if (geom != null) {
+			byte[] octets = CodageWKB.encoder(geom);
+			colWKB.out.write(octets, 0, octets.length);
+			tailleWKB += octets.length;
+			tailleMaxWKB = Math.max(tailleMaxWKB, octets.length);
+		}
+		colPositions.out.writeLong(tailleWKB);
+	}
+	
+	private int code(String chaine) {
+		if (chaine == null) {
+			return -1;
+		}
+		Integer c = dictionnaire.get(chaine);
+		if (c == null) {
+			c = chaines.size();
+			dictionnaire.put(chaine, c);
+			chaines.add(chaine);
+		}
+		return c;
+	}
+	
+	public int getNbLignes() {
+		return n;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if (ferme) {
+			return;
+		}
+		ferme = true;
+		try {
+			if (nomsDistance == null) {
+				initDistances(new String[0]);
+			}
+			
+			ByteArrayOutputStream octetsEntete = new ByteArrayOutputStream();
+			DataOutputStream entete = new DataOutputStream(octetsEntete);
+			entete.writeInt(n);
+			entete.writeInt(nomsDistance.length);
+			entete.writeBoolean(geometries);
+			entete.writeInt(tailleMaxWKB);
+			for (String nom : nomsDistance) {
+				ecrireChaine(entete, nom);
+			}
+			entete.writeInt(decisions.size());
+			for (String decision : decisions) {
+				ecrireChaine(entete, decision);
+			}
+			entete.writeInt(chaines.size());
+			for (String chaine : chaines) {
+				ecrireChaine(entete, chaine);
+			}
+			entete.close();
+			
+			FileOutputStream fos = new FileOutputStream(fichier);
+			try {
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, TAILLE_TAMPON));
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(octetsEntete.size());
+				octetsEntete.writeTo(out);
+				out.flush();
+				
+				FileChannel canal = fos.getChannel();
+				for (Colonne c : colEntiers) {
+					c.copier(canal);
+				}
+				for (Colonne c : colReels) {
+					c.copier(canal);
+				}
+				colDecision.copier(canal);
+				if (geometries) {
+					colPositions.copier(canal);
+					colWKB.copier(canal);
+				}
+			} finally {
+				fos.close();
+			}
+		} finally {
+			supprimerColonnes();
+		}
+	}
+	
+	private void supprimerColonnes() {
+		for (Colonne c : colonnes) {
+			c.supprimer();
+		}
+		colonnes.clear();
+	}
+	
+	/** Chaîne UTF-8 précédée de sa longueur en octets, -1 pour null. */
+	private static void ecrireChaine(DataOutputStream out, String chaine) throws IOException {
+		if (chaine == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] octets = chaine.getBytes("UTF-8");
+		out.writeInt(octets.length);
+		out.write(octets);
+	}
+	
+}
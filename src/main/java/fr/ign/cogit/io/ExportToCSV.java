@@ -14,7 +14,7 @@
 package fr.ign.cogit.io;
 
 import java.io.File;
-import java.io.FileWriter;
+import java.io.IOException;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -38,71 +38,90 @@ public class ExportToCSV {
 	 * @param pathToExportTo
 	 */
 	public static void exportAppariement (List<LigneResultat> listeResultat, String pathToExportTo) {
+		exportAppariement(listeResultat, pathToExportTo, false);
+	}
+	
+	/**
+	 * Export des résultats dans un fichier CSV, compressé en gzip si demandé.
+	 * 
+	 * @param listeResultat
+	 * @param pathToExportTo préfixe du fichier, complété par la date
+	 * @param gzip
+	 */
+	public static void exportAppariement (List<LigneResultat> listeResultat, String pathToExportTo, boolean gzip) {
     
+		File fichier = new File(pathToExportTo + "-" + new SimpleDateFormat("yyyyMMdd-HHmmssSSS", Locale.FRANCE).format(new Date()) 
+				+ (gzip ? ".csv.gz" : ".csv"));
 		try {
-			FileWriter excel = new FileWriter(new File(pathToExportTo + "-" + new SimpleDateFormat("yyyyMMdd-HHmmssSSS", Locale.FRANCE).format(new Date()) + ".csv"));
-      
-			// Nom des colonnes
-			String nom_colonne = "ID_REF;NOM_REF;NUM_CANDIDAT;ID_CANDIDAT;NOM_CANDIDAT;";
-			for (int c = 0; c < listeResultat.get(0).getDistances().length; c++) {
-				nom_colonne = nom_colonne + listeResultat.get(0).getNomDistance(c) + ";";
-			}
-			nom_colonne = nom_colonne + "Proba pign premier;Proba pign second;Decision;";
-			nom_colonne = nom_colonne + "GEOM_REF;GEOM_CANDIDAT;";
-			
-			excel.write(nom_colonne + "\n");
-      
-			// Toutes les lignes
-			for (int i = 0; i < listeResultat.size(); i++) {
-				
-				// Boucle sur les distances 
-				String ligne = "";
-				
-				// ID AND NAME
-				ligne = ligne + listeResultat.get(i).getIdTopoRef() + ";";
-				ligne = ligne + listeResultat.get(i).getNomTopoRef() + ";";
-				ligne = ligne + listeResultat.get(i).getCompteurC() + ";";
-				ligne = ligne + listeResultat.get(i).getIdTopoComp() + ";";
-				ligne = ligne + listeResultat.get(i).getNomTopoComp() + ";";
-				
-				
-				// DISTANCE
-				for (int c = 0; c < listeResultat.get(i).getDistances().length; c++) {
-				  
-					double d = listeResultat.get(i).getDistance(c);
-					if (d < 0) {
-						ligne = ligne + ";";
-					} else {
-						ligne = ligne + d + ";";
-					}
-				
+			EcrivainCSV excel = new EcrivainCSV(fichier);
+			try {
+				ecrireEntete(excel, listeResultat.isEmpty() ? null : listeResultat.get(0));
+				for (LigneResultat ligne : listeResultat) {
+					ecrireLigne(excel, ligne);
 				}
-				
-				
-				// DECISION
-				ligne = ligne + listeResultat.get(i).getProbaPignistiquePremier() + ";";
-				ligne = ligne + listeResultat.get(i).getProbaPignistiqueSecond() + ";";
-				ligne = ligne + listeResultat.get(i).isDecision() + ";";
-				  
-				
-				// WKT GEOMETRY
-				ligne = ligne + listeResultat.get(i).getGeomRef() + ";";
-				ligne = ligne + listeResultat.get(i).getGeomComp() + ";";
-				
-				
-				// EOL
-				excel.write(ligne + "\n");
-				
-			}		
-    
-			// Fermeture du fichier
-			excel.close();
+			} finally {
+				// Fermeture du fichier
+				excel.close();
+			}
       
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
     
 	}
+	
+	/**
+	 * Nom des colonnes.
+	 * 
+	 * @param premiere une ligne de résultat, pour les noms des distances (peut être null)
+	 */
+	public static void ecrireEntete(EcrivainCSV excel, LigneResultat premiere) throws IOException {
+		excel.champ("ID_REF").champ("NOM_REF").champ("NUM_CANDIDAT").champ("ID_CANDIDAT").champ("NOM_CANDIDAT");
+		if (premiere != null) {
+			for (int c = 0; c < premiere.getDistances().length; c++) {
+				excel.champ(premiere.getNomDistance(c));
+			}
+		}
+		excel.champ("Proba pign premier").champ("Proba pign second").champ("Decision");
+		excel.champ("GEOM_REF").champ("GEOM_CANDIDAT");
+		excel.finLigne();
+	}
+	
+	/**
+	 * Une ligne de résultat ; permet d'écrire les résultats au fil de l'appariement.
+	 */
+	public static void ecrireLigne(EcrivainCSV excel, LigneResultat ligne) throws IOException {
+		
+		// ID AND NAME
+		excel.champ(ligne.getIdTopoRef());
+		excel.champ(ligne.getNomTopoRef());
+		excel.champ(ligne.getCompteurC());
+		excel.champ(ligne.getIdTopoComp());
+		excel.champ(ligne.getNomTopoComp());
+		
+		// DISTANCE
+		double[] distances = ligne.getDistances();
+		for (int c = 0; c < distances.length; c++) {
+			double d = distances[c];
+			if (d < 0) {
+				excel.champVide();
+			} else {
+				excel.champ(d);
+			}
+		}
+		
+		// DECISION
+		excel.champ(ligne.getProbaPignistiquePremier());
+		excel.champ(ligne.getProbaPignistiqueSecond());
+		excel.champ(ligne.isDecision());
+		
+		// WKT GEOMETRY
+		excel.champ(ligne.getGeomRef());
+		excel.champ(ligne.getGeomComp());
+		
+		// EOL
+		excel.finLigne();
+	}
   
 
 //	public static void exportSansCandidat(List<List<String>> tabSansCandidat) {
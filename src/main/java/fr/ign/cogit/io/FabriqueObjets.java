@@ -0,0 +1,83 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.io;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import fr.ign.cogit.geoxygene.api.feature.IFeature;
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
+import fr.ign.cogit.geoxygene.feature.DefaultFeature;
+import fr.ign.cogit.geoxygene.feature.SchemaDefaultFeature;
+import fr.ign.cogit.geoxygene.schema.schemaConceptuelISOJeu.AttributeType;
+import fr.ign.cogit.geoxygene.schema.schemaConceptuelISOJeu.FeatureType;
+import fr.ign.cogit.metadata.Objet;
+
+/**
+ * Création des objets lus : seuls les attributs décrits par les métadonnées
+ * (clé, nom, nature) sont gardés, dans un schéma partagé par tous les objets
+ * de la population.
+ */
+public class FabriqueObjets {
+	
+	private final Objet objet;
+	
+	private final SchemaDefaultFeature schema;
+	
+	public FabriqueObjets(Objet objet, String nomType) {
+		this.objet = objet;
+		
+		FeatureType featureType = new FeatureType();
+		featureType.setTypeName(nomType);
+		AttributeType cle = new AttributeType(objet.getCle(), "String");
+		AttributeType nom = new AttributeType(objet.getNom(), "String");
+		AttributeType nature = new AttributeType(objet.getAttrNameSemantique(), "String");
+		featureType.addFeatureAttribute(cle);
+		featureType.addFeatureAttribute(nom);
+		featureType.addFeatureAttribute(nature);
+		
+		this.schema = new SchemaDefaultFeature();
+		featureType.setSchema(schema);
+		schema.setFeatureType(featureType);
+		
+		Map<Integer, String[]> attLookup = new HashMap<Integer, String[]>(0);
+		attLookup.put(new Integer(0), new String[] { cle.getNomField(), cle.getMemberName() });
+		attLookup.put(new Integer(1), new String[] { nom.getNomField(), nom.getMemberName() });
+		attLookup.put(new Integer(2), new String[] { nature.getNomField(), nature.getMemberName() });
+		schema.setAttLookup(attLookup);
+	}
+	
+	public Objet getObjet() {
+		return objet;
+	}
+	
+	/**
+	 * @return noms des attributs à lire : clé, nom, nature
+	 */
+	public String[] getAttributs() {
+		return new String[] { objet.getCle(), objet.getNom(), objet.getAttrNameSemantique() };
+	}
+	
+	/**
+	 * Appelée par les lecteurs, éventuellement depuis plusieurs threads.
+	 */
+	public IFeature creer(IGeometry geom, String cle, String nom, String nature) {
+		DefaultFeature feature = new DefaultFeature(geom);
+		feature.setFeatureType(schema.getFeatureType());
+		feature.setSchema(schema);
+		feature.setAttributes(new Object[] { cle, nom, nature });
+		return feature;
+	}
+	
+}
@@ -0,0 +1,266 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import fr.ign.cogit.geoxygene.api.feature.IFeature;
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
+
+/**
+ * Lecture d'un CSV avec une colonne de géométries WKT, au format écrit par
+ * EcrivainCSV (séparateur ;, champs entre guillemets possibles, première
+ * ligne : noms des colonnes).
+ * 
+ * Le fichier est projeté en mémoire par blocs de lignes complètes, lus en
+ * parallèle ; seules les colonnes utiles sont décodées. Le découpage suppose
+ * qu'aucun champ entre guillemets ne contient de saut de ligne (sinon, lire
+ * avec un seul thread).
+ */
+public class LecteurCSV implements LecteurObjets {
+	
+	/** Logger. */
+	private final static Logger LOGGER = Logger.getLogger(LecteurCSV.class.getName());
+	
+	/** Noms reconnus pour la colonne géométrie, sans tenir compte de la casse. */
+	private static final String[] COLONNES_GEOMETRIE = new String[] { "WKT", "GEOM", "GEOMETRY", "GEOMETRIE", "THE_GEOM" };
+	
+	private static final long TAILLE_BLOC_MIN = 1L << 20;
+	private static final long TAILLE_BLOC_MAX = 1L << 28;
+	
+	private final byte separateur;
+	private final String colonneGeometrie;
+	private final Charset charset;
+	
+	public LecteurCSV() {
+		this(';', null, EcrivainCSV.CHARSET_DEFAUT);
+	}
+	
+	/**
+	 * @param colonneGeometrie nom de la colonne WKT, null pour la chercher parmi les noms usuels
+	 */
+	public LecteurCSV(char separateur, String colonneGeometrie, Charset charset) {
+		this.separateur = (byte) separateur;
+		this.colonneGeometrie = colonneGeometrie;
+		this.charset = charset;
+	}
+	
+	@Override
+	public List<IFeature> lire(File fichier, final FabriqueObjets fabrique, int nbThreads) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(fichier, "r");
+		try {
+			final FileChannel canal = raf.getChannel();
+			long taille = canal.size();
+			
+			// En-tête
+			long finEntete = finLigne(canal, 0, taille);
+			MappedByteBuffer buf = canal.map(FileChannel.MapMode.READ_ONLY, 0, finEntete);
+			byte[] octets = new byte[(int) finEntete];
+			buf.get(octets);
+			List<String> noms = new ArrayList<String>();
+			int[] bornes = new int[2];
+			// Marque d'ordre UTF-8 (fichiers enregistrés par Excel) : ne fait pas partie du premier nom
+			int p = 0;
+			if (octets.length >= 3 && octets[0] == (byte) 0xEF && octets[1] == (byte) 0xBB && octets[2] == (byte) 0xBF) {
+				p = 3;
+			}
+			int n = longueurLigne(octets, p, octets.length);
+			while (p <= n) {
+				p = champ(octets, p, n, bornes);
+				noms.add(decoder(octets, bornes[0], bornes[1]));
+			}
+			
+			String[] attributs = fabrique.getAttributs();
+			final int[] colonnes = new int[4];
+			for (int a = 0; a < 3; a++) {
+				colonnes[a] = indice(noms, attributs[a]);
+				if (colonnes[a] < 0) {
+					LOGGER.warn("Colonne " + attributs[a] + " absente de " + fichier.getName());
+				}
+			}
+			colonnes[3] = -1;
+			if (colonneGeometrie != null) {
+				colonnes[3] = indice(noms, colonneGeometrie);
+			} else {
+				for (int k = 0; k < COLONNES_GEOMETRIE.length && colonnes[3] < 0; k++) {
+					colonnes[3] = indice(noms, COLONNES_GEOMETRIE[k]);
+				}
+			}
+			if (colonnes[3] < 0) {
+				throw new IOException("Pas de colonne géométrie dans " + fichier.getName());
+			}
+			
+			// Blocs de lignes complètes
+			final AtomicInteger nbSansGeometrie = new AtomicInteger();
+			long tailleBloc = Math.max(TAILLE_BLOC_MIN, Math.min(TAILLE_BLOC_MAX, (taille - finEntete) / Math.max(1, 4 * nbThreads) + 1));
+			List<Callable<List<IFeature>>> taches = new ArrayList<Callable<List<IFeature>>>();
+			long debut = finEntete;
+			while (debut < taille) {
+				long fin = finLigne(canal, Math.min(taille, debut + tailleBloc), taille);
+				final MappedByteBuffer bloc = canal.map(FileChannel.MapMode.READ_ONLY, debut, fin - debut);
+				taches.add(new Callable<List<IFeature>>() {
+					@Override
+					public List<IFeature> call() throws Exception {
+						return lireBloc(bloc, colonnes, fabrique, nbSansGeometrie);
+					}
+				});
+				debut = fin;
+			}
+			
+			List<IFeature> objets = new ArrayList<IFeature>();
+			for (List<IFeature> partie : ChargeurPopulation.executer(taches, nbThreads)) {
+				objets.addAll(partie);
+			}
+			if (nbSansGeometrie.get() > 0) {
+				LOGGER.warn(nbSansGeometrie.get() + " objets sans géométrie ignorés dans " + fichier.getName());
+			}
+			return objets;
+		} finally {
+			raf.close();
+		}
+	}
+	
+	private static int indice(List<String> noms, String nom) {
+		for (int i = 0; i < noms.size(); i++) {
+			if (noms.get(i).equalsIgnoreCase(nom)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * @return position qui suit le premier saut de ligne à partir de debut (ou la fin du fichier)
+	 */
+	private static long finLigne(FileChannel canal, long debut, long taille) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(8192);
+		long p = debut;
+		while (p < taille) {
+			buf.clear();
+			int lus = canal.read(buf, p);
+			if (lus <= 0) {
+				break;
+			}
+			for (int i = 0; i < lus; i++) {
+				if (buf.get(i) == '\n') {
+					return p + i + 1;
+				}
+			}
+			p += lus;
+		}
+		return taille;
+	}
+	
+	private List<IFeature> lireBloc(MappedByteBuffer bloc, int[] colonnes, FabriqueObjets fabrique, AtomicInteger nbSansGeometrie) {
+		List<IFeature> objets = new ArrayList<IFeature>();
+		int maxColonne = 0;
+		for (int c : colonnes) {
+			maxColonne = Math.max(maxColonne, c);
+		}
+		String[] valeurs = new String[4];
+		int[] bornes = new int[2];
+		byte[] ligne = new byte[4096];
+		while (bloc.hasRemaining()) {
+			// Copie de la ligne courante
+			int n = 0;
+			while (bloc.hasRemaining()) {
+				byte b = bloc.get();
+				if (b == '\n') {
+					break;
+				}
+				if (n == ligne.length) {
+					byte[] plus = new byte[2 * n];
+					System.arraycopy(ligne, 0, plus, 0, n);
+					ligne = plus;
+				}
+				ligne[n++] = b;
+			}
+			n = longueurLigne(ligne, 0, n);
+			if (n == 0) {
+				continue;
+			}
+			
+			for (int a = 0; a < 4; a++) {
+				valeurs[a] = null;
+			}
+			int p = 0;
+			for (int k = 0; k <= maxColonne && p <= n; k++) {
+				p = champ(ligne, p, n, bornes);
+				for (int a = 0; a < 4; a++) {
+					if (colonnes[a] == k) {
+						valeurs[a] = decoder(ligne, bornes[0], bornes[1]);
+					}
+				}
+			}
+			// Champ vide, "null" ou géométrie EMPTY : objet ignoré, voir LecteurObjets
+			IGeometry geom = CodageWKT.decoder(valeurs[3] == null ? "" : valeurs[3]);
+			if (geom == null) {
+				nbSansGeometrie.incrementAndGet();
+				continue;
+			}
+			objets.add(fabrique.creer(geom, valeurs[0], valeurs[1], valeurs[2]));
+		}
+		return objets;
+	}
+	
+	/** Longueur sans le \r final. */
+	private static int longueurLigne(byte[] ligne, int debut, int n) {
+		while (n > debut && (ligne[n - 1] == '\r' || ligne[n - 1] == '\n')) {
+			n--;
+		}
+		return n;
+	}
+	
+	/**
+	 * Repère le champ qui commence en p.
+	 * 
+	 * @param bornes début et fin du champ, guillemets compris
+	 * @return début du champ suivant (n + 1 après le dernier champ)
+	 */
+	private int champ(byte[] ligne, int p, int n, int[] bornes) {
+		bornes[0] = p;
+		boolean guillemets = false;
+		while (p < n) {
+			byte b = ligne[p];
+			if (b == '"') {
+				guillemets = !guillemets;
+			} else if (b == separateur && !guillemets) {
+				break;
+			}
+			p++;
+		}
+		bornes[1] = p;
+		return p + 1;
+	}
+	
+	private String decoder(byte[] ligne, int debut, int fin) {
+		if (fin - debut >= 2 && ligne[debut] == '"' && ligne[fin - 1] == '"') {
+			return new String(ligne, debut + 1, fin - debut - 2, charset).replace("\"\"", "\"");
+		}
+		return new String(ligne, debut, fin - debut, charset);
+	}
+	
+}
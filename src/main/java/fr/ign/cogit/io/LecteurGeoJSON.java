@@ -0,0 +1,461 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import fr.ign.cogit.geoxygene.api.feature.IFeature;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IDirectPositionList;
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPosition;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPositionList;
+
+/**
+ * Lecture en flux d'un GeoJSON (FeatureCollection ou Feature seul) : le
+ * fichier n'est jamais chargé en entier, chaque objet est créé dès que sa
+ * description est lue. Seules les propriétés clé, nom et nature sont gardées ;
+ * à défaut de propriété clé, l'identifiant "id" de l'objet est utilisé.
+ * 
+ * Types lus : Point, MultiPoint, LineString, MultiLineString, Polygon et
+ * MultiPolygon (X et Y seulement). La lecture est faite par un seul thread.
+ * Les objets sans géométrie (null, coordonnées vides ou type non géré) sont
+ * ignorés, voir LecteurObjets.
+ */
+public class LecteurGeoJSON implements LecteurObjets {
+	
+	/** Logger. */
+	private final static Logger LOGGER = Logger.getLogger(LecteurGeoJSON.class.getName());
+	
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+	private static final int TAILLE_TAMPON = 1 << 16;
+	
+	private Reader lecteur;
+	private final char[] tampon = new char[TAILLE_TAMPON];
+	private int position;
+	private int limite;
+	private long nbCaracteres;
+	
+	private FabriqueObjets fabrique;
+	private String[] attributs;
+	private List<IFeature> objets;
+	private int nbSansGeometrie;
+	
+	@Override
+	public synchronized List<IFeature> lire(File fichier, FabriqueObjets fabrique, int nbThreads) throws IOException {
+		this.lecteur = new InputStreamReader(new FileInputStream(fichier), CHARSET);
+		this.position = 0;
+		this.limite = 0;
+		this.nbCaracteres = 0;
+		this.fabrique = fabrique;
+		this.attributs = fabrique.getAttributs();
+		this.objets = new ArrayList<IFeature>();
+		this.nbSansGeometrie = 0;
+		try {
+			if (suivant() != '{') {
+				throw erreur("objet GeoJSON attendu");
+			}
+			lireObjet();
+			if (nbSansGeometrie > 0) {
+				LOGGER.warn(nbSansGeometrie + " objets sans géométrie ignorés dans " + fichier.getName());
+			}
+			return objets;
+		} finally {
+			lecteur.close();
+			lecteur = null;
+		}
+	}
+	
+	/**
+	 * Objet JSON dont l'accolade ouvrante vient d'être lue : collection
+	 * ("features") ou objet géographique ("geometry", "properties", "id").
+	 */
+	private void lireObjet() throws IOException {
+		IGeometry geom = null;
+		String[] valeurs = null;
+		String id = null;
+		boolean feature = false;
+		
+		int c = suivant();
+		while (c != '}') {
+			if (c != '"') {
+				throw erreur("nom de membre attendu");
+			}
+			String nom = lireChaine();
+			attendre(':');
+			if (nom.equals("features")) {
+				attendre('[');
+				c = suivant();
+				while (c != ']') {
+					if (c != '{') {
+						throw erreur("objet attendu dans features");
+					}
+					lireObjet();
+					c = separateur(']');
+				}
+			} else if (nom.equals("geometry")) {
+				feature = true;
+				c = suivant();
+				if (c == '{') {
+					geom = lireGeometrie();
+				} else {
+					lireValeurSimple(c);
+				}
+			} else if (nom.equals("properties")) {
+				feature = true;
+				c = suivant();
+				if (c == '{') {
+					valeurs = lireProprietes();
+				} else {
+					lireValeurSimple(c);
+				}
+			} else if (nom.equals("id")) {
+				id = lireValeur(suivant());
+			} else {
+				lireValeur(suivant());
+			}
+			c = separateur('}');
+		}
+		
+		if (feature && geom == null) {
+			nbSansGeometrie++;
+		} else if (feature) {
+			if (valeurs == null) {
+				valeurs = new String[3];
+			}
+			if (valeurs[0] == null) {
+				valeurs[0] = id;
+			}
+			objets.add(fabrique.creer(geom, valeurs[0], valeurs[1], valeurs[2]));
+		}
+	}
+	
+	private String[] lireProprietes() throws IOException {
+		String[] valeurs = new String[3];
+		int c = suivant();
+		while (c != '}') {
+			if (c != '"') {
+				throw erreur("nom de propriété attendu");
+			}
+			String nom = lireChaine();
+			attendre(':');
+			String valeur = lireValeur(suivant());
+			for (int a = 0; a < 3; a++) {
+				if (nom.equals(attributs[a])) {
+					valeurs[a] = valeur;
+				}
+			}
+			c = separateur('}');
+		}
+		return valeurs;
+	}
+	
+	/**
+	 * Les coordonnées peuvent précéder le type : elles sont lues sous forme de
+	 * listes imbriquées, la géométrie est construite à la fin de l'objet.
+	 */
+	private IGeometry lireGeometrie() throws IOException {
+		String type = null;
+		Object coordonnees = null;
+		int c = suivant();
+		while (c != '}') {
+			if (c != '"') {
+				throw erreur("nom de membre attendu");
+			}
+			String nom = lireChaine();
+			attendre(':');
+			c = suivant();
+			if (nom.equals("type")) {
+				type = lireValeur(c);
+			} else if (nom.equals("coordinates") && c == '[') {
+				coordonnees = lireCoordonnees();
+			} else {
+				lireValeur(c);
+			}
+			c = separateur('}');
+		}
+		if (type == null || coordonnees == null) {
+			if (type != null) {
+				LOGGER.warn("Géométrie " + type + " non gérée");
+			}
+			return null;
+		}
+		if (vide(coordonnees)) {
+			// "coordinates": [] (géométrie vide) : pas de géométrie
+			return null;
+		}
+		return construire(type, coordonnees);
+	}
+	
+	/**
+	 * @return vrai si les coordonnées ne contiennent aucune position
+	 */
+	private static boolean vide(Object coordonnees) {
+		if (coordonnees instanceof DirectPosition) {
+			return false;
+		}
+		for (Object e : (List<?>) coordonnees) {
+			if (!vide(e)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Tableau de coordonnées dont le crochet ouvrant vient d'être lu.
+	 * 
+	 * @return DirectPosition pour une position, DirectPositionList pour un
+	 *         tableau de positions, List sinon
+	 */
+	private Object lireCoordonnees() throws IOException {
+		int c = suivant();
+		if (c == ']') {
+			return new ArrayList<Object>();
+		}
+		if (c != '[') {
+			double x = lireNombre(c);
+			attendre(',');
+			double y = lireNombre(suivant());
+			c = suivant();
+			while (c == ',') {
+				lireNombre(suivant());
+				c = suivant();
+			}
+			if (c != ']') {
+				throw erreur("] attendu");
+			}
+			return new DirectPosition(x, y);
+		}
+		List<Object> elements = new ArrayList<Object>();
+		while (true) {
+			elements.add(lireCoordonnees());
+			c = separateur(']');
+			if (c == ']') {
+				break;
+			}
+			if (c != '[') {
+				throw erreur("[ attendu");
+			}
+		}
+		if (elements.get(0) instanceof DirectPosition) {
+			DirectPositionList positions = new DirectPositionList();
+			for (Object e : elements) {
+				positions.add((DirectPosition) e);
+			}
+			return positions;
+		}
+		return elements;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static IGeometry construire(String type, Object coordonnees) {
+		if (type.equals("Point")) {
+			DirectPositionList positions = new DirectPositionList();
+			positions.add((DirectPosition) coordonnees);
+			return ConstructionGeometries.points(positions);
+		}
+		if (type.equals("MultiPoint")) {
+			return ConstructionGeometries.points((IDirectPositionList) coordonnees);
+		}
+		if (type.equals("LineString")) {
+			List<IDirectPositionList> parties = new ArrayList<IDirectPositionList>(1);
+			parties.add((IDirectPositionList) coordonnees);
+			return ConstructionGeometries.lignes(parties);
+		}
+		if (type.equals("MultiLineString")) {
+			return ConstructionGeometries.lignes(listes((List<Object>) coordonnees));
+		}
+		if (type.equals("Polygon")) {
+			List<List<IDirectPositionList>> polygones = new ArrayList<List<IDirectPositionList>>(1);
+			polygones.add(listes((List<Object>) coordonnees));
+			return ConstructionGeometries.polygones(polygones);
+		}
+		if (type.equals("MultiPolygon")) {
+			List<List<IDirectPositionList>> polygones = new ArrayList<List<IDirectPositionList>>();
+			for (Object p : (List<Object>) coordonnees) {
+				polygones.add(listes((List<Object>) p));
+			}
+			return ConstructionGeometries.polygones(polygones);
+		}
+		LOGGER.warn("Géométrie " + type + " non gérée");
+		return null;
+	}
+	
+	private static List<IDirectPositionList> listes(List<Object> elements) {
+		List<IDirectPositionList> listes = new ArrayList<IDirectPositionList>(elements.size());
+		for (Object e : elements) {
+			listes.add((IDirectPositionList) e);
+		}
+		return listes;
+	}
+	
+	/**
+	 * Valeur JSON quelconque dont le premier caractère est c.
+	 * 
+	 * @return texte d'une chaîne, d'un nombre ou d'un booléen ; null pour null,
+	 *         un objet ou un tableau (ignorés)
+	 */
+	private String lireValeur(int c) throws IOException {
+		if (c == '"') {
+			return lireChaine();
+		}
+		if (c == '{' || c == '[') {
+			ignorer(c);
+			return null;
+		}
+		return lireValeurSimple(c);
+	}
+	
+	/** Nombre, booléen ou null. */
+	private String lireValeurSimple(int c) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		while (c >= 0 && c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c)) {
+			sb.append((char) c);
+			c = lireCaractere();
+		}
+		if (c >= 0) {
+			position--;
+		}
+		String valeur = sb.toString();
+		return valeur.equals("null") ? null : valeur;
+	}
+	
+	private double lireNombre(int c) throws IOException {
+		String valeur = lireValeurSimple(c);
+		try {
+			return Double.parseDouble(valeur);
+		} catch (NumberFormatException e) {
+			throw erreur("nombre attendu : " + valeur);
+		}
+	}
+	
+	/** Objet ou tableau ignoré, chaînes comprises. */
+	private void ignorer(int c) throws IOException {
+		int profondeur = 1;
+		while (profondeur > 0) {
+			c = lireCaractere();
+			if (c < 0) {
+				throw erreur("fin de fichier inattendue");
+			}
+			if (c == '"') {
+				lireChaine();
+			} else if (c == '{' || c == '[') {
+				profondeur++;
+			} else if (c == '}' || c == ']') {
+				profondeur--;
+			}
+		}
+	}
+	
+	/** Chaîne dont le guillemet ouvrant vient d'être lu. */
+	private String lireChaine() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		while (true) {
+			int c = lireCaractere();
+			if (c < 0) {
+				throw erreur("chaîne non terminée");
+			}
+			if (c == '"') {
+				return sb.toString();
+			}
+			if (c == '\\') {
+				c = lireCaractere();
+				switch (c) {
+				case 'b':
+					sb.append('\b');
+					break;
+				case 'f':
+					sb.append('\f');
+					break;
+				case 'n':
+					sb.append('\n');
+					break;
+				case 'r':
+					sb.append('\r');
+					break;
+				case 't':
+					sb.append('\t');
+					break;
+				case 'u':
+					int code = 0;
+					for (int k = 0; k < 4; k++) {
+						code = code * 16 + Character.digit(lireCaractere(), 16);
+					}
+					sb.append((char) code);
+					break;
+				default:
+					sb.append((char) c);
+				}
+			} else {
+				sb.append((char) c);
+			}
+		}
+	}
+	
+	/**
+	 * Après un élément : virgule (renvoie le début de l'élément suivant) ou fin.
+	 */
+	private int separateur(char fin) throws IOException {
+		int c = suivant();
+		if (c == ',') {
+			return suivant();
+		}
+		if (c != fin) {
+			throw erreur(fin + " attendu");
+		}
+		return c;
+	}
+	
+	private void attendre(char attendu) throws IOException {
+		if (suivant() != attendu) {
+			throw erreur(attendu + " attendu");
+		}
+	}
+	
+	/** Caractère suivant, hors blancs. */
+	private int suivant() throws IOException {
+		int c = lireCaractere();
+		while (c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\uFEFF') {
+			c = lireCaractere();
+		}
+		return c;
+	}
+	
+	private int lireCaractere() throws IOException {
+		if (position == limite) {
+			nbCaracteres += limite;
+			limite = lecteur.read(tampon, 0, TAILLE_TAMPON);
+			position = 0;
+			if (limite <= 0) {
+				limite = 0;
+				return -1;
+			}
+		}
+		return tampon[position++];
+	}
+	
+	private IOException erreur(String message) {
+		return new IOException("GeoJSON, caractère " + (nbCaracteres + position) + " : " + message);
+	}
+	
+}
@@ -0,0 +1,39 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import fr.ign.cogit.geoxygene.api.feature.IFeature;
+
+/**
+ * Lecture d'un fichier de données en objets, voir ChargeurPopulation.
+ * 
+ * Tous les lecteurs suivent la même règle pour les géométries manquantes :
+ * un objet sans géométrie (absente, nulle ou vide) n'est pas créé ; il est
+ * compté et le total est signalé une fois par fichier.
+ */
+public interface LecteurObjets {
+	
+	/**
+	 * @param fichier fichier à lire
+	 * @param fabrique création des objets à partir des attributs lus
+	 * @param nbThreads nombre de threads de lecture (1 : séquentiel)
+	 * @return les objets ayant une géométrie, dans l'ordre du fichier
+	 */
+	public List<IFeature> lire(File fichier, FabriqueObjets fabrique, int nbThreads) throws IOException;
+	
+}
@@ -0,0 +1,254 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.List;
+
+import fr.ign.cogit.dao.LigneResultat;
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
+
+/**
+ * Lecture d'un fichier écrit par EcrivainResultatsBinaire. Chaque colonne est
+ * projetée en mémoire : l'ouverture ne lit que l'en-tête et le dictionnaire,
+ * l'accès à une ligne est direct.
+ */
+public class LecteurResultatsBinaire implements AutoCloseable {
+	
+	/** Taille des segments projetés pour les WKB (chevauchement de tailleMaxWKB). */
+	private static final long SEGMENT = 1L << 30;
+	
+	private static final String[] AUCUN_ATTRIBUT = new String[0];
+	
+	private final RandomAccessFile raf;
+	
+	private final int n;
+	private final String[] nomsDistance;
+	private final String[] decisions;
+	private final String[] chaines;
+	private final boolean geometries;
+	
+	private final IntBuffer[] entiers = new IntBuffer[5];
+	private final DoubleBuffer[] reels;
+	private final ByteBuffer colDecision;
+	
+	private LongBuffer positions;
+	private long debutWKB;
+	private MappedByteBuffer[] segments;
+	
+	public LecteurResultatsBinaire(File fichier) throws IOException {
+		this.raf = new RandomAccessFile(fichier, "r");
+		try {
+			FileChannel canal = raf.getChannel();
+			ByteBuffer debut = canal.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(12, canal.size()));
+			if (debut.remaining() < 12 || debut.getInt() != EcrivainResultatsBinaire.MAGIC 
+					|| debut.getInt() != EcrivainResultatsBinaire.VERSION) {
+				throw new IOException("Format de fichier de résultats inconnu : " + fichier.getPath());
+			}
+			int tailleEntete = debut.getInt();
+			
+			ByteBuffer entete = canal.map(FileChannel.MapMode.READ_ONLY, 12, tailleEntete);
+			this.n = entete.getInt();
+			int k = entete.getInt();
+			this.geometries = entete.get() != 0;
+			int tailleMaxWKB = entete.getInt();
+			this.nomsDistance = lireChaines(entete, k);
+			this.decisions = lireChaines(entete, entete.getInt());
+			this.chaines = lireChaines(entete, entete.getInt());
+			
+			long position = 12 + tailleEntete;
+			for (int c = 0; c < 5; c++) {
+				entiers[c] = projeter(canal, position, 4L * n).asIntBuffer();
+				position += 4L * n;
+			}
+			this.reels = new DoubleBuffer[k + 2];
+			for (int c = 0; c < k + 2; c++) {
+				reels[c] = projeter(canal, position, 8L * n).asDoubleBuffer();
+				position += 8L * n;
+			}
+			this.colDecision = projeter(canal, position, n);
+			position += n;
+			
+			if (geometries) {
+				positions = projeter(canal, position, 8L * (2 * n + 1)).asLongBuffer();
+				position += 8L * (2 * n + 1);
+				debutWKB = position;
+				long taille = positions.get(2 * n);
+				int nbSegments = (int) ((taille + SEGMENT - 1) / SEGMENT);
+				segments = new MappedByteBuffer[nbSegments];
+				for (int s = 0; s < nbSegments; s++) {
+					long d = s * SEGMENT;
+					segments[s] = canal.map(FileChannel.MapMode.READ_ONLY, debutWKB + d, Math.min(SEGMENT + tailleMaxWKB, taille - d));
+				}
+			}
+		} catch (IOException e) {
+			raf.close();
+			throw e;
+		} catch (RuntimeException e) {
+			raf.close();
+			throw new IOException("Fichier de résultats corrompu : " + fichier.getPath(), e);
+		}
+	}
+	
+	private static MappedByteBuffer projeter(FileChannel canal, long position, long taille) throws IOException {
+		if (taille > Integer.MAX_VALUE) {
+			throw new IOException("Colonne trop grande pour être projetée : " + taille + " octets");
+		}
+		return canal.map(FileChannel.MapMode.READ_ONLY, position, taille);
+	}
+	
+	private static String[] lireChaines(ByteBuffer buf, int nb) throws IOException {
+		String[] chaines = new String[nb];
+		for (int i = 0; i < nb; i++) {
+			int l = buf.getInt();
+			if (l >= 0) {
+				byte[] octets = new byte[l];
+				buf.get(octets);
+				chaines[i] = new String(octets, "UTF-8");
+			}
+		}
+		return chaines;
+	}
+	
+	public int size() {
+		return n;
+	}
+	
+	public int getNbDistances() {
+		return nomsDistance.length;
+	}
+	
+	public String getNomDistance(int c) {
+		return nomsDistance[c];
+	}
+	
+	private String chaine(int colonne, int i) {
+		int code = entiers[colonne].get(i);
+		return code < 0 ? null : chaines[code];
+	}
+	
+	public String getIdTopoRef(int i) {
+		return chaine(0, i);
+	}
+	
+	public String getNomTopoRef(int i) {
+		return chaine(1, i);
+	}
+	
+	public int getCompteurC(int i) {
+		return entiers[2].get(i);
+	}
+	
+	public String getIdTopoComp(int i) {
+		return chaine(3, i);
+	}
+	
+	public String getNomTopoComp(int i) {
+		return chaine(4, i);
+	}
+	
+	public double getDistance(int i, int c) {
+		return reels[c].get(i);
+	}
+	
+	public double getProbaPignistiquePremier(int i) {
+		return reels[nomsDistance.length].get(i);
+	}
+	
+	public double getProbaPignistiqueSecond(int i) {
+		return reels[nomsDistance.length + 1].get(i);
+	}
+	
+	public String isDecision(int i) {
+		return decisions[colDecision.get(i)];
+	}
+	
+	public boolean hasGeometries() {
+		return geometries;
+	}
+	
+	/**
+	 * @return géométrie de l'objet de référence, null si absente
+	 */
+	public IGeometry getGeomRef(int i) {
+		return geometrie(2 * i);
+	}
+	
+	public IGeometry getGeomComp(int i) {
+		return geometrie(2 * i + 1);
+	}
+	
+	private IGeometry geometrie(int k) {
+		if (!geometries) {
+			return null;
+		}
+		long debut = positions.get(k);
+		long fin = positions.get(k + 1);
+		if (fin == debut) {
+			return null;
+		}
+		ByteBuffer segment = segments[(int) (debut / SEGMENT)].duplicate();
+		segment.position((int) (debut % SEGMENT));
+		return CodageWKB.decoder(segment);
+	}
+	
+	/**
+	 * Ligne de résultat reconstruite (sans les attributs, non stockés).
+	 */
+	public LigneResultat getLigne(int i) {
+		int k = nomsDistance.length;
+		double[] distances = new double[k];
+		for (int c = 0; c < k; c++) {
+			distances[c] = getDistance(i, c);
+		}
+		LigneResultat ligne = new LigneResultat(getIdTopoRef(i), getNomTopoRef(i), AUCUN_ATTRIBUT, getCompteurC(i), 
+				getIdTopoComp(i), getNomTopoComp(i), AUCUN_ATTRIBUT, distances, nomsDistance, getProbaPignistiquePremier(i));
+		ligne.initProbaPignistiqueSecond(getProbaPignistiqueSecond(i));
+		ligne.initDecision(isDecision(i));
+		ligne.setGeom(getGeomRef(i), getGeomComp(i));
+		return ligne;
+	}
+	
+	/**
+	 * Vue en liste, les lignes étant reconstruites à la demande (par exemple
+	 * pour TableauResultatFrame).
+	 */
+	public List<LigneResultat> getLignes() {
+		return new AbstractList<LigneResultat>() {
+			@Override
+			public LigneResultat get(int i) {
+				return getLigne(i);
+			}
+			@Override
+			public int size() {
+				return n;
+			}
+		};
+	}
+	
+	@Override
+	public void close() throws IOException {
+		raf.close();
+	}
+	
+}
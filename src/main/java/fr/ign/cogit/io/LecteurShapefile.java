@@ -0,0 +1,389 @@
+/**
+ * 
+ * This software is released under the licence CeCILL
+ * 
+ * see LICENSE.TXT
+ * 
+ * see <http://www.cecill.info/ http://www.cecill.info/
+ * 
+ * 
+ * @copyright IGN
+ * 
+ * 
+ */
+package fr.ign.cogit.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import fr.ign.cogit.geoxygene.api.feature.IFeature;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IDirectPositionList;
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPosition;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPositionList;
+
+/**
+ * Lecture d'un shapefile (.shp, .shx, .dbf) par projection en mémoire.
+ * 
+ * Les enregistrements sont répartis en plages lues en parallèle : l'index .shx
+ * donne directement la position de chaque géométrie (à défaut, les en-têtes du
+ * .shp sont parcourus une fois). Chaque plage est projetée d'un bloc ; elle est
+ * coupée si sa partie du .shp ou du .dbf dépasse la taille maximale d'une
+ * projection, quel que soit le nombre de threads. Seuls les attributs clé, nom
+ * et nature sont décodés dans le .dbf. Types lus : point, multipoint, 
+ * polyligne, polygone et leurs variantes Z et M (seuls X et Y sont gardés). 
+ * Les enregistrements sans géométrie (forme nulle) sont ignorés, voir 
+ * LecteurObjets.
+ */
+public class LecteurShapefile implements LecteurObjets {
+	
+	/** Logger. */
+	private final static Logger LOGGER = Logger.getLogger(LecteurShapefile.class.getName());
+	
+	private static final int TAILLE_ENTETE = 100;
+	private static final Charset CHARSET_DEFAUT = Charset.forName("ISO-8859-1");
+	
+	/** Nombre de plages par thread, pour équilibrer la charge. */
+	private static final int PLAGES_PAR_THREAD = 4;
+	
+	/** Taille projetée maximale d'une plage, sous la limite de 2 Go d'un MappedByteBuffer. */
+	private static final long TAILLE_PLAGE_MAX = 1L << 30;
+	
+	private final long taillePlageMax;
+	
+	public LecteurShapefile() {
+		this(TAILLE_PLAGE_MAX);
+	}
+	
+	/**
+	 * @param taillePlageMax taille maximale, en octets, de la partie du .shp ou
+	 *        du .dbf projetée pour une plage (au plus 2 Go ; une plage garde
+	 *        toujours au moins un enregistrement)
+	 */
+	public LecteurShapefile(long taillePlageMax) {
+		if (taillePlageMax <= 0 || taillePlageMax > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Taille de plage hors de ]0, 2 Go] : " + taillePlageMax);
+		}
+		this.taillePlageMax = taillePlageMax;
+	}
+	
+	@Override
+	public List<IFeature> lire(File fichier, final FabriqueObjets fabrique, int nbThreads) throws IOException {
+		String base = fichier.getPath().substring(0, fichier.getPath().length() - 4);
+		File shx = new File(base + ".shx");
+		File dbf = new File(base + ".dbf");
+		File cpg = new File(base + ".cpg");
+		
+		RandomAccessFile rafShp = new RandomAccessFile(fichier, "r");
+		RandomAccessFile rafDbf = new RandomAccessFile(dbf, "r");
+		try {
+			final FileChannel canalShp = rafShp.getChannel();
+			final FileChannel canalDbf = rafDbf.getChannel();
+			final long tailleShp = canalShp.size();
+			
+			final long[] positions = shx.exists() ? lireIndex(shx) : parcourirEnregistrements(canalShp, tailleShp);
+			final EnteteDbf entete = new EnteteDbf(canalDbf, fabrique.getAttributs(), charset(cpg));
+			if (entete.nbEnregistrements != positions.length) {
+				throw new IOException(fichier.getName() + " : " + positions.length + " géométries pour "
+						+ entete.nbEnregistrements + " enregistrements attributaires");
+			}
+			
+			int n = positions.length;
+			int nbPlages = Math.max(1, Math.min(n, nbThreads * PLAGES_PAR_THREAD));
+			final AtomicInteger nbSansGeometrie = new AtomicInteger();
+			List<Callable<List<IFeature>>> taches = new ArrayList<Callable<List<IFeature>>>();
+			for (int k = 0; k < nbPlages; k++) {
+				int debutPlage = (int) ((long) n * k / nbPlages);
+				int finPlage = (int) ((long) n * (k + 1) / nbPlages);
+				while (debutPlage < finPlage) {
+					final int debut = debutPlage;
+					final int fin = finPortion(positions, tailleShp, entete.tailleEnregistrement, debutPlage, finPlage);
+					taches.add(new Callable<List<IFeature>>() {
+						@Override
+						public List<IFeature> call() throws Exception {
+							return lirePlage(canalShp, tailleShp, positions, canalDbf, entete, debut, fin, fabrique, nbSansGeometrie);
+						}
+					});
+					debutPlage = fin;
+				}
+			}
+			
+			List<IFeature> objets = new ArrayList<IFeature>(n);
+			for (List<IFeature> partie : ChargeurPopulation.executer(taches, nbThreads)) {
+				objets.addAll(partie);
+			}
+			if (nbSansGeometrie.get() > 0) {
+				LOGGER.warn(nbSansGeometrie.get() + " objets sans géométrie ignorés dans " + fichier.getName());
+			}
+			return objets;
+		} finally {
+			rafShp.close();
+			rafDbf.close();
+		}
+	}
+	
+	private static Charset charset(File cpg) {
+		if (cpg.exists()) {
+			try {
+				String nom = new String(Files.readAllBytes(cpg.toPath()), CHARSET_DEFAUT).trim();
+				return Charset.forName(nom);
+			} catch (Exception e) {
+				LOGGER.warn("Encodage " + cpg.getName() + " non reconnu, " + CHARSET_DEFAUT.name() + " par défaut");
+			}
+		}
+		return CHARSET_DEFAUT;
+	}
+	
+	/**
+	 * @return position dans le .shp de chaque enregistrement (en-tête compris)
+	 */
+	private static long[] lireIndex(File shx) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(shx, "r");
+		try {
+			FileChannel canal = raf.getChannel();
+			MappedByteBuffer buf = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+			int n = (int) ((canal.size() - TAILLE_ENTETE) / 8);
+			long[] positions = new long[n];
+			for (int i = 0; i < n; i++) {
+				// Position en mots de 16 bits, non signée
+				positions[i] = 2L * (buf.getInt(TAILLE_ENTETE + 8 * i) & 0xFFFFFFFFL);
+			}
+			return positions;
+		} finally {
+			raf.close();
+		}
+	}
+	
+	/**
+	 * Sans .shx : parcours des en-têtes d'enregistrement (numéro, longueur).
+	 */
+	private static long[] parcourirEnregistrements(FileChannel canal, long taille) throws IOException {
+		ByteBuffer entete = ByteBuffer.allocate(8);
+		long[] positions = new long[1024];
+		int n = 0;
+		long p = TAILLE_ENTETE;
+		while (p + 8 <= taille) {
+			entete.clear();
+			canal.read(entete, p);
+			if (n == positions.length) {
+				long[] plus = new long[2 * n];
+				System.arraycopy(positions, 0, plus, 0, n);
+				positions = plus;
+			}
+			positions[n++] = p;
+			p += 8 + 2L * (entete.getInt(4) & 0xFFFFFFFFL);
+		}
+		long[] resultat = new long[n];
+		System.arraycopy(positions, 0, resultat, 0, n);
+		return resultat;
+	}
+	
+	/**
+	 * @return fin de la plus longue portion [debut, fin[ de la plage [debut, 
+	 *         finPlage[ dont ni la partie du .shp ni celle du .dbf ne dépasse
+	 *         la taille maximale (au moins un enregistrement)
+	 */
+	private int finPortion(long[] positions, long tailleShp, int tailleEnregistrement, int debut, int finPlage) {
+		long maxEnregistrements = Math.max(1, taillePlageMax / Math.max(1, tailleEnregistrement));
+		int fin = (int) Math.min(finPlage, debut + maxEnregistrements);
+		// Positions croissantes : recherche dichotomique de la dernière fin qui tient dans le .shp
+		long limite = positions[debut] + taillePlageMax;
+		int bas = debut + 1;
+		int haut = fin;
+		while (bas < haut) {
+			int milieu = (bas + haut + 1) >>> 1;
+			long finShp = milieu < positions.length ? positions[milieu] : tailleShp;
+			if (finShp <= limite) {
+				bas = milieu;
+			} else {
+				haut = milieu - 1;
+			}
+		}
+		return bas;
+	}
+	
+	private static List<IFeature> lirePlage(FileChannel canalShp, long tailleShp, long[] positions,
+			FileChannel canalDbf, EnteteDbf entete, int debut, int fin, FabriqueObjets fabrique, 
+			AtomicInteger nbSansGeometrie) throws IOException {
+		long debutShp = positions[debut];
+		long finShp = fin < positions.length ? positions[fin] : tailleShp;
+		MappedByteBuffer shp = canalShp.map(FileChannel.MapMode.READ_ONLY, debutShp, finShp - debutShp);
+		long debutDbf = entete.tailleEntete + (long) debut * entete.tailleEnregistrement;
+		MappedByteBuffer dbf = canalDbf.map(FileChannel.MapMode.READ_ONLY, debutDbf, (long) (fin - debut) * entete.tailleEnregistrement);
+		
+		List<IFeature> objets = new ArrayList<IFeature>(fin - debut);
+		byte[] enregistrement = new byte[entete.tailleEnregistrement];
+		String[] valeurs = new String[3];
+		for (int i = debut; i < fin; i++) {
+			dbf.get(enregistrement);
+			if (enregistrement[0] == '*') {
+				continue;
+			}
+			for (int a = 0; a < 3; a++) {
+				valeurs[a] = entete.valeur(enregistrement, a);
+			}
+			// Contenu de l'enregistrement, après le numéro et la longueur
+			shp.position((int) (positions[i] - debutShp) + 8);
+			ByteBuffer contenu = shp.slice().order(ByteOrder.LITTLE_ENDIAN);
+			IGeometry geom = geometrie(contenu);
+			if (geom == null) {
+				LOGGER.debug("Enregistrement " + (i + 1) + " sans géométrie ignoré");
+				nbSansGeometrie.incrementAndGet();
+				continue;
+			}
+			objets.add(fabrique.creer(geom, valeurs[0], valeurs[1], valeurs[2]));
+		}
+		return objets;
+	}
+	
+	/**
+	 * @return géométrie de l'enregistrement, null pour une forme nulle ou un type non géré
+	 */
+	private static IGeometry geometrie(ByteBuffer b) {
+		int type = b.getInt(0);
+		switch (type) {
+		case 1:
+		case 11:
+		case 21:
+			DirectPositionList point = new DirectPositionList();
+			point.add(new DirectPosition(b.getDouble(4), b.getDouble(12)));
+			return ConstructionGeometries.points(point);
+		case 8:
+		case 18:
+		case 28:
+			return ConstructionGeometries.points(positions(b, 40, 0, b.getInt(36)));
+		case 3:
+		case 13:
+		case 23:
+			return ConstructionGeometries.lignes(parties(b));
+		case 5:
+		case 15:
+		case 25:
+			return ConstructionGeometries.polygones(anneaux(parties(b)));
+		case 0:
+			return null;
+		default:
+			LOGGER.warn("Type de géométrie " + type + " non géré");
+			return null;
+		}
+	}
+	
+	private static IDirectPositionList positions(ByteBuffer b, int debutPoints, int debut, int fin) {
+		DirectPositionList positions = new DirectPositionList();
+		for (int j = debut; j < fin; j++) {
+			int p = debutPoints + 16 * j;
+			positions.add(new DirectPosition(b.getDouble(p), b.getDouble(p + 8)));
+		}
+		return positions;
+	}
+	
+	/** Parties d'une polyligne ou d'un polygone. */
+	private static List<IDirectPositionList> parties(ByteBuffer b) {
+		int nbParties = b.getInt(36);
+		int nbPoints = b.getInt(40);
+		int debutPoints = 44 + 4 * nbParties;
+		List<IDirectPositionList> parties = new ArrayList<IDirectPositionList>(nbParties);
+		for (int k = 0; k < nbParties; k++) {
+			int debut = b.getInt(44 + 4 * k);
+			int fin = k + 1 < nbParties ? b.getInt(48 + 4 * k) : nbPoints;
+			parties.add(positions(b, debutPoints, debut, fin));
+		}
+		return parties;
+	}
+	
+	/**
+	 * Regroupement des anneaux : un anneau dans le sens horaire ouvre un nouveau
+	 * polygone, les anneaux dans le sens trigonométrique sont les trous du précédent.
+	 */
+	private static List<List<IDirectPositionList>> anneaux(List<IDirectPositionList> parties) {
+		List<List<IDirectPositionList>> polygones = new ArrayList<List<IDirectPositionList>>();
+		for (IDirectPositionList anneau : parties) {
+			if (polygones.isEmpty() || aireSignee(anneau) < 0) {
+				polygones.add(new ArrayList<IDirectPositionList>());
+			}
+			polygones.get(polygones.size() - 1).add(anneau);
+		}
+		return polygones;
+	}
+	
+	private static double aireSignee(IDirectPositionList anneau) {
+		double aire = 0;
+		for (int j = 0; j + 1 < anneau.size(); j++) {
+			aire += anneau.get(j).getX() * anneau.get(j + 1).getY() - anneau.get(j + 1).getX() * anneau.get(j).getY();
+		}
+		return aire / 2;
+	}
+	
+	/**
+	 * En-tête du .dbf : taille des enregistrements et position des trois
+	 * attributs lus.
+	 */
+	private static final class EnteteDbf {
+		
+		final int nbEnregistrements;
+		final int tailleEntete;
+		final int tailleEnregistrement;
+		final int[] positions = new int[] { -1, -1, -1 };
+		final int[] largeurs = new int[3];
+		final Charset charset;
+		
+		EnteteDbf(FileChannel canal, String[] attributs, Charset charset) throws IOException {
+			this.charset = charset;
+			ByteBuffer debut = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+			canal.read(debut, 0);
+			nbEnregistrements = debut.getInt(4);
+			tailleEntete = debut.getShort(8) & 0xFFFF;
+			tailleEnregistrement = debut.getShort(10) & 0xFFFF;
+			
+			ByteBuffer champs = ByteBuffer.allocate(tailleEntete - 32);
+			canal.read(champs, 32);
+			// Le premier octet de chaque enregistrement marque les suppressions
+			int position = 1;
+			for (int p = 0; p + 32 <= champs.limit() && champs.get(p) != 0x0D; p += 32) {
+				int l = 0;
+				while (l < 11 && champs.get(p + l) != 0) {
+					l++;
+				}
+				byte[] nom = new byte[l];
+				for (int k = 0; k < l; k++) {
+					nom[k] = champs.get(p + k);
+				}
+				String nomChamp = new String(nom, CHARSET_DEFAUT);
+				int largeur = champs.get(p + 16) & 0xFF;
+				for (int a = 0; a < 3; a++) {
+					if (nomChamp.equalsIgnoreCase(attributs[a])) {
+						positions[a] = position;
+						largeurs[a] = largeur;
+					}
+				}
+				position += largeur;
+			}
+			for (int a = 0; a < 3; a++) {
+				if (positions[a] < 0) {
+					LOGGER.warn("Attribut " + attributs[a] + " absent du .dbf");
+				}
+			}
+		}
+		
+		String valeur(byte[] enregistrement, int a) {
+			if (positions[a] < 0) {
+				return null;
+			}
+			return new String(enregistrement, positions[a], largeurs[a], charset).trim();
+		}
+	}
+	
+}
@@ -124,6 +124,8 @@ public class MainSiberie {
         IFeature ref = getRef();
         
         List<LigneResultat> lres = evidenceAlgoFusionCritere.appariementObjet(ref, candidatListe);
+        evidenceAlgoFusionCritere.liberer();
+        dwp.close();
         
         TableauResultatFrame tableauPanel = new TableauResultatFrame();
         tableauPanel.displayEnsFrame("tests", lres);
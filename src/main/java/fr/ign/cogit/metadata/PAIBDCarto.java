@@ -26,6 +26,19 @@ public class PAIBDCarto implements Objet {
   public final String ATT_NOM = "nom";
   public final String ATT_NATURE = "nature";
   
+  /**
+   * Valeurs de l'attribut nature des points remarquables du relief de la BDCarto.
+   * Toutes sont résolues en concepts par data/ontology/synonymes_natures.txt.
+   */
+  public static final String[] NATURES = new String[] {
+    "Cap, pointe", "Cirque", "Col, passage", "Crête, arête",
+    "Dépression, cuvette", "Dune", "Escarpement, falaise", "Glacier, névé",
+    "Gorge, ravin", "Grotte, gouffre", "Ile, îlot", "Isthme", "Massif rocheux",
+    "Pic", "Plage", "Plaine, plateau", "Récif", "Rocher, chaos",
+    "Sommet, point culminant", "Vallée, vallon", "Versant, coteau",
+    "Volcan, cratère"
+  };
+  
   public String getCle() {
     return this.ATT_CLE;
   }
@@ -26,6 +26,16 @@ public class PAIBDTopo implements Objet {
   public final String ATT_NOM = "nom";
   public final String ATT_NATURE = "nature";
   
+  /**
+   * Valeurs de l'attribut nature de la classe PAI orographie de la BDTopo.
+   * Toutes sont résolues en concepts par data/ontology/synonymes_natures.txt.
+   */
+  public static final String[] NATURES = new String[] {
+    "Cap", "Cirque", "Col", "Crête", "Dépression", "Dune", "Escarpement",
+    "Gorge", "Grotte", "Ile", "Isthme", "Montagne", "Pic", "Plage", "Plaine",
+    "Récif", "Rochers", "Sommet", "Vallée", "Versant", "Volcan"
+  };
+  
   public String getCle() {
     return this.ATT_CLE;
   }
@@ -0,0 +1,27 @@
+package fr;
+
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IDirectPositionList;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPosition;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPositionList;
+
+/**
+ * Construction des listes de positions des tests.
+ * 
+ */
+public final class Positions {
+	
+	private Positions() {
+	}
+	
+	/**
+	 * @param xy x0, y0, x1, y1, ...
+	 */
+	public static IDirectPositionList positions(double... xy) {
+		IDirectPositionList l = new DirectPositionList();
+		for (int i = 0; i < xy.length; i += 2) {
+			l.add(new DirectPosition(xy[i], xy[i + 1]));
+		}
+		return l;
+	}
+	
+}
@@ -0,0 +1,67 @@
+package fr;
+
+import static fr.Positions.positions;
+
+import org.junit.Assert;
+
+import fr.ign.cogit.distance.geom.DistanceDirectedHausdorff;
+import fr.ign.cogit.distance.geom.DistanceEuclidienne;
+import fr.ign.cogit.distance.geom.DistanceFrechet;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPosition;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.GM_LineString;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.GM_Polygon;
+import fr.ign.cogit.geoxygene.spatial.geomprim.GM_Point;
+import junit.framework.TestCase;
+
+/**
+ * Seules les distances dont le calcul s'est arrêté au seuil d'abandon sont
+ * signalées (isAbandonnee) : une distance exacte au-delà du seuil ne l'est pas.
+ * 
+ */
+public class TestAbandonDistances extends TestCase {
+	
+	public void testEuclidienne() {
+		DistanceEuclidienne de = new DistanceEuclidienne();
+		de.setSeuilAbandon(220);
+		
+		// Point / point et point / ligne : toujours exactes
+		de.setGeom(new GM_Point(new DirectPosition(0, 0)), new GM_Point(new DirectPosition(300, 400)));
+		Assert.assertEquals("Point - point", 500, de.getDistance(), 1e-9);
+		Assert.assertFalse("Point - point exacte", de.isAbandonnee());
+		de.setGeom(new GM_Point(new DirectPosition(0, 300)), new GM_LineString(positions(0, 0, 100, 0)));
+		Assert.assertEquals("Point - ligne", 300, de.getDistance(), 1e-9);
+		Assert.assertFalse("Point - ligne exacte", de.isAbandonnee());
+		
+		// Surfaces éloignées : rectangles englobants au-delà du seuil
+		de.setGeom(new GM_Polygon(new GM_LineString(positions(0, 0, 10, 0, 10, 10, 0, 0))), 
+				new GM_Polygon(new GM_LineString(positions(1000, 0, 1010, 0, 1010, 10, 1000, 0))));
+		Assert.assertTrue("Minorant > seuil", de.getDistance() > 220);
+		Assert.assertTrue("Enveloppes : abandon", de.isAbandonnee());
+		
+		de.setGeom(new GM_Point(new DirectPosition(0, 0)), new GM_Point(new DirectPosition(1, 0)));
+		de.getDistance();
+		Assert.assertFalse("Remis à zéro à chaque calcul", de.isAbandonnee());
+	}
+	
+	public void testFrechet() {
+		DistanceFrechet df = new DistanceFrechet();
+		df.setGeom(new GM_LineString(positions(0, 0, 100, 0, 200, 0)), new GM_LineString(positions(0, 30, 100, 30, 200, 30)));
+		df.setSeuilAbandon(50);
+		Assert.assertEquals(30, df.getDistance(), 1e-9);
+		Assert.assertFalse(df.isAbandonnee());
+		df.setSeuilAbandon(20);
+		Assert.assertTrue(df.getDistance() > 20);
+		Assert.assertTrue(df.isAbandonnee());
+	}
+	
+	public void testHausdorff() {
+		DistanceDirectedHausdorff dh = new DistanceDirectedHausdorff();
+		dh.setGeom(new GM_LineString(positions(0, 0, 100, 0)), new GM_LineString(positions(0, 300, 100, 300)));
+		Assert.assertEquals("Sans seuil", 300, dh.getDistance(), 1e-9);
+		Assert.assertFalse(dh.isAbandonnee());
+		dh.setSeuilAbandon(220);
+		Assert.assertTrue(dh.getDistance() > 220);
+		Assert.assertTrue(dh.isAbandonnee());
+	}
+
+}
@@ -0,0 +1,61 @@
+package fr;
+
+import org.junit.Assert;
+
+import fr.ign.cogit.distance.text.CacheNormalisation;
+import fr.ign.cogit.distance.text.DistanceJaroWinkler;
+import fr.ign.cogit.distance.text.DistanceLevenshtein;
+import junit.framework.TestCase;
+
+/**
+ * Éviction progressive du cache de normalisation : une valeur utilisée à
+ * chaque génération n'est jamais recalculée, une valeur délaissée l'est, et
+ * la taille reste bornée. Les distances textuelles passent par le cache des
+ * minuscules.
+ * 
+ */
+public class TestCacheNormalisation extends TestCase {
+	
+	/** Cache qui compte les normalisations. */
+	private static final class CacheCompteur extends CacheNormalisation<String> {
+		int nbCalculs = 0;
+		CacheCompteur(int tailleMax) {
+			super(tailleMax);
+		}
+		@Override
+		protected synchronized String calculer(String brut) {
+			nbCalculs++;
+			return brut.toLowerCase();
+		}
+	}
+	
+	public void testEvictionProgressive() {
+		// Générations de 2 valeurs
+		CacheCompteur cache = new CacheCompteur(4);
+		Assert.assertEquals("chemin rural", cache.get("Chemin rural"));
+		cache.get("Lieu-dit");
+		Assert.assertEquals(2, cache.nbCalculs);
+		
+		// Valeur fréquente : remontée de l'ancienne génération, pas recalculée
+		for (int i = 0; i < 10; i++) {
+			cache.get("Chemin rural");
+			cache.get("Valeur " + i);
+		}
+		Assert.assertEquals("Une normalisation par nouvelle valeur", 12, cache.nbCalculs);
+		Assert.assertTrue("Taille bornée : " + cache.size(), cache.size() <= 4);
+		
+		// Valeur délaissée depuis deux générations : recalculée
+		cache.get("Lieu-dit");
+		Assert.assertEquals(13, cache.nbCalculs);
+		
+		cache.clear();
+		Assert.assertEquals(0, cache.size());
+	}
+	
+	public void testDistancesEnMinuscules() {
+		Assert.assertEquals(0, DistanceLevenshtein.getDistance("Col de la Sibérie", "col de la sibérie"), 0);
+		Assert.assertEquals(0, new DistanceLevenshtein().getDistances("PIC", new String[] { "pic" })[0], 0);
+		Assert.assertEquals(DistanceJaroWinkler.getDistance("pic", "pics"), DistanceJaroWinkler.getDistance("PIC", "Pics"), 0);
+	}
+	
+}
@@ -0,0 +1,77 @@
+package fr;
+
+import org.junit.Assert;
+
+import fr.ign.cogit.criteria.CritereOrientation;
+import fr.ign.cogit.criteria.FonctionMasse;
+import fr.ign.cogit.distance.geom.DistanceAbstractGeom;
+import fr.ign.cogit.geoxygene.api.feature.IFeature;
+import fr.ign.cogit.geoxygene.feature.DefaultFeature;
+import junit.framework.TestCase;
+
+/**
+ * Un écart d'orientation inconnu (NaN, ou Float.MAX_VALUE sans orientation)
+ * donne l'ignorance (0, 0, 1), et non les masses d'orientations identiques.
+ *
+ */
+public class TestCritereOrientation extends TestCase {
+
+	private static final double[] IGNORANCE = new double[] { 0, 0, 1 };
+
+	public void testFonctionMasseNaN() {
+		FonctionMasse f2 = new FonctionMasse(new double[] { 0, 1 },
+				new double[] { 0.6, 0 }, new double[] { 0, 0.3 }, new double[] { 0.4, 0.7 });
+		FonctionMasse f3 = new FonctionMasse(new double[] { 0, 1, 2 },
+				new double[] { 0.5, 0, 0.5 }, new double[] { 0, 0.5, 0 }, new double[] { 0.5, 0.5, 0.5 });
+		FonctionMasse f4 = new FonctionMasse(new double[] { 0, 1, 1, 2 },
+				new double[] { 0.5, 0, 0.2, 0.5 }, new double[] { 0, 0.5, 0.3, 0 }, new double[] { 0.5, 0.5, 0.5, 0.5 });
+		for (FonctionMasse f : new FonctionMasse[] { f2, f3, f4 }) {
+			// Chemin scalaire
+			verifier(IGNORANCE, f.masses(Double.NaN), 0);
+
+			// Chemin par lot : NaN au milieu de distances connues
+			double[] distances = new double[] { 0, Double.NaN, 0.5, Double.NaN };
+			double[] masses = new double[12];
+			f.masses(distances, 4, masses);
+			verifier(f.masses(0), masses, 0);
+			verifier(IGNORANCE, masses, 3);
+			verifier(f.masses(0.5), masses, 6);
+			verifier(IGNORANCE, masses, 9);
+		}
+	}
+
+	public void testSansOrientation() throws Exception {
+		for (double ecart : new double[] { Double.NaN, Float.MAX_VALUE }) {
+			CritereOrientation critere = new CritereOrientation(distance(ecart));
+			critere.setFeature(new DefaultFeature(), new DefaultFeature());
+			verifier(IGNORANCE, critere.getMasse(), 0);
+
+			double[] masses = new double[6];
+			critere.getMasses(new DefaultFeature(), new IFeature[] { new DefaultFeature(), new DefaultFeature() },
+					new double[2], masses);
+			verifier(IGNORANCE, masses, 0);
+			verifier(IGNORANCE, masses, 3);
+		}
+
+		// Orientations identiques : l'appariement reste le plus crédible
+		CritereOrientation critere = new CritereOrientation(distance(0));
+		critere.setFeature(new DefaultFeature(), new DefaultFeature());
+		verifier(new double[] { 0.5, 0, 0.5 }, critere.getMasse(), 0);
+	}
+
+	private static DistanceAbstractGeom distance(final double ecart) {
+		return new DistanceAbstractGeom() {
+			@Override
+			public double getDistance() {
+				return ecart;
+			}
+		};
+	}
+
+	private static void verifier(double[] attendues, double[] masses, int i) {
+		for (int j = 0; j < 3; j++) {
+			Assert.assertEquals("Masse " + j, attendues[j], masses[i + j], 1e-12);
+		}
+	}
+
+}
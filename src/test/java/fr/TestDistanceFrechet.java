@@ -0,0 +1,48 @@
+package fr;
+
+import org.junit.Assert;
+
+import fr.ign.cogit.distance.geom.DistanceFrechet;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IDirectPositionList;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.ILineString;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPosition;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPositionList;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.GM_LineString;
+import junit.framework.TestCase;
+
+/**
+ * Distance de Fréchet discrète entre deux lignes.
+ * 
+ */
+public class TestDistanceFrechet extends TestCase {
+	
+	private ILineString getLigne(double[] xy) {
+		IDirectPositionList l = new DirectPositionList();
+		for (int i = 0; i < xy.length; i += 2) {
+			l.add(new DirectPosition(xy[i], xy[i + 1]));
+		}
+		return new GM_LineString(l);
+	}
+	
+	public void testLignesParalleles() {
+		DistanceFrechet df = new DistanceFrechet();
+		df.setGeom(getLigne(new double[] { 0, 0, 50, 0, 100, 0 }), getLigne(new double[] { 0, 10, 100, 10 }));
+		Assert.assertEquals("Lignes parallèles", 50.99, df.getDistance(), 0.01);
+	}
+	
+	public void testSensParcours() {
+		// Même géométrie parcourue en sens inverse : la distance de Fréchet en tient compte
+		double[] a = new double[] { 0, 0, 100, 0 };
+		double[] b = new double[] { 100, 0, 0, 0 };
+		Assert.assertEquals("Sens inverse", 100, DistanceFrechet.distanceFrechet(a, b), 0.001);
+		Assert.assertEquals("Même ligne", 0, DistanceFrechet.distanceFrechet(a, a), 0.001);
+	}
+	
+	public void testAbandon() {
+		double[] a = new double[] { 0, 0, 100, 0, 200, 0 };
+		double[] b = new double[] { 0, 30, 100, 30, 200, 30 };
+		Assert.assertEquals("Sans abandon", 30, DistanceFrechet.distanceFrechet(a, b, 50), 0.001);
+		Assert.assertTrue("Abandon : minorant > seuil", DistanceFrechet.distanceFrechet(a, b, 20) > 20);
+	}
+
+}
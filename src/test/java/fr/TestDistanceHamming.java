@@ -0,0 +1,70 @@
+package fr;
+
+import java.util.Random;
+
+import org.junit.Assert;
+
+import fr.ign.cogit.distance.text.DistanceHamming;
+import junit.framework.TestCase;
+
+/**
+ * Distance de Hamming par mots de 64 bits comparée au calcul caractère par
+ * caractère sur des codes aléatoires.
+ * 
+ */
+public class TestDistanceHamming extends TestCase {
+	
+	private static final String ALPHABET = "0123456789abAB-éÉ";
+	
+	private String code(Random r, int max) {
+		int n = r.nextInt(max + 1);
+		StringBuilder sb = new StringBuilder(n);
+		for (int i = 0; i < n; i++) {
+			sb.append(ALPHABET.charAt(r.nextInt(ALPHABET.length())));
+		}
+		return sb.toString();
+	}
+	
+	/** Calcul de référence : positions différentes, plus les caractères en trop. */
+	private int hamming(String s, String t) {
+		String a = s.toUpperCase();
+		String b = t.toUpperCase();
+		int n = Math.min(a.length(), b.length());
+		int d = Math.abs(a.length() - b.length());
+		for (int i = 0; i < n; i++) {
+			if (a.charAt(i) != b.charAt(i)) {
+				d++;
+			}
+		}
+		return d;
+	}
+	
+	public void testAleatoire() {
+		Random r = new Random(29);
+		DistanceHamming dh = new DistanceHamming();
+		for (int k = 0; k < 500; k++) {
+			String ref = code(r, 13);
+			String[] comps = new String[20];
+			for (int i = 0; i < comps.length; i++) {
+				// codes de même longueur, en partie identiques
+				comps[i] = i % 2 == 0 ? code(r, 13) : ref.substring(0, r.nextInt(ref.length() + 1)) + code(r, 3);
+			}
+			double[] distances = dh.getDistances(ref, comps);
+			for (int i = 0; i < comps.length; i++) {
+				int h = hamming(ref, comps[i]);
+				int n = Math.max(ref.length(), comps[i].length());
+				Assert.assertEquals(ref + " / " + comps[i], h, DistanceHamming.getHammingDistance(ref, comps[i]), 0);
+				Assert.assertEquals(ref + " / " + comps[i], n == 0 ? 0 : (double) h / n, distances[i], 1e-12);
+			}
+		}
+	}
+	
+	public void testCodes() {
+		Assert.assertEquals(0, DistanceHamming.getDistance("2A004", "2a004"), 0);
+		Assert.assertEquals(0.2, DistanceHamming.getDistance("38185", "38186"), 1e-12);
+		Assert.assertEquals(0.4, DistanceHamming.getDistance("D1075", "D10"), 1e-12);
+		Assert.assertEquals(1, DistanceHamming.getDistance(null, "N7"), 0);
+		Assert.assertEquals(0, DistanceHamming.getDistance(null, ""), 0);
+	}
+
+}
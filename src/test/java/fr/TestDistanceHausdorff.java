@@ -0,0 +1,102 @@
+package fr;
+
+import java.util.Random;
+
+import org.junit.Assert;
+
+import fr.ign.cogit.distance.geom.DistanceDirectedHausdorff;
+import junit.framework.TestCase;
+
+/**
+ * Hausdorff orienté (interruption anticipée, grille de segments) comparé au
+ * calcul exhaustif sommet / segment sur des lignes aléatoires.
+ * 
+ */
+public class TestDistanceHausdorff extends TestCase {
+	
+	private double[] ligne(Random r, int n, double x0, double y0) {
+		double[] xy = new double[2 * n];
+		double x = x0;
+		double y = y0;
+		for (int i = 0; i < n; i++) {
+			x += r.nextDouble() * 20 - 5;
+			y += r.nextDouble() * 20 - 10;
+			xy[2 * i] = x;
+			xy[2 * i + 1] = y;
+		}
+		return xy;
+	}
+	
+	private double distance2Segment(double px, double py, double[] xy, int s) {
+		double x1 = xy[2 * s], y1 = xy[2 * s + 1];
+		if (2 * s + 2 == xy.length) {
+			return (px - x1) * (px - x1) + (py - y1) * (py - y1);
+		}
+		double x2 = xy[2 * s + 2], y2 = xy[2 * s + 3];
+		double dx = x2 - x1, dy = y2 - y1;
+		double l2 = dx * dx + dy * dy;
+		double t = l2 == 0 ? 0 : Math.max(0, Math.min(1, ((px - x1) * dx + (py - y1) * dy) / l2));
+		double ex = x1 + t * dx - px, ey = y1 + t * dy - py;
+		return ex * ex + ey * ey;
+	}
+	
+	/** Calcul exhaustif : max sur les sommets de a du min sur les segments des parties de b. */
+	private double hausdorff(double[][] a, double[][] b) {
+		double max2 = 0;
+		for (double[] pa : a) {
+			for (int i = 0; i < pa.length; i += 2) {
+				double min2 = Double.POSITIVE_INFINITY;
+				for (double[] pb : b) {
+					int nbSegments = Math.max(1, pb.length / 2 - 1);
+					for (int s = 0; s < nbSegments; s++) {
+						min2 = Math.min(min2, distance2Segment(pa[i], pa[i + 1], pb, s));
+					}
+				}
+				max2 = Math.max(max2, min2);
+			}
+		}
+		return Math.sqrt(max2);
+	}
+	
+	public void testLignes() {
+		Random r = new Random(32);
+		for (int k = 0; k < 300; k++) {
+			// au-delà de 32 segments, la ligne de comparaison passe par la grille
+			double[] a = ligne(r, 2 + r.nextInt(80), 0, 0);
+			double[] b = ligne(r, 2 + r.nextInt(200), r.nextDouble() * 30, r.nextDouble() * 30);
+			double attendu = hausdorff(new double[][] { a }, new double[][] { b });
+			Assert.assertEquals(attendu, DistanceDirectedHausdorff.hausdorffOriente(a, b, Double.MAX_VALUE), 1e-9);
+		}
+	}
+	
+	public void testParties() {
+		Random r = new Random(33);
+		for (int k = 0; k < 200; k++) {
+			double[][] a = new double[1 + r.nextInt(3)][];
+			double[][] b = new double[1 + r.nextInt(4)][];
+			for (int i = 0; i < a.length; i++) {
+				a[i] = ligne(r, 1 + r.nextInt(40), r.nextDouble() * 200, r.nextDouble() * 200);
+			}
+			for (int j = 0; j < b.length; j++) {
+				b[j] = ligne(r, 1 + r.nextInt(100), r.nextDouble() * 200, r.nextDouble() * 200);
+			}
+			double attendu = hausdorff(a, b);
+			Assert.assertEquals(attendu, DistanceDirectedHausdorff.hausdorffOriente(a, b, Double.MAX_VALUE), 1e-9);
+		}
+	}
+	
+	public void testAbandon() {
+		Random r = new Random(34);
+		for (int k = 0; k < 100; k++) {
+			double[] a = ligne(r, 50, 0, 0);
+			double[] b = ligne(r, 120, 40, 40);
+			double attendu = hausdorff(new double[][] { a }, new double[][] { b });
+			double borne = attendu / 2;
+			double d = DistanceDirectedHausdorff.hausdorffOriente(a, b, borne);
+			// minorant de la distance, au-dessus du seuil
+			Assert.assertTrue(d > borne);
+			Assert.assertTrue(d <= attendu + 1e-9);
+		}
+	}
+
+}
@@ -0,0 +1,78 @@
+package fr;
+
+import java.util.Random;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Assert;
+
+import fr.ign.cogit.distance.text.DistanceLevenshtein;
+import junit.framework.TestCase;
+
+/**
+ * Distance de Levenshtein par lot (algorithme bit-parallèle de Myers) comparée
+ * au calcul classique sur des chaînes aléatoires.
+ * 
+ */
+public class TestDistanceLevenshtein extends TestCase {
+	
+	private static final String ALPHABET = "abcdeéè -'ŒЖ中";
+	
+	private String chaine(Random r, int max) {
+		int n = r.nextInt(max + 1);
+		StringBuilder sb = new StringBuilder(n);
+		for (int i = 0; i < n; i++) {
+			sb.append(ALPHABET.charAt(r.nextInt(ALPHABET.length())));
+		}
+		return sb.toString();
+	}
+	
+	private void comparer(Random r, int longueurRef, int longueurMax) {
+		String ref = chaine(r, longueurRef - 1) + "a";
+		String[] comps = new String[50];
+		for (int i = 0; i < comps.length; i++) {
+			comps[i] = chaine(r, longueurMax);
+		}
+		double[] distances = new DistanceLevenshtein().getDistances(ref, comps);
+		for (int i = 0; i < comps.length; i++) {
+			// Textes comparés en minuscules (Œ et Ж de l'alphabet)
+			double attendu = (double) StringUtils.getLevenshteinDistance(ref.toLowerCase(), comps[i].toLowerCase()) 
+					/ Math.max(ref.length(), comps[i].length());
+			Assert.assertEquals(ref + " / " + comps[i], attendu, distances[i], 1e-12);
+		}
+	}
+	
+	public void testMotifsCourts() {
+		Random r = new Random(26);
+		for (int k = 0; k < 200; k++) {
+			comparer(r, 64, 80);
+		}
+	}
+	
+	public void testMotifsLongs() {
+		// Au-delà de 64 caractères, le lot revient au calcul classique
+		Random r = new Random(64);
+		for (int k = 0; k < 50; k++) {
+			comparer(r, 150, 150);
+		}
+		String ref = "Saint-Martin-de-la-Grande-Montagne-sur-le-Plateau-du-Vercors-Nord";
+		Assert.assertEquals(65, ref.length());
+		double[] d = new DistanceLevenshtein().getDistances(ref, new String[] { ref, ref.substring(1), "" });
+		Assert.assertEquals(0, d[0], 1e-12);
+		Assert.assertEquals(1.0 / 65, d[1], 1e-12);
+		Assert.assertEquals(1, d[2], 1e-12);
+	}
+	
+	public void testBord64() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 32; i++) {
+			sb.append("ab");
+		}
+		String ref = sb.toString();
+		Assert.assertEquals(64, ref.length());
+		double[] d = new DistanceLevenshtein().getDistances(ref, new String[] { ref, "b" + ref, ref.substring(0, 63) + "c" });
+		Assert.assertEquals(0, d[0], 1e-12);
+		Assert.assertEquals(1.0 / 65, d[1], 1e-12);
+		Assert.assertEquals(1.0 / 64, d[2], 1e-12);
+	}
+
+}
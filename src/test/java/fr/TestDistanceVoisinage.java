@@ -0,0 +1,54 @@
+package fr;
+
+import org.junit.Assert;
+
+import fr.ign.cogit.appariement.AppariementDST;
+import fr.ign.cogit.dao.LigneResultat;
+import fr.ign.cogit.distance.geom.DistanceVoisinage;
+import fr.ign.cogit.geoxygene.api.feature.IFeature;
+import fr.ign.cogit.geoxygene.api.feature.IPopulation;
+import fr.ign.cogit.geoxygene.feature.DefaultFeature;
+import fr.ign.cogit.geoxygene.feature.Population;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPosition;
+import fr.ign.cogit.geoxygene.spatial.geomprim.GM_Point;
+import fr.ign.cogit.index.IndexVoisinage;
+import junit.framework.TestCase;
+
+/**
+ * Sans voisinage (objet isolé ou non indexé), la distance est NaN et n'est
+ * pas exportée comme une distance nulle.
+ * 
+ */
+public class TestDistanceVoisinage extends TestCase {
+	
+	public void testSansVoisinage() {
+		IPopulation<IFeature> popRef = new Population<IFeature>();
+		IPopulation<IFeature> popComp = new Population<IFeature>();
+		GM_Point ref = new GM_Point(new DirectPosition(0, 0));
+		GM_Point comp = new GM_Point(new DirectPosition(5000, 5000));
+		popRef.add(new DefaultFeature(ref));
+		popComp.add(new DefaultFeature(comp));
+		IndexVoisinage index = new IndexVoisinage(popRef, null, popComp, null, 100);
+		DistanceVoisinage dv = new DistanceVoisinage(index);
+		
+		// Deux objets isolés
+		dv.setGeom(ref, comp);
+		Assert.assertTrue("Objets isolés", Double.isNaN(dv.getDistance()));
+		Assert.assertEquals("Objets isolés", LigneResultat.DISTANCE_MANQUANTE, 
+				AppariementDST.distanceExportee(dv.getDistance()), 0);
+		
+		// Objet non indexé
+		dv.setGeom(ref, new GM_Point(new DirectPosition(10, 10)));
+		Assert.assertTrue("Objet non indexé", Double.isNaN(dv.getDistance()));
+		Assert.assertEquals("Objet non indexé", LigneResultat.DISTANCE_MANQUANTE, 
+				AppariementDST.distanceExportee(dv.getDistance()), 0);
+	}
+	
+	public void testDistanceExportee() {
+		Assert.assertEquals(0.12346, AppariementDST.distanceExportee(0.123456), 1e-12);
+		Assert.assertEquals(0, AppariementDST.distanceExportee(0), 0);
+		Assert.assertEquals(LigneResultat.DISTANCE_MANQUANTE, AppariementDST.distanceExportee(LigneResultat.DISTANCE_MANQUANTE), 0);
+		Assert.assertEquals(LigneResultat.DISTANCE_MANQUANTE, AppariementDST.distanceExportee(Double.NaN), 0);
+	}
+
+}
@@ -0,0 +1,119 @@
+package fr;
+
+import static fr.Positions.positions;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPosition;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.GM_LineString;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.GM_Polygon;
+import fr.ign.cogit.geoxygene.spatial.geomprim.GM_Point;
+import fr.ign.cogit.io.EcrivainLiensShape;
+import junit.framework.TestCase;
+
+/**
+ * Shapefile de liens écrit au fil de l'eau, relu octet par octet (.shp, .shx, .dbf) ;
+ * les champs du .dbf sont retrouvés par leur nom dans l'en-tête.
+ * 
+ */
+public class TestEcrivainLiensShape extends TestCase {
+	
+	private ByteBuffer lire(File f, ByteOrder ordre) throws Exception {
+		return ByteBuffer.wrap(Files.readAllBytes(f.toPath())).order(ordre);
+	}
+	
+	public void testEcritureRelecture() throws Exception {
+		File dossier = Files.createTempDirectory("liens").toFile();
+		String base = new File(dossier, "liens").getPath();
+		
+		EcrivainLiensShape ecrivain = new EcrivainLiensShape(base + ".shp", null);
+		// Ligne vers ligne : centroïdes des segments
+		Assert.assertTrue(ecrivain.ajouter(new GM_LineString(positions(700000, 6600000, 700010, 6600000)), 
+				new GM_LineString(positions(700000, 6600020, 700000, 6600040)), "r1", "c1", 0.75, 0.5));
+		// Surface en L vers point : centre de gravité de l'aire (1.1, 1.1), pas celui du contour
+		GM_Polygon l = new GM_Polygon(new GM_LineString(positions(0, 0, 3, 0, 3, 1, 1, 1, 1, 3, 0, 3, 0, 0)));
+		// 79 caractères ASCII puis un caractère de 2 octets : coupé avant lui, pas au milieu
+		StringBuilder long80 = new StringBuilder();
+		for (int i = 0; i < 79; i++) {
+			long80.append('a');
+		}
+		long80.append('é');
+		Assert.assertTrue(ecrivain.ajouter(l, new GM_Point(new DirectPosition(5, 5)), "r2", long80.toString(), 0.4, 0.1));
+		Assert.assertFalse(ecrivain.ajouter(null, l, "r3", "c3", 0, 0));
+		ecrivain.close();
+		Assert.assertEquals(2, ecrivain.getNbLiens());
+		
+		// .shp : en-tête, puis 2 polylignes de 2 points
+		ByteBuffer shp = lire(new File(base + ".shp"), ByteOrder.BIG_ENDIAN);
+		Assert.assertEquals(9994, shp.getInt(0));
+		Assert.assertEquals(shp.capacity(), 2 * shp.getInt(24));
+		shp.order(ByteOrder.LITTLE_ENDIAN);
+		Assert.assertEquals(1000, shp.getInt(28));
+		Assert.assertEquals(3, shp.getInt(32));
+		Assert.assertEquals(1.1, shp.getDouble(36), 1e-9);
+		Assert.assertEquals(6600030, shp.getDouble(60), 1e-9);
+		
+		// .shx : position et longueur de chaque enregistrement
+		ByteBuffer shx = lire(new File(base + ".shx"), ByteOrder.BIG_ENDIAN);
+		Assert.assertEquals(100 + 2 * 8, shx.capacity());
+		Assert.assertEquals(shx.capacity(), 2 * shx.getInt(24));
+		double[][] attendus = new double[][] { { 700005, 6600000, 700000, 6600030 }, { 1.1, 1.1, 5, 5 } };
+		for (int i = 0; i < 2; i++) {
+			int position = 2 * shx.getInt(100 + 8 * i);
+			int longueur = 2 * shx.getInt(104 + 8 * i);
+			shp.order(ByteOrder.BIG_ENDIAN);
+			Assert.assertEquals(i + 1, shp.getInt(position));
+			Assert.assertEquals(longueur, 2 * shp.getInt(position + 4));
+			shp.order(ByteOrder.LITTLE_ENDIAN);
+			int contenu = position + 8;
+			Assert.assertEquals(3, shp.getInt(contenu));
+			Assert.assertEquals(1, shp.getInt(contenu + 36));
+			Assert.assertEquals(2, shp.getInt(contenu + 40));
+			for (int k = 0; k < 4; k++) {
+				Assert.assertEquals(attendus[i][k], shp.getDouble(contenu + 48 + 8 * k), 1e-6);
+			}
+		}
+		
+		// .dbf : 2 enregistrements, 4 champs, textes en UTF-8
+		ByteBuffer dbf = lire(new File(base + ".dbf"), ByteOrder.LITTLE_ENDIAN);
+		Assert.assertEquals(2, dbf.getInt(4));
+		int entete = dbf.getShort(8);
+		int taille = dbf.getShort(10);
+		Assert.assertEquals(32 + 4 * 32 + 1, entete);
+		Assert.assertEquals(0x0D, dbf.get(entete - 1));
+		String[] noms = new String[] { "cleRef", "cleComp", "eval", "diff" };
+		int[] debuts = new int[4];
+		int[] largeurs = new int[4];
+		int debut = 1;
+		for (int c = 0; c < 4; c++) {
+			byte[] nom = new byte[noms[c].length()];
+			dbf.position(32 + 32 * c);
+			dbf.get(nom);
+			Assert.assertEquals(noms[c], new String(nom, "US-ASCII"));
+			debuts[c] = debut;
+			largeurs[c] = dbf.get(32 + 32 * c + 16) & 0xFF;
+			debut += largeurs[c];
+		}
+		Assert.assertEquals(80, largeurs[1]);
+		byte[] ligne = new byte[taille];
+		dbf.position(entete + taille);
+		dbf.get(ligne);
+		Assert.assertEquals("r2", new String(ligne, debuts[0], largeurs[0], "UTF-8").trim());
+		Assert.assertEquals("Coupé entre deux caractères", long80.substring(0, 79), 
+				new String(ligne, debuts[1], largeurs[1], "UTF-8").trim());
+		Assert.assertEquals(0.4, Double.parseDouble(new String(ligne, debuts[2], largeurs[2], "US-ASCII").trim()), 1e-12);
+		Assert.assertEquals(0.1, Double.parseDouble(new String(ligne, debuts[3], largeurs[3], "US-ASCII").trim()), 1e-12);
+		Assert.assertEquals("UTF-8", new String(Files.readAllBytes(new File(base + ".cpg").toPath()), "US-ASCII"));
+		
+		for (File f : dossier.listFiles()) {
+			f.delete();
+		}
+		dossier.delete();
+	}
+
+}
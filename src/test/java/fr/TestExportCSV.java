@@ -0,0 +1,190 @@
+package fr;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+
+import fr.ign.cogit.dao.LigneResultat;
+import fr.ign.cogit.geoxygene.api.feature.IFeature;
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPosition;
+import fr.ign.cogit.geoxygene.spatial.geomprim.GM_Point;
+import fr.ign.cogit.io.EcrivainCSV;
+import fr.ign.cogit.io.ExportToCSV;
+import fr.ign.cogit.io.FabriqueObjets;
+import fr.ign.cogit.io.LecteurCSV;
+import fr.ign.cogit.metadata.Objet;
+import junit.framework.TestCase;
+
+/**
+ * Export CSV des résultats relu par LecteurCSV : toponymes avec ; et
+ * guillemets, encodage explicite, sortie gzip, liste vide.
+ *
+ */
+public class TestExportCSV extends TestCase {
+
+	private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+
+	/**
+	 * Colonnes relues : identifiant, nom de référence et nom du candidat.
+	 */
+	private static final class Resultat implements Objet {
+		@Override
+		public String getCle() {
+			return "ID_REF";
+		}
+		@Override
+		public String getNom() {
+			return "NOM_REF";
+		}
+		@Override
+		public String getAttrNameSemantique() {
+			return "NOM_CANDIDAT";
+		}
+	}
+
+	/**
+	 * Fabrique qui garde les valeurs lues, dans l'ordre de la clé.
+	 */
+	private static final class FabriqueTrace extends FabriqueObjets {
+		final List<String[]> lus = Collections.synchronizedList(new ArrayList<String[]>());
+		final List<IGeometry> geoms = Collections.synchronizedList(new ArrayList<IGeometry>());
+		FabriqueTrace() {
+			super(new Resultat(), "Resultat");
+		}
+		@Override
+		public IFeature creer(IGeometry geom, String cle, String nom, String nature) {
+			lus.add(new String[] { cle, nom, nature });
+			geoms.add(geom);
+			return super.creer(geom, cle, nom, nature);
+		}
+	}
+
+	private List<LigneResultat> lignes() {
+		String[] noms = new String[] { "Samal", "Euclidienne" };
+		LigneResultat col = new LigneResultat("1", "Col; passage \"sud\"", null, 1, "10", "Col \"du\" Sud", null,
+				new double[] { 0.25, LigneResultat.DISTANCE_MANQUANTE }, noms, 0.8);
+		col.initDecision("true");
+		col.setGeom(new GM_Point(new DirectPosition(1.5, 2.5)), new GM_Point(new DirectPosition(3, 4)));
+		LigneResultat crete = new LigneResultat("2", "Crête", null, 1, "20", "Crête;Sud", null,
+				new double[] { 0, 12.5 }, noms, 0.6);
+		crete.initDecision("false");
+		crete.setGeom(new GM_Point(new DirectPosition(5, 6)), null);
+		return Arrays.asList(col, crete);
+	}
+
+	private FabriqueTrace relire(File fichier, Charset charset) throws Exception {
+		FabriqueTrace fabrique = new FabriqueTrace();
+		new LecteurCSV(';', "GEOM_REF", charset).lire(fichier, fabrique, 1);
+		return fabrique;
+	}
+
+	private void verifier(FabriqueTrace fabrique) {
+		Assert.assertEquals(2, fabrique.lus.size());
+		Assert.assertArrayEquals(new String[] { "1", "Col; passage \"sud\"", "Col \"du\" Sud" }, fabrique.lus.get(0));
+		Assert.assertArrayEquals(new String[] { "2", "Crête", "Crête;Sud" }, fabrique.lus.get(1));
+		Assert.assertEquals(1.5, fabrique.geoms.get(0).coord().get(0).getX(), 0);
+		Assert.assertEquals(6, fabrique.geoms.get(1).coord().get(0).getY(), 0);
+	}
+
+	/** Seul fichier exporté dans le dossier (le nom est complété par la date). */
+	private File exporte(File dossier) {
+		File[] fichiers = dossier.listFiles();
+		Assert.assertEquals(1, fichiers.length);
+		return fichiers[0];
+	}
+
+	private void supprimer(File dossier) {
+		for (File f : dossier.listFiles()) {
+			f.delete();
+		}
+		dossier.delete();
+	}
+
+	public void testEcritureRelecture() throws Exception {
+		File dossier = Files.createTempDirectory("csv").toFile();
+		ExportToCSV.exportAppariement(lignes(), new File(dossier, "resultat").getPath());
+		File fichier = exporte(dossier);
+		Assert.assertTrue(fichier.getName().endsWith(".csv"));
+		verifier(relire(fichier, EcrivainCSV.CHARSET_DEFAUT));
+
+		// Distance manquante : champ vide ; guillemets doublés
+		List<String> texte = Files.readAllLines(fichier.toPath(), EcrivainCSV.CHARSET_DEFAUT);
+		Assert.assertTrue(texte.get(0).startsWith("ID_REF;NOM_REF;NUM_CANDIDAT;ID_CANDIDAT;NOM_CANDIDAT;Samal;Euclidienne;"));
+		Assert.assertTrue(texte.get(1), texte.get(1).startsWith("1;\"Col; passage \"\"sud\"\"\";1;10;\"Col \"\"du\"\" Sud\";0.25;;"));
+		supprimer(dossier);
+	}
+
+	public void testCharset() throws Exception {
+		File fichier = File.createTempFile("resultat", ".csv");
+		EcrivainCSV ecrivain = new EcrivainCSV(fichier, LATIN1, false);
+		try {
+			ExportToCSV.ecrireEntete(ecrivain, lignes().get(0));
+			for (LigneResultat ligne : lignes()) {
+				ExportToCSV.ecrireLigne(ecrivain, ligne);
+			}
+		} finally {
+			ecrivain.close();
+		}
+
+		// ê sur un seul octet
+		byte[] octets = Files.readAllBytes(fichier.toPath());
+		Assert.assertTrue(new String(octets, LATIN1).contains("2;Crête;"));
+		Assert.assertFalse(new String(octets, LATIN1).contains(new String("ê".getBytes("UTF-8"), LATIN1)));
+		verifier(relire(fichier, LATIN1));
+		fichier.delete();
+	}
+
+	public void testGzip() throws Exception {
+		File dossier = Files.createTempDirectory("csv").toFile();
+		ExportToCSV.exportAppariement(lignes(), new File(dossier, "resultat").getPath(), true);
+		File fichier = exporte(dossier);
+		Assert.assertTrue(fichier.getName().endsWith(".csv.gz"));
+		byte[] entete = Files.readAllBytes(fichier.toPath());
+		Assert.assertEquals("Signature gzip", (byte) 0x1f, entete[0]);
+		Assert.assertEquals("Signature gzip", (byte) 0x8b, entete[1]);
+
+		// LecteurCSV projette le fichier : relu après décompression
+		File csv = new File(dossier, "decompresse.csv");
+		InputStream in = new GZIPInputStream(new FileInputStream(fichier));
+		OutputStream out = new FileOutputStream(csv);
+		try {
+			byte[] tampon = new byte[8192];
+			int n;
+			while ((n = in.read(tampon)) > 0) {
+				out.write(tampon, 0, n);
+			}
+		} finally {
+			in.close();
+			out.close();
+		}
+		verifier(relire(csv, EcrivainCSV.CHARSET_DEFAUT));
+		supprimer(dossier);
+	}
+
+	public void testListeVide() throws Exception {
+		File dossier = Files.createTempDirectory("csv").toFile();
+		ExportToCSV.exportAppariement(new ArrayList<LigneResultat>(), new File(dossier, "resultat").getPath());
+		File fichier = exporte(dossier);
+
+		// En-tête seul, sans colonne de distance
+		List<String> texte = Files.readAllLines(fichier.toPath(), EcrivainCSV.CHARSET_DEFAUT);
+		Assert.assertEquals(1, texte.size());
+		Assert.assertEquals("ID_REF;NOM_REF;NUM_CANDIDAT;ID_CANDIDAT;NOM_CANDIDAT;"
+				+ "Proba pign premier;Proba pign second;Decision;GEOM_REF;GEOM_CANDIDAT;", texte.get(0));
+		Assert.assertEquals(0, relire(fichier, EcrivainCSV.CHARSET_DEFAUT).lus.size());
+		supprimer(dossier);
+	}
+
+}
@@ -0,0 +1,95 @@
+package fr;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+
+import fr.ign.cogit.geoxygene.api.feature.IFeature;
+import fr.ign.cogit.geoxygene.api.feature.IPopulation;
+import fr.ign.cogit.geoxygene.api.spatial.geomprim.IPoint;
+import fr.ign.cogit.geoxygene.feature.DefaultFeature;
+import fr.ign.cogit.geoxygene.feature.Population;
+import fr.ign.cogit.geoxygene.feature.SchemaDefaultFeature;
+import fr.ign.cogit.geoxygene.schema.schemaConceptuelISOJeu.AttributeType;
+import fr.ign.cogit.geoxygene.schema.schemaConceptuelISOJeu.FeatureType;
+import fr.ign.cogit.index.IndexPhonetique;
+import fr.ign.cogit.metadata.Objet;
+import fr.ign.cogit.metadata.PAIBDCarto;
+import fr.ign.cogit.metadata.PAIBDTopo;
+import junit.framework.TestCase;
+
+/**
+ * Sélection des candidats par clé phonétique : "Col de Siberie" doit retrouver
+ * "col de la sibérie" (deux clés communes) avant "Sibérie" (une seule).
+ * 
+ */
+public class TestIndexPhonetique extends TestCase {
+	
+	private static SchemaDefaultFeature schemaCandidat = null;
+	
+	public TestIndexPhonetique() {
+		FeatureType featureTypeCandidat = new FeatureType();
+		featureTypeCandidat.setTypeName("Candidat");
+		featureTypeCandidat.setGeometryType(IPoint.class);
+		
+		AttributeType idPoint = new AttributeType("cleabs", "String");
+		AttributeType nomPoint = new AttributeType("nom", "String");
+		AttributeType naturePoint = new AttributeType("nature", "String");
+		featureTypeCandidat.addFeatureAttribute(idPoint);
+		featureTypeCandidat.addFeatureAttribute(nomPoint);
+		featureTypeCandidat.addFeatureAttribute(naturePoint);
+		
+		schemaCandidat = new SchemaDefaultFeature();
+		featureTypeCandidat.setSchema(schemaCandidat);
+		
+		Map<Integer, String[]> attLookup = new HashMap<Integer, String[]>(0);
+		attLookup.put(new Integer(0), new String[] { idPoint.getNomField(), idPoint.getMemberName() });
+		attLookup.put(new Integer(1), new String[] { nomPoint.getNomField(), nomPoint.getMemberName() });
+		attLookup.put(new Integer(2), new String[] { naturePoint.getNomField(), naturePoint.getMemberName() });
+		schemaCandidat.setAttLookup(attLookup);
+	}
+	
+	private IFeature getFeature(String cle, String nom, String nature) {
+		DefaultFeature defaultFeature = new DefaultFeature();
+		defaultFeature.setFeatureType(schemaCandidat.getFeatureType());
+		defaultFeature.setSchema(schemaCandidat);
+		defaultFeature.setAttributes(new Object[] { cle, nom, nature });
+		return defaultFeature;
+	}
+	
+	public void testCandidatsParCle() {
+		
+		Objet objRef = new PAIBDTopo();
+		Objet objComp = new PAIBDCarto();
+		
+		IPopulation<IFeature> popComp = new Population<IFeature>();
+		popComp.add(getFeature("1", "tête du pis", "Sommet"));
+		popComp.add(getFeature("2", "grande montagne", "Sommet"));
+		popComp.add(getFeature("3", "Sibérie", "Lieu-dit"));
+		popComp.add(getFeature("4", null, "Col"));
+		popComp.add(getFeature("5", "col de la sibérie", "Col"));
+		popComp.add(getFeature("6", "lac des sapins", "Lac"));
+		
+		IndexPhonetique index = new IndexPhonetique(popComp, objComp);
+		Assert.assertEquals("Taille index", 6, index.size());
+		Assert.assertArrayEquals("Clés", new String[] { "kl", "sbr" }, index.getCles(4));
+		Assert.assertEquals("Sans nom", 0, index.getCles(3).length);
+		Assert.assertArrayEquals("Objets de la clé", new int[] { 2, 4 }, index.getIndices("sbr"));
+		
+		IFeature ref = getFeature("1", "Col de Siberie", "Col");
+		IPopulation<IFeature> candidats = index.getCandidats(ref, objRef);
+		Assert.assertEquals("Nombre de candidats", 2, candidats.size());
+		Assert.assertEquals("Meilleur candidat", "5", candidats.get(0).getAttribute("cleabs"));
+		Assert.assertEquals("Une seule clé commune", "3", candidats.get(1).getAttribute("cleabs"));
+		
+		// Abréviation développée : "Gde" retrouve "grande"
+		Assert.assertEquals("Abréviation", 1, index.getCandidats("Gde Montagne").size());
+		
+		// Aucune clé commune : aucun candidat
+		Assert.assertEquals("Sans clé commune", 0, index.getCandidats("Pic d'Escarpu").size());
+		Assert.assertEquals("Nom vide", 0, index.getCandidats("").size());
+		Assert.assertEquals("Nom absent", 0, index.getCandidats((String) null).size());
+	}
+
+}
@@ -0,0 +1,86 @@
+package fr;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+
+import fr.ign.cogit.geoxygene.api.feature.IFeature;
+import fr.ign.cogit.geoxygene.api.feature.IPopulation;
+import fr.ign.cogit.geoxygene.api.spatial.geomprim.IPoint;
+import fr.ign.cogit.geoxygene.feature.DefaultFeature;
+import fr.ign.cogit.geoxygene.feature.Population;
+import fr.ign.cogit.geoxygene.feature.SchemaDefaultFeature;
+import fr.ign.cogit.geoxygene.schema.schemaConceptuelISOJeu.AttributeType;
+import fr.ign.cogit.geoxygene.schema.schemaConceptuelISOJeu.FeatureType;
+import fr.ign.cogit.index.IndexTrigrammes;
+import fr.ign.cogit.metadata.Objet;
+import fr.ign.cogit.metadata.PAIBDCarto;
+import fr.ign.cogit.metadata.PAIBDTopo;
+import junit.framework.TestCase;
+
+/**
+ * Sélection des candidats par le nom : "col de Sibérie" doit retrouver
+ * "col de la sibérie" en premier parmi les toponymes du test Sibérie.
+ * 
+ */
+public class TestIndexTrigrammes extends TestCase {
+	
+	private static SchemaDefaultFeature schemaCandidat = null;
+	
+	public TestIndexTrigrammes() {
+		FeatureType featureTypeCandidat = new FeatureType();
+		featureTypeCandidat.setTypeName("Candidat");
+		featureTypeCandidat.setGeometryType(IPoint.class);
+		
+		AttributeType idPoint = new AttributeType("cleabs", "String");
+		AttributeType nomPoint = new AttributeType("nom", "String");
+		AttributeType naturePoint = new AttributeType("nature", "String");
+		featureTypeCandidat.addFeatureAttribute(idPoint);
+		featureTypeCandidat.addFeatureAttribute(nomPoint);
+		featureTypeCandidat.addFeatureAttribute(naturePoint);
+		
+		schemaCandidat = new SchemaDefaultFeature();
+		featureTypeCandidat.setSchema(schemaCandidat);
+		
+		Map<Integer, String[]> attLookup = new HashMap<Integer, String[]>(0);
+		attLookup.put(new Integer(0), new String[] { idPoint.getNomField(), idPoint.getMemberName() });
+		attLookup.put(new Integer(1), new String[] { nomPoint.getNomField(), nomPoint.getMemberName() });
+		attLookup.put(new Integer(2), new String[] { naturePoint.getNomField(), naturePoint.getMemberName() });
+		schemaCandidat.setAttLookup(attLookup);
+	}
+	
+	private IFeature getFeature(String cle, String nom, String nature) {
+		DefaultFeature defaultFeature = new DefaultFeature();
+		defaultFeature.setFeatureType(schemaCandidat.getFeatureType());
+		defaultFeature.setSchema(schemaCandidat);
+		defaultFeature.setAttributes(new Object[] { cle, nom, nature });
+		return defaultFeature;
+	}
+	
+	public void testCandidatsParNom() {
+		
+		Objet objRef = new PAIBDTopo();
+		Objet objComp = new PAIBDCarto();
+		
+		IPopulation<IFeature> popComp = new Population<IFeature>();
+		popComp.add(getFeature("1", "tête du pis", "Sommet"));
+		popComp.add(getFeature("2", "grande montagne", "Sommet"));
+		popComp.add(getFeature("3", "col de la sibérie", "Col"));
+		popComp.add(getFeature("4", null, "Col"));
+		popComp.add(getFeature("5", "lac des sapins", "Lac"));
+		
+		IndexTrigrammes index = new IndexTrigrammes(popComp, objComp);
+		Assert.assertEquals("Taille index", 5, index.size());
+		
+		IFeature ref = getFeature("1", "col de Sibérie", "Col");
+		IPopulation<IFeature> candidats = index.getCandidats(ref, objRef, 2);
+		Assert.assertEquals("Nombre de candidats", 2, candidats.size());
+		Assert.assertEquals("Meilleur candidat", "3", candidats.get(0).getAttribute("cleabs"));
+		
+		// Aucun trigramme commun : aucun candidat
+		Assert.assertEquals("Sans trigramme commun", 0, index.getCandidats("xyz", 3).size());
+		Assert.assertEquals("Nom vide", 0, index.getCandidats("", 3).size());
+	}
+
+}
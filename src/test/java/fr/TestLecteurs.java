@@ -0,0 +1,325 @@
+package fr;
+
+import static fr.Positions.positions;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+
+import fr.ign.cogit.geoxygene.api.feature.IFeature;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IDirectPositionList;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.ILineString;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IPolygon;
+import fr.ign.cogit.geoxygene.api.spatial.geomprim.IPoint;
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPosition;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPositionList;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.GM_LineString;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.GM_Polygon;
+import fr.ign.cogit.geoxygene.spatial.geomprim.GM_Point;
+import fr.ign.cogit.io.EcrivainCSV;
+import fr.ign.cogit.io.FabriqueObjets;
+import fr.ign.cogit.io.LecteurCSV;
+import fr.ign.cogit.io.LecteurGeoJSON;
+import fr.ign.cogit.io.LecteurShapefile;
+import fr.ign.cogit.metadata.PAIBDTopo;
+import junit.framework.TestCase;
+
+/**
+ * Lecture de petits fichiers écrits par le test (shapefile, CSV + WKT,
+ * GeoJSON) : attributs clé, nom et nature, géométries, cas limites (forme
+ * nulle, marque d'ordre UTF-8, coordonnées vides), objets sans géométrie 
+ * ignorés par tous les lecteurs, plages de shapefile limitées en taille.
+ * 
+ */
+public class TestLecteurs extends TestCase {
+	
+	/**
+	 * Objet lu : valeurs passées à la fabrique.
+	 */
+	private static final class Lu implements Comparable<Lu> {
+		final IGeometry geom;
+		final String cle;
+		final String nom;
+		final String nature;
+		Lu(IGeometry geom, String cle, String nom, String nature) {
+			this.geom = geom;
+			this.cle = cle;
+			this.nom = nom;
+			this.nature = nature;
+		}
+		@Override
+		public int compareTo(Lu autre) {
+			return cle.compareTo(autre.cle);
+		}
+	}
+	
+	/**
+	 * Fabrique qui garde les valeurs lues, les lecteurs pouvant l'appeler depuis plusieurs threads.
+	 */
+	private static final class FabriqueTrace extends FabriqueObjets {
+		final List<Lu> lus = Collections.synchronizedList(new ArrayList<Lu>());
+		FabriqueTrace() {
+			super(new PAIBDTopo(), "PAI");
+		}
+		@Override
+		public IFeature creer(IGeometry geom, String cle, String nom, String nature) {
+			lus.add(new Lu(geom, cle, nom, nature));
+			return super.creer(geom, cle, nom, nature);
+		}
+		List<Lu> tries() {
+			List<Lu> l = new ArrayList<Lu>(lus);
+			Collections.sort(l);
+			return l;
+		}
+	}
+	
+	private void verifier(String message, double[] xy, IGeometry geom) {
+		verifier(message, xy, geom.coord());
+	}
+	
+	private void verifier(String message, double[] xy, IDirectPositionList l) {
+		Assert.assertEquals(message, xy.length / 2, l.size());
+		for (int i = 0; i < l.size(); i++) {
+			Assert.assertEquals(message, xy[2 * i], l.get(i).getX(), 0);
+			Assert.assertEquals(message, xy[2 * i + 1], l.get(i).getY(), 0);
+		}
+	}
+	
+	private void ecrire(File f, byte[] octets) throws Exception {
+		FileOutputStream out = new FileOutputStream(f);
+		try {
+			out.write(octets);
+		} finally {
+			out.close();
+		}
+	}
+	
+	// ---------------------------------------------------------------------
+	//   Shapefile
+	// ---------------------------------------------------------------------
+	
+	/** Contenu d'un enregistrement .shp : point, polyligne ou polygone ; forme nulle sans partie. */
+	private byte[] forme(int type, double[]... parties) {
+		if (parties.length == 0) {
+			return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0).array();
+		}
+		if (type == 1) {
+			return ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN)
+					.putInt(1).putDouble(parties[0][0]).putDouble(parties[0][1]).array();
+		}
+		int nbPoints = 0;
+		for (double[] p : parties) {
+			nbPoints += p.length / 2;
+		}
+		ByteBuffer b = ByteBuffer.allocate(44 + 4 * parties.length + 16 * nbPoints).order(ByteOrder.LITTLE_ENDIAN);
+		b.putInt(type);
+		b.putDouble(0).putDouble(0).putDouble(0).putDouble(0);
+		b.putInt(parties.length).putInt(nbPoints);
+		int debut = 0;
+		for (double[] p : parties) {
+			b.putInt(debut);
+			debut += p.length / 2;
+		}
+		for (double[] p : parties) {
+			for (double v : p) {
+				b.putDouble(v);
+			}
+		}
+		return b.array();
+	}
+	
+	private void ecrireShapefile(String base, byte[][] formes, String[][] attributs) throws Exception {
+		// .shp et .shx
+		int tailleShp = 100;
+		for (byte[] f : formes) {
+			tailleShp += 8 + f.length;
+		}
+		ByteBuffer shp = ByteBuffer.allocate(tailleShp);
+		ByteBuffer shx = ByteBuffer.allocate(100 + 8 * formes.length);
+		for (ByteBuffer b : new ByteBuffer[] { shp, shx }) {
+			b.order(ByteOrder.BIG_ENDIAN).putInt(0, 9994).putInt(24, b.capacity() / 2);
+			b.order(ByteOrder.LITTLE_ENDIAN).putInt(28, 1000).putInt(32, 5);
+		}
+		shp.order(ByteOrder.BIG_ENDIAN).position(100);
+		shx.order(ByteOrder.BIG_ENDIAN).position(100);
+		for (int i = 0; i < formes.length; i++) {
+			shx.putInt(shp.position() / 2).putInt(formes[i].length / 2);
+			shp.putInt(i + 1).putInt(formes[i].length / 2).put(formes[i]);
+		}
+		ecrire(new File(base + ".shp"), shp.array());
+		ecrire(new File(base + ".shx"), shx.array());
+		
+		// .dbf : trois champs caractères de 20 octets
+		String[] noms = new String[] { "CLEABS", "NOM", "NATURE" };
+		int largeur = 20;
+		int tailleEntete = 32 + 32 * noms.length + 1;
+		int tailleEnregistrement = 1 + largeur * noms.length;
+		ByteBuffer dbf = ByteBuffer.allocate(tailleEntete + tailleEnregistrement * attributs.length + 1).order(ByteOrder.LITTLE_ENDIAN);
+		dbf.put((byte) 3).put(new byte[3]).putInt(attributs.length)
+				.putShort((short) tailleEntete).putShort((short) tailleEnregistrement).put(new byte[20]);
+		for (String nom : noms) {
+			byte[] champ = new byte[32];
+			System.arraycopy(nom.getBytes("ISO-8859-1"), 0, champ, 0, nom.length());
+			champ[11] = 'C';
+			champ[16] = (byte) largeur;
+			dbf.put(champ);
+		}
+		dbf.put((byte) 0x0D);
+		for (String[] enregistrement : attributs) {
+			dbf.put((byte) ' ');
+			for (String valeur : enregistrement) {
+				byte[] champ = new byte[largeur];
+				Arrays.fill(champ, (byte) ' ');
+				byte[] octets = valeur.getBytes("UTF-8");
+				System.arraycopy(octets, 0, champ, 0, octets.length);
+				dbf.put(champ);
+			}
+		}
+		dbf.put((byte) 0x1A);
+		ecrire(new File(base + ".dbf"), dbf.array());
+		ecrire(new File(base + ".cpg"), "UTF-8".getBytes("ISO-8859-1"));
+	}
+	
+	public void testShapefile() throws Exception {
+		File dossier = Files.createTempDirectory("shp").toFile();
+		String base = new File(dossier, "pai").getPath();
+		double[] ligne = new double[] { 0, 0, 10, 0, 10, 5 };
+		double[] anneau = new double[] { 0, 0, 0, 10, 10, 10, 10, 0, 0, 0 };
+		double[] trou = new double[] { 2, 2, 4, 2, 4, 4, 2, 2 };
+		ecrireShapefile(base, 
+				new byte[][] { forme(1, new double[] { 700000.5, 6600000.25 }), forme(0), forme(3, ligne), forme(5, anneau, trou) },
+				new String[][] { { "1", "Col de la Sibérie", "Col" }, { "2", "Sans forme", "Pic" }, 
+						{ "3", "Crête", "Crête" }, { "4", "Plateau", "Plaine" } });
+		
+		// Plages de 100 octets au plus : une plage par enregistrement, même avec un seul thread
+		LecteurShapefile[] lecteurs = new LecteurShapefile[] { new LecteurShapefile(), new LecteurShapefile(), new LecteurShapefile(100) };
+		int[] nbThreads = new int[] { 1, 3, 1 };
+		for (int l = 0; l < lecteurs.length; l++) {
+			FabriqueTrace fabrique = new FabriqueTrace();
+			List<IFeature> objets = lecteurs[l].lire(new File(base + ".shp"), fabrique, nbThreads[l]);
+			Assert.assertEquals("Forme nulle ignorée", 3, objets.size());
+			List<Lu> lus = fabrique.tries();
+			Assert.assertEquals(3, lus.size());
+			
+			Assert.assertEquals("1", lus.get(0).cle);
+			Assert.assertEquals("Col de la Sibérie", lus.get(0).nom);
+			Assert.assertEquals("Col", lus.get(0).nature);
+			Assert.assertTrue(lus.get(0).geom instanceof IPoint);
+			verifier("Point", new double[] { 700000.5, 6600000.25 }, lus.get(0).geom);
+			
+			Assert.assertEquals("3", lus.get(1).cle);
+			Assert.assertTrue(lus.get(1).geom instanceof ILineString);
+			verifier("Polyligne", ligne, lus.get(1).geom);
+			
+			Assert.assertEquals("4", lus.get(2).cle);
+			Assert.assertEquals("Plaine", lus.get(2).nature);
+			Assert.assertTrue(lus.get(2).geom instanceof IPolygon);
+			Assert.assertEquals("Trou", 1, ((IPolygon) lus.get(2).geom).sizeInterior());
+			verifier("Polygone", anneau, ((IPolygon) lus.get(2).geom).exteriorCoord());
+		}
+		
+		for (File f : dossier.listFiles()) {
+			f.delete();
+		}
+		dossier.delete();
+	}
+	
+	// ---------------------------------------------------------------------
+	//   CSV + WKT
+	// ---------------------------------------------------------------------
+	
+	public void testCSV() throws Exception {
+		File fichier = File.createTempFile("pai", ".csv");
+		GM_Polygon carre = new GM_Polygon(new GM_LineString(positions(0, 0, 0, 10, 10, 10, 10, 0, 0, 0)));
+		EcrivainCSV ecrivain = new EcrivainCSV(fichier);
+		ecrivain.champ("cleabs").champ("nom").champ("nature").champ("wkt").finLigne();
+		ecrivain.champ("1").champ("Col; passage \"sud\"").champ("Col").champ(new GM_Point(new DirectPosition(1.5, 2.5))).finLigne();
+		ecrivain.champ("2").champ("Crête").champ("Crête").champ(new GM_LineString(positions(0, 0, 3, 4))).finLigne();
+		ecrivain.champ("3").champ("Plateau").champ("Plaine").champ(carre).finLigne();
+		ecrivain.champ("4").champ("Sans géométrie").champ("Pic").champ((IGeometry) null).finLigne();
+		ecrivain.champ("5").champ("Vide").champ("Pic").champ(new GM_Polygon(new GM_LineString(new DirectPositionList()))).finLigne();
+		ecrivain.close();
+		
+		FabriqueTrace fabrique = new FabriqueTrace();
+		List<IFeature> objets = new LecteurCSV().lire(fichier, fabrique, 2);
+		Assert.assertEquals("Géométries null et EMPTY ignorées", 3, objets.size());
+		List<Lu> lus = fabrique.tries();
+		Assert.assertEquals(3, lus.size());
+		Assert.assertEquals("Col; passage \"sud\"", lus.get(0).nom);
+		Assert.assertTrue(lus.get(0).geom instanceof IPoint);
+		verifier("Point", new double[] { 1.5, 2.5 }, lus.get(0).geom);
+		Assert.assertEquals("Crête", lus.get(1).nature);
+		Assert.assertTrue(lus.get(1).geom instanceof ILineString);
+		verifier("Ligne", new double[] { 0, 0, 3, 4 }, lus.get(1).geom);
+		Assert.assertTrue(lus.get(2).geom instanceof IPolygon);
+		verifier("Polygone", new double[] { 0, 0, 0, 10, 10, 10, 10, 0, 0, 0 }, lus.get(2).geom);
+		fichier.delete();
+	}
+	
+	public void testCSVMarqueOrdre() throws Exception {
+		File fichier = File.createTempFile("pai", ".csv");
+		byte[] contenu = "cleabs;nom;nature;wkt\r\n1;Pic d'Escarpu;Pic;POINT (3 4)\r\n".getBytes("UTF-8");
+		byte[] octets = new byte[contenu.length + 3];
+		octets[0] = (byte) 0xEF;
+		octets[1] = (byte) 0xBB;
+		octets[2] = (byte) 0xBF;
+		System.arraycopy(contenu, 0, octets, 3, contenu.length);
+		ecrire(fichier, octets);
+		
+		FabriqueTrace fabrique = new FabriqueTrace();
+		new LecteurCSV().lire(fichier, fabrique, 1);
+		Assert.assertEquals(1, fabrique.lus.size());
+		Lu lu = fabrique.lus.get(0);
+		Assert.assertEquals("Première colonne reconnue", "1", lu.cle);
+		Assert.assertEquals("Pic d'Escarpu", lu.nom);
+		Assert.assertEquals("Pic", lu.nature);
+		verifier("Point", new double[] { 3, 4 }, lu.geom);
+		fichier.delete();
+	}
+	
+	// ---------------------------------------------------------------------
+	//   GeoJSON
+	// ---------------------------------------------------------------------
+	
+	public void testGeoJSON() throws Exception {
+		File fichier = File.createTempFile("pai", ".geojson");
+		String json = "{\"type\": \"FeatureCollection\", \"features\": [\n"
+				+ " {\"type\": \"Feature\", \"properties\": {\"cleabs\": \"1\", \"nom\": \"Col de la Sibérie\", \"nature\": \"Col\"},"
+				+ "  \"geometry\": {\"type\": \"Point\", \"coordinates\": [6.5, 45.25]}},\n"
+				+ " {\"type\": \"Feature\", \"id\": \"2\", \"properties\": {\"nom\": \"Crête\", \"nature\": \"Crête\"},"
+				+ "  \"geometry\": {\"coordinates\": [[0, 0], [3, 4, 100]], \"type\": \"LineString\"}},\n"
+				+ " {\"type\": \"Feature\", \"properties\": {\"cleabs\": \"3\", \"nom\": \"Plateau\", \"nature\": \"Plaine\"},"
+				+ "  \"geometry\": {\"type\": \"Polygon\", \"coordinates\": [[[0, 0], [0, 10], [10, 10], [0, 0]], [[1, 1], [2, 1], [2, 2], [1, 1]]]}},\n"
+				+ " {\"type\": \"Feature\", \"properties\": {\"cleabs\": \"4\", \"nom\": \"Vide\", \"nature\": \"Pic\"},"
+				+ "  \"geometry\": {\"type\": \"Point\", \"coordinates\": []}},\n"
+				+ " {\"type\": \"Feature\", \"properties\": {\"cleabs\": \"5\", \"nom\": \"Sans géométrie\", \"nature\": \"Pic\"},"
+				+ "  \"geometry\": null}\n"
+				+ "]}\n";
+		ecrire(fichier, json.getBytes("UTF-8"));
+		
+		FabriqueTrace fabrique = new FabriqueTrace();
+		List<IFeature> objets = new LecteurGeoJSON().lire(fichier, fabrique, 1);
+		Assert.assertEquals("Coordonnées vides et géométrie null ignorées", 3, objets.size());
+		List<Lu> lus = fabrique.tries();
+		Assert.assertEquals(3, lus.size());
+		Assert.assertEquals("Col de la Sibérie", lus.get(0).nom);
+		Assert.assertTrue(lus.get(0).geom instanceof IPoint);
+		verifier("Point", new double[] { 6.5, 45.25 }, lus.get(0).geom);
+		Assert.assertEquals("Identifiant de l'objet", "2", lus.get(1).cle);
+		Assert.assertTrue(lus.get(1).geom instanceof ILineString);
+		verifier("Ligne", new double[] { 0, 0, 3, 4 }, lus.get(1).geom);
+		Assert.assertTrue(lus.get(2).geom instanceof IPolygon);
+		Assert.assertEquals("Trou", 1, ((IPolygon) lus.get(2).geom).sizeInterior());
+		fichier.delete();
+	}
+	
+}
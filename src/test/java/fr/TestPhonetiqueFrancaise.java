@@ -0,0 +1,65 @@
+package fr;
+
+import org.junit.Assert;
+
+import fr.ign.cogit.distance.text.PhonetiqueFrancaise;
+import junit.framework.TestCase;
+
+/**
+ * Clés phonétiques : les homophones français usuels des toponymes (accents,
+ * graphies de même son, abréviations, mots vides) ont les mêmes clés.
+ * 
+ */
+public class TestPhonetiqueFrancaise extends TestCase {
+	
+	private void verifierHomophones(String... noms) {
+		String[] cles = PhonetiqueFrancaise.cles(noms[0]);
+		Assert.assertTrue("Clés de " + noms[0], cles.length > 0);
+		for (int i = 1; i < noms.length; i++) {
+			Assert.assertArrayEquals(noms[0] + " / " + noms[i], cles, PhonetiqueFrancaise.cles(noms[i]));
+		}
+	}
+	
+	public void testHomophones() {
+		// Accents et terminaisons muettes
+		verifierHomophones("Sibérie", "Siberie", "SIBERIE");
+		verifierHomophones("Escarpu", "Escarpus");
+		verifierHomophones("Château", "Chateau");
+		verifierHomophones("Thérèse", "Terese");
+		verifierHomophones("Font", "Fond");
+		verifierHomophones("Vert", "Ver", "Vers", "Verre");
+		// Graphies d'un même son
+		verifierHomophones("Phare", "Fare");
+		verifierHomophones("Quai", "Kai", "Gué");
+		verifierHomophones("Côte", "Cotte");
+		verifierHomophones("Roche", "Rauche");
+		// Abréviations développées, mots vides ignorés
+		verifierHomophones("Saint-Martin", "St Martin");
+		verifierHomophones("Mont-Blanc", "Mt Blanc");
+		verifierHomophones("Notre-Dame", "ND");
+		verifierHomophones("Grande Montagne", "Gde Montagne");
+		verifierHomophones("Col de la Sibérie", "col sibérie", "Col du Siberie");
+	}
+	
+	public void testCles() {
+		Assert.assertArrayEquals(new String[] { "sbr" }, PhonetiqueFrancaise.cles("Sibérie"));
+		Assert.assertArrayEquals(new String[] { "eskr" }, PhonetiqueFrancaise.cles("Escarpu"));
+		// Clés triées, une par mot significatif
+		Assert.assertArrayEquals(new String[] { "kl", "sbr" }, PhonetiqueFrancaise.cles("Col de la Sibérie"));
+		Assert.assertEquals(0, PhonetiqueFrancaise.cles(null).length);
+		Assert.assertEquals(0, PhonetiqueFrancaise.cles("").length);
+		Assert.assertEquals(0, PhonetiqueFrancaise.cles("de la").length);
+		// Mots avec chiffres gardés tels quels
+		Assert.assertEquals("d902", PhonetiqueFrancaise.cle("d902"));
+	}
+	
+	public void testPartageCle() {
+		Assert.assertTrue(PhonetiqueFrancaise.partageCle(PhonetiqueFrancaise.cles("Col de la Sibérie"), 
+				PhonetiqueFrancaise.cles("Siberie")));
+		Assert.assertFalse(PhonetiqueFrancaise.partageCle(PhonetiqueFrancaise.cles("Col de la Sibérie"), 
+				PhonetiqueFrancaise.cles("Pic d'Escarpu")));
+		Assert.assertFalse(PhonetiqueFrancaise.partageCle(PhonetiqueFrancaise.cles("Sibérie"), 
+				PhonetiqueFrancaise.cles(null)));
+	}
+	
+}
@@ -0,0 +1,155 @@
+package fr;
+
+import static fr.Positions.positions;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+
+import fr.ign.cogit.dao.LigneResultat;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IDirectPositionList;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.ILineString;
+import fr.ign.cogit.geoxygene.api.spatial.coordgeom.IPolygon;
+import fr.ign.cogit.geoxygene.api.spatial.geomroot.IGeometry;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.DirectPosition;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.GM_LineString;
+import fr.ign.cogit.geoxygene.spatial.coordgeom.GM_Polygon;
+import fr.ign.cogit.geoxygene.spatial.geomaggr.GM_MultiCurve;
+import fr.ign.cogit.geoxygene.spatial.geomaggr.GM_MultiPoint;
+import fr.ign.cogit.geoxygene.spatial.geomaggr.GM_MultiSurface;
+import fr.ign.cogit.geoxygene.spatial.geomprim.GM_Point;
+import fr.ign.cogit.geoxygene.spatial.geomprim.GM_Ring;
+import fr.ign.cogit.io.EcrivainResultatsBinaire;
+import fr.ign.cogit.io.LecteurResultatsBinaire;
+import junit.framework.TestCase;
+
+/**
+ * Fichier binaire de résultats écrit colonne par colonne puis relu : valeurs
+ * nulles, dictionnaire des décisions et chaque type de géométrie.
+ * 
+ */
+public class TestResultatsBinaire extends TestCase {
+	
+	private static final String[] NOMS_DISTANCE = new String[] { "Euclidienne", "Levenshtein" };
+	
+	private LigneResultat ligne(String idRef, String nomRef, int compteur, String idComp, String nomComp, 
+			double[] distances, double premier, double second, String decision, IGeometry geomRef, IGeometry geomComp) {
+		LigneResultat ligne = new LigneResultat(idRef, nomRef, new String[0], compteur, idComp, nomComp, new String[0], 
+				distances, NOMS_DISTANCE, premier);
+		ligne.initProbaPignistiqueSecond(second);
+		ligne.initDecision(decision);
+		ligne.setGeom(geomRef, geomComp);
+		return ligne;
+	}
+	
+	private void verifier(String message, IGeometry attendue, IGeometry lue) {
+		if (attendue == null) {
+			Assert.assertNull(message, lue);
+			return;
+		}
+		Assert.assertNotNull(message, lue);
+		Assert.assertEquals(message, attendue.getClass(), lue.getClass());
+		if (attendue instanceof IPolygon) {
+			Assert.assertEquals(message, ((IPolygon) attendue).sizeInterior(), ((IPolygon) lue).sizeInterior());
+		}
+		IDirectPositionList a = attendue.coord();
+		IDirectPositionList l = lue.coord();
+		Assert.assertEquals(message, a.size(), l.size());
+		for (int i = 0; i < a.size(); i++) {
+			Assert.assertEquals(message, a.get(i).getX(), l.get(i).getX(), 0);
+			Assert.assertEquals(message, a.get(i).getY(), l.get(i).getY(), 0);
+		}
+	}
+	
+	public void testEcritureRelecture() throws Exception {
+		GM_Polygon troue = new GM_Polygon(new GM_LineString(positions(0, 0, 10, 0, 10, 10, 0, 10, 0, 0)));
+		troue.addInterior(new GM_Ring(new GM_LineString(positions(2, 2, 4, 2, 4, 4, 2, 2))));
+		GM_MultiPoint points = new GM_MultiPoint();
+		points.add(new GM_Point(new DirectPosition(1, 2)));
+		points.add(new GM_Point(new DirectPosition(3, 4)));
+		GM_MultiCurve<ILineString> lignes = new GM_MultiCurve<ILineString>();
+		lignes.add(new GM_LineString(positions(0, 0, 1, 1)));
+		lignes.add(new GM_LineString(positions(5, 5, 6, 7, 8, 9)));
+		GM_MultiSurface<IPolygon> surfaces = new GM_MultiSurface<IPolygon>();
+		surfaces.add(troue);
+		surfaces.add(new GM_Polygon(new GM_LineString(positions(20, 20, 21, 20, 21, 21, 20, 20))));
+		
+		LigneResultat[] attendues = new LigneResultat[] {
+				ligne("r1", "Col de la Sibérie", 3, "c1", null, new double[] { 12.5, 0.25 }, 0.6, 0.3, "true", 
+						new GM_Point(new DirectPosition(700000.5, 6600000.25)), new GM_LineString(positions(0, 0, 3, 4))),
+				ligne("r1", null, 3, "c2", "Col de la Sibérie", new double[] { 80, LigneResultat.DISTANCE_MANQUANTE }, 0.2, 0.1, "false", 
+						troue, points),
+				ligne(null, "Pic d'Escarpu", 0, null, "Pic", new double[] { 0, 1 }, 0.5, 0.5, "indécis", 
+						lignes, surfaces),
+				ligne("r2", "", 1, "c3", "Sommet", new double[] { 3, 0.5 }, 0.9, 0.05, "true", 
+						null, null) };
+		
+		File dossier = Files.createTempDirectory("resultats").toFile();
+		File fichier = new File(dossier, "resultats.bin");
+		EcrivainResultatsBinaire ecrivain = new EcrivainResultatsBinaire(fichier, null, true);
+		for (LigneResultat ligne : attendues) {
+			ecrivain.ajouter(ligne);
+		}
+		ecrivain.close();
+		ecrivain.close();
+		Assert.assertEquals(attendues.length, ecrivain.getNbLignes());
+		Assert.assertEquals("Colonnes temporaires supprimées", 1, dossier.listFiles().length);
+		
+		LecteurResultatsBinaire lecteur = new LecteurResultatsBinaire(fichier);
+		try {
+			Assert.assertEquals(attendues.length, lecteur.size());
+			Assert.assertTrue(lecteur.hasGeometries());
+			Assert.assertEquals(NOMS_DISTANCE.length, lecteur.getNbDistances());
+			for (int c = 0; c < NOMS_DISTANCE.length; c++) {
+				Assert.assertEquals(NOMS_DISTANCE[c], lecteur.getNomDistance(c));
+			}
+			for (int i = 0; i < attendues.length; i++) {
+				LigneResultat a = attendues[i];
+				LigneResultat l = lecteur.getLigne(i);
+				String message = "Ligne " + i;
+				Assert.assertEquals(message, a.getIdTopoRef(), l.getIdTopoRef());
+				Assert.assertEquals(message, a.getNomTopoRef(), l.getNomTopoRef());
+				Assert.assertEquals(message, a.getCompteurC(), l.getCompteurC());
+				Assert.assertEquals(message, a.getIdTopoComp(), l.getIdTopoComp());
+				Assert.assertEquals(message, a.getNomTopoComp(), l.getNomTopoComp());
+				for (int c = 0; c < NOMS_DISTANCE.length; c++) {
+					Assert.assertEquals(message, a.getDistance(c), l.getDistance(c), 0);
+				}
+				Assert.assertEquals(message, a.getProbaPignistiquePremier(), l.getProbaPignistiquePremier(), 0);
+				Assert.assertEquals(message, a.getProbaPignistiqueSecond(), l.getProbaPignistiqueSecond(), 0);
+				Assert.assertEquals(message, a.isDecision(), l.isDecision());
+				verifier(message + " géométrie ref", a.getGeomRef(), l.getGeomRef());
+				verifier(message + " géométrie comp", a.getGeomComp(), l.getGeomComp());
+			}
+		} finally {
+			lecteur.close();
+		}
+		fichier.delete();
+		dossier.delete();
+	}
+	
+	public void testSansGeometrie() throws Exception {
+		File dossier = Files.createTempDirectory("resultats").toFile();
+		File fichier = new File(dossier, "resultats.bin");
+		EcrivainResultatsBinaire ecrivain = new EcrivainResultatsBinaire(fichier, NOMS_DISTANCE, false);
+		ecrivain.ajouter(ligne("r1", "Pic", 1, "c1", "Pic", new double[] { 1, 0 }, 0.8, 0.1, "true", 
+				new GM_Point(new DirectPosition(1, 1)), null));
+		ecrivain.close();
+		Assert.assertEquals("Colonnes temporaires supprimées", 1, dossier.listFiles().length);
+		
+		LecteurResultatsBinaire lecteur = new LecteurResultatsBinaire(fichier);
+		try {
+			Assert.assertEquals(1, lecteur.size());
+			Assert.assertFalse(lecteur.hasGeometries());
+			Assert.assertEquals("Pic", lecteur.getNomTopoComp(0));
+			Assert.assertEquals("true", lecteur.isDecision(0));
+			Assert.assertNull(lecteur.getGeomRef(0));
+		} finally {
+			lecteur.close();
+		}
+		fichier.delete();
+		dossier.delete();
+	}
+	
+}
@@ -0,0 +1,178 @@
+package fr;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+
+import fr.ign.cogit.criteria.CritereSemantique;
+import fr.ign.cogit.distance.semantique.ContenuInformation;
+import fr.ign.cogit.distance.semantique.DistanceContenuInformation;
+import fr.ign.cogit.distance.semantique.DistanceJiangConrath;
+import fr.ign.cogit.distance.semantique.DistanceLin;
+import fr.ign.cogit.distance.semantique.DistanceResnik;
+import fr.ign.cogit.distance.semantique.DistanceWuPalmer;
+import fr.ign.cogit.distance.semantique.MatriceSimilarite;
+import fr.ign.cogit.distance.semantique.ResolutionConcepts;
+import fr.ign.cogit.distance.semantique.ServiceOntologie;
+import fr.ign.cogit.distance.semantique.TaxonomieCompilee;
+import fr.ign.cogit.metadata.PAIBDCarto;
+import fr.ign.cogit.metadata.PAIBDTopo;
+import junit.framework.TestCase;
+
+/**
+ * La distance de Wu-Palmer sur la taxonomie compilée redonne les valeurs du
+ * test Escarpu, et le snapshot binaire relu est identique à la compilation.
+ * 
+ */
+public class TestTaxonomieCompilee extends TestCase {
+	
+	private static final String URI_ONTO = "./data/ontology/FusionTopoCartoExtract.owl";
+	
+	public void testWuPalmer() throws Exception {
+		TaxonomieCompilee taxo = TaxonomieCompilee.compiler(new File(URI_ONTO));
+		DistanceWuPalmer dwp = new DistanceWuPalmer(new ResolutionConcepts(taxo));
+		
+		dwp.setType("Pic", "Col");
+		Assert.assertEquals("Pic - Col", 0.4286, dwp.getDistance(), 0.0001);
+		dwp.setType("Pic", "Pic");
+		Assert.assertEquals("Pic - Pic", 0.0, dwp.getDistance(), 0.001);
+		dwp.setType("Pic", "Sommet");
+		Assert.assertEquals("Pic - Sommet", 0.142, dwp.getDistance(), 0.001);
+		dwp.setType("Pic", "inconnu");
+		Assert.assertEquals("Nature hors taxonomie", 1.0, dwp.getDistance(), 0.001);
+	}
+	
+	public void testResolution() throws Exception {
+		TaxonomieCompilee taxo = TaxonomieCompilee.compiler(new File(URI_ONTO));
+		ResolutionConcepts resolution = new ResolutionConcepts(taxo, 
+				ResolutionConcepts.lireSynonymes(ResolutionConcepts.fichierSynonymes(new File(URI_ONTO))));
+		int col = taxo.getIndice("col");
+		Assert.assertEquals("Nom du concept", col, resolution.resoudre("Col"));
+		Assert.assertEquals("Synonyme", col, resolution.resoudre("Col, passage"));
+		Assert.assertEquals("Libellé", col, resolution.resoudre("Mountain pass"));
+		Assert.assertEquals("Accents", taxo.getIndice("crête"), resolution.resoudre("CRETE"));
+		Assert.assertEquals("Inconnue", -1, resolution.resoudre("Lieu-dit"));
+		Assert.assertEquals("Inconnue", -1, resolution.resoudre("Lieu-dit"));
+		Assert.assertEquals("Echecs comptés", 2, resolution.getNbEchecs());
+		Assert.assertEquals("Echecs comptés", Integer.valueOf(2), resolution.getEchecs().get("Lieu-dit"));
+	}
+	
+	public void testNaturesResolues() throws Exception {
+		TaxonomieCompilee taxo = TaxonomieCompilee.compiler(new File(URI_ONTO));
+		Map<String, String> synonymes = ResolutionConcepts.lireSynonymes(ResolutionConcepts.fichierSynonymes(new File(URI_ONTO)));
+		for (Map.Entry<String, String> e : synonymes.entrySet()) {
+			Assert.assertTrue("Concept du synonyme " + e.getKey(), taxo.getIndice(e.getValue()) >= 0);
+		}
+		
+		ResolutionConcepts resolution = new ResolutionConcepts(taxo, synonymes);
+		List<String> natures = new ArrayList<String>();
+		natures.addAll(Arrays.asList(PAIBDTopo.NATURES));
+		natures.addAll(Arrays.asList(PAIBDCarto.NATURES));
+		// Natures des jeux de test Escarpu, Sibérie et trigrammes
+		natures.addAll(Arrays.asList("Pic", "Col", "Sommet"));
+		for (String nature : natures) {
+			Assert.assertTrue("Nature " + nature, resolution.resoudre(nature) >= 0);
+		}
+		Assert.assertEquals("Aucun échec", 0, resolution.getNbEchecs());
+	}
+	
+	public void testContenuInformation() throws Exception {
+		TaxonomieCompilee taxo = TaxonomieCompilee.compiler(new File(URI_ONTO));
+		ContenuInformation ic = ContenuInformation.compter(taxo, 
+				Arrays.asList("Pic", "Pic", "Sommet", "Col", "Col", "Col", "Falaise", "Lieu-dit"));
+		Assert.assertEquals("Nature hors taxonomie", 1, ic.getNbInconnues());
+		Assert.assertTrue("Un concept est moins informatif que ses descendants", 
+				ic.getIC(taxo.getIndice("sommet")) < ic.getIC(taxo.getIndice("pic")));
+		
+		DistanceContenuInformation[] distances = new DistanceContenuInformation[] {
+				new DistanceResnik(ic), new DistanceLin(ic), new DistanceJiangConrath(ic) };
+		for (DistanceContenuInformation d : distances) {
+			d.setType("Pic", "Pic");
+			Assert.assertEquals(d.getNom(), 0.0, d.getDistance(), 0.0);
+			d.setType("Pic", "Sommet");
+			double proche = d.getDistance();
+			d.setType("Pic", "Col");
+			double loin = d.getDistance();
+			Assert.assertTrue(d.getNom(), 0 <= proche && proche < loin && loin <= 1);
+			d.setType("Pic", "inconnu");
+			Assert.assertEquals(d.getNom(), 1.0, d.getDistance(), 0.0);
+		}
+	}
+	
+	public void testMatriceService() throws Exception {
+		ServiceOntologie service = ServiceOntologie.obtenir(URI_ONTO);
+		try {
+			TaxonomieCompilee taxo = service.getTaxonomie();
+			MatriceSimilarite matrice = service.getMatrice();
+			Assert.assertNotNull("Matrice calculée", matrice);
+			Assert.assertSame("Une seule matrice par service", matrice, service.getMatrice());
+			for (int i = 0; i < taxo.size(); i++) {
+				Assert.assertEquals(taxo.getNom(i), matrice.getNom(i));
+				for (int j = 0; j < taxo.size(); j++) {
+					Assert.assertEquals((float) taxo.similariteWuPalmer(i, j), matrice.getSimilarite(i, j), 0);
+				}
+			}
+			
+			DistanceWuPalmer dwp = new DistanceWuPalmer(URI_ONTO);
+			try {
+				Assert.assertSame("Matrice du service par défaut", matrice, dwp.getMatrice());
+				dwp.setType("Pic", "Col");
+				Assert.assertEquals("Pic - Col", 0.4286, dwp.getDistance(), 0.0001);
+				dwp.setType("Pic", "inconnu");
+				Assert.assertEquals("Nature hors taxonomie", 1.0, dwp.getDistance(), 0.001);
+			} finally {
+				dwp.close();
+			}
+		} finally {
+			service.close();
+		}
+	}
+	
+	public void testPoignees() throws Exception {
+		ServiceOntologie a = ServiceOntologie.obtenir(URI_ONTO);
+		ServiceOntologie b = ServiceOntologie.obtenir(URI_ONTO);
+		Assert.assertSame("Ontologie partagée", a.getTaxonomie(), b.getTaxonomie());
+		a.close();
+		a.close();
+		ServiceOntologie c = ServiceOntologie.obtenir(URI_ONTO);
+		Assert.assertSame("Double close sans effet sur b", b.getTaxonomie(), c.getTaxonomie());
+		b.close();
+		c.close();
+		ServiceOntologie d = ServiceOntologie.obtenir(URI_ONTO);
+		Assert.assertNotSame("Rechargée après la dernière poignée", b.getTaxonomie(), d.getTaxonomie());
+		d.close();
+		
+		// Le critère ne ferme pas une distance qu'il n'a pas créée
+		DistanceWuPalmer dwp = new DistanceWuPalmer(URI_ONTO);
+		CritereSemantique cs = new CritereSemantique(dwp);
+		cs.close();
+		dwp.setType("Pic", "Col");
+		Assert.assertEquals("Distance encore ouverte", 0.4286, dwp.getDistance(), 0.0001);
+		dwp.close();
+	}
+	
+	public void testSnapshot() throws Exception {
+		TaxonomieCompilee taxo = TaxonomieCompilee.compiler(new File(URI_ONTO));
+		File snapshot = File.createTempFile("onto", ".taxo");
+		try {
+			taxo.enregistrer(snapshot);
+			TaxonomieCompilee relue = TaxonomieCompilee.charger(snapshot);
+			Assert.assertEquals("Nombre de concepts", taxo.size(), relue.size());
+			for (int i = 0; i < taxo.size(); i++) {
+				Assert.assertEquals(taxo.getNom(i), relue.getNom(i));
+				Assert.assertEquals(taxo.getProfondeur(i), relue.getProfondeur(i));
+				Assert.assertEquals(Arrays.asList(taxo.getLibelles(i)), Arrays.asList(relue.getLibelles(i)));
+				for (int j = 0; j < taxo.size(); j++) {
+					Assert.assertEquals(taxo.similariteWuPalmer(i, j), relue.similariteWuPalmer(i, j), 0);
+				}
+			}
+		} finally {
+			snapshot.delete();
+		}
+	}
+
+}